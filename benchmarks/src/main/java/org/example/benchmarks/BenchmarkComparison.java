@@ -0,0 +1,83 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf json} and fails when a benchmark got slower.
+ * <p>
+ * Benchmarks are matched by name, mode and parameters. A result counts as a regression when its score is
+ * worse than the baseline by more than the threshold percentage, where worse means lower for throughput
+ * and higher for every time-based mode; benchmarks present in only one file are listed but do not fail.
+ * <p>
+ * Usage: {@code BenchmarkComparison <baseline.json> <current.json> [threshold %, default 10]}. The exit
+ * status is 1 if anything regressed, so the comparison can gate a release build.
+ */
+public final class BenchmarkComparison {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private record Score(String mode, double score, String unit) {
+    }
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold %]");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> result : current.entrySet()) {
+            Score before = baseline.get(result.getKey());
+            Score after = result.getValue();
+            if (before == null) {
+                System.out.printf("NEW        %-70s %12.3f %s%n", result.getKey(), after.score(), after.unit());
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score() * 100;
+            double worse = after.mode().equals("thrpt") ? -change : change;
+            boolean regressed = worse > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %-70s %12.3f -> %12.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "ok",
+                    result.getKey(), before.score(), after.score(), after.unit(), change);
+        }
+        for (String removed : baseline.keySet()) {
+            if (!current.containsKey(removed)) {
+                System.out.printf("MISSING    %s%n", removed);
+            }
+        }
+        System.out.printf("%d of %d benchmarks regressed by more than %.1f%%%n", regressions, current.size(), threshold);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : JSON.readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText())
+                    .append(" [").append(result.path("mode").asText()).append(']');
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode metric = result.path("primaryMetric");
+            scores.put(key.toString(), new Score(result.path("mode").asText(), metric.path("score").asDouble(),
+                    metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+}
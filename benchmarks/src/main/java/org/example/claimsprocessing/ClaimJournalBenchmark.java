@@ -0,0 +1,135 @@
+package org.example.claimsprocessing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Append throughput of {@link ClaimJournal} with and without group-commit fsync, and the time to
+ * rebuild a {@link ClaimStore} from a 10M event journal.
+ */
+public class ClaimJournalBenchmark {
+
+    private static final int SEGMENT_BYTES = 256 << 20;
+
+    @State(Scope.Benchmark)
+    public static class AppendState {
+        @Param({"false", "true"})
+        public boolean fsync;
+
+        Path directory;
+        ClaimJournal journal;
+        final AtomicLong claimIds = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            directory = Files.createTempDirectory("claim-journal-append");
+            journal = ClaimJournal.open(directory, SEGMENT_BYTES, fsync);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @Threads(8)
+    public long appendSubmittedDurable(AppendState state) {
+        long position = state.journal.appendSubmitted(state.claimIds.incrementAndGet(), System.currentTimeMillis(),
+                "POL-12345", "Medical", 500_000, "Emergency surgery after a car accident");
+        state.journal.awaitDurable(position);
+        return position;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @Threads(8)
+    public long appendTransitionDurable(AppendState state) {
+        long position = state.journal.appendTransition(state.claimIds.incrementAndGet(), System.currentTimeMillis(),
+                ClaimStatus.APPROVED, 450_000, null);
+        state.journal.awaitDurable(position);
+        return position;
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+        @Param({"10000000"})
+        public int events;
+
+        Path directory;
+        ClaimJournal journal;
+
+        @Setup(Level.Trial)
+        public void writeJournal() throws IOException {
+            directory = Files.createTempDirectory("claim-journal-recovery");
+            ClaimStore store = new ClaimStore(events);
+            try (ClaimJournal writer = ClaimJournal.open(directory, SEGMENT_BYTES, false)) {
+                store.attachJournal(writer);
+                int submitted = 0;
+                for (int written = 0; written < events; ) {
+                    Claim claim = store.submit("POL-" + (submitted++ % 50_000), "Medical", 5_000, "Emergency surgery");
+                    written++;
+                    if (written < events && (submitted & 1) == 0) {
+                        store.transition(claim.claimNumber(), ClaimStatus.APPROVED, 4_500, null);
+                        written++;
+                    }
+                }
+            }
+            journal = ClaimJournal.open(directory, SEGMENT_BYTES, false);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public ClaimStore replay(RecoveryState state) throws IOException {
+        ClaimStore store = new ClaimStore(state.events);
+        state.journal.replay(0, store.replayHandler());
+        return store;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
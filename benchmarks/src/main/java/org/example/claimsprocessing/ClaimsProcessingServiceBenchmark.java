@@ -0,0 +1,132 @@
+package org.example.claimsprocessing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@code @Action} of {@link ClaimsProcessingService}, called directly against the shared in-memory
+ * {@link ClaimStore} (no journal attached).
+ * <p>
+ * Claim transitions can only happen once per claim, so the write actions run as single shots over batches
+ * of {@value #BATCH} fresh claims and their scores are per batch; divide by the batch size for the cost of
+ * one call. Batches also keep the number of claims created well below the store's capacity.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class ClaimsProcessingServiceBenchmark {
+
+    static final int BATCH = 100_000;
+    private static final String POLICY = "POL-12345";
+
+    private final ClaimsProcessingService service = new ClaimsProcessingService();
+    private String claimNumber;
+
+    @Setup(Level.Trial)
+    public void submitClaims() {
+        for (int i = 0; i < 20; i++) {
+            claimNumber = ClaimStore.shared().submit(POLICY, "Medical", 5_000 + i, "Emergency surgery").claimNumber();
+        }
+    }
+
+    /** Claims awaiting review, and the same number already approved, used up by one batch of transitions. */
+    @State(Scope.Thread)
+    public static class PendingClaims {
+        final String[] pending = new String[BATCH];
+        final String[] approved = new String[BATCH];
+        int next;
+
+        @Setup(Level.Iteration)
+        public void submit() {
+            ClaimStore store = ClaimStore.shared();
+            for (int i = 0; i < BATCH; i++) {
+                pending[i] = store.submit("POL-" + (i % 1_000), "Auto", 2_500, "Rear-end collision").claimNumber();
+                approved[i] = store.submit("POL-" + (i % 1_000), "Auto", 2_500, "Rear-end collision").claimNumber();
+                store.transition(approved[i], ClaimStatus.APPROVED, 2_000, null);
+            }
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public String getClaimStatus() {
+        return service.getClaimStatus(claimNumber);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public String getClaimsSummary() {
+        return service.getClaimsSummary(POLICY);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public String calculateClaimPayout() {
+        return service.calculateClaimPayout(claimNumber, 5_000, 500, 80);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public String submitClaim() {
+        return service.submitClaim(POLICY, "Medical", 5_000, "Emergency surgery");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public String approveClaim(PendingClaims claims) {
+        return service.approveClaim(claims.pending[claims.next++], 4_500);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public String denyClaim(PendingClaims claims) {
+        return service.denyClaim(claims.pending[claims.next++], "Not covered by policy");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public String requestDocumentation(PendingClaims claims) {
+        return service.requestDocumentation(claims.pending[claims.next++], "Police report");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public String processPayment(PendingClaims claims) {
+        return service.processPayment(claims.approved[claims.next++], 2_000, "direct deposit", null);
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.common;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.example.policymanagement.PolicyManagementService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of {@link ActionMetrics} on a cheap action: the bare call, the call timed the way the aspect
+ * times it (meter lookup, two clock reads, a timer update with percentiles and histogram), and the same
+ * inside a request, as {@link RequestTimingFilter} wraps it. The aspect's proxy dispatch comes on top.
+ * The threaded variant shows contention on the shared timer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionMetricsBenchmark {
+
+    private final PolicyManagementService service = new PolicyManagementService();
+    private ActionMetrics metrics;
+    private Method action;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        metrics = new ActionMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        action = PolicyManagementService.class.getMethod("calculatePremium", String.class, int.class, double.class,
+                String.class);
+    }
+
+    @Benchmark
+    public String uninstrumented() {
+        return service.calculatePremium("Life", 42, 500000, "LOW");
+    }
+
+    @Benchmark
+    public String timed() {
+        return timedCall();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String timedContended() {
+        return timedCall();
+    }
+
+    @Benchmark
+    public String timedInRequest() {
+        ActionMetrics.RequestActions request = metrics.beginRequest();
+        long start = System.nanoTime();
+        String reply = timedCall();
+        metrics.endRequest(request, System.nanoTime() - start);
+        return reply;
+    }
+
+    private String timedCall() {
+        ActionMetrics.Meters meters = metrics.meters(action);
+        long start = System.nanoTime();
+        try {
+            return service.calculatePremium("Life", 42, 500000, "LOW");
+        } finally {
+            metrics.record(meters, System.nanoTime() - start);
+        }
+    }
+}
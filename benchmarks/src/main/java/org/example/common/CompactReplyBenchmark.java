@@ -0,0 +1,55 @@
+package org.example.common;
+
+import org.example.underwriting.UnderwritingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link CompactReply} adds to an agent hop: compacting the longest reply (the risk report) and a
+ * short one (a risk assessment), and expanding the compact report again at the human edge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactReplyBenchmark {
+
+    private String report;
+    private String assessment;
+    private String compactReport;
+
+    @Setup
+    public void setUp() {
+        UnderwritingService underwriting = new UnderwritingService();
+        report = underwriting.generateRiskReport("APP-12345");
+        assessment = underwriting.assessRisk("John Doe", 42, "good", "software engineer", false);
+        compactReport = CompactReply.compact(report);
+    }
+
+    @Benchmark
+    public String compactRiskReport() {
+        return CompactReply.compact(report);
+    }
+
+    @Benchmark
+    public String compactRiskAssessment() {
+        return CompactReply.compact(assessment);
+    }
+
+    @Benchmark
+    public String expandRiskReport() {
+        return CompactReply.expand(compactReport);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link ConcurrencyLimiter} adds to an admitted call, from four threads sharing one agent group:
+ * taking a slot, and giving it back with the latency sample that adjusts the limit. The limit is well above
+ * four, so nothing queues; a queued call waits for a slot, which is what it is there for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrencyLimiterBenchmark {
+
+    private ConcurrencyLimiter limiter;
+
+    @Setup
+    public void setUp() {
+        limiter = new ConcurrencyLimiter("customerServiceOperations", 20, 20, 200, 2.0, 50, 1,
+                TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public ConcurrencyLimiter.Permit acquireAndRelease() throws InterruptedException {
+        ConcurrencyLimiter.Permit permit = limiter.acquire(ConcurrencyLimiter.Priority.NORMAL);
+        permit.release(true);
+        return permit;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@link IdempotencyIndex} from every available core: retries spread over a few hot keys
+ * (all replays, contending on the same stripes), and first calls with fresh keys (all executions, with a
+ * short TTL so expiry keeps the index bounded). {@code hotKeys} sets how concentrated the retries are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdempotencyIndexBenchmark {
+
+    @Param({"1", "16", "1024"})
+    public int hotKeys;
+
+    private final AtomicLong freshKeys = new AtomicLong();
+    private IdempotencyIndex<String> retries;
+    private IdempotencyIndex<String> firstCalls;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        retries = new IdempotencyIndex<>(256, Duration.ofHours(1));
+        firstCalls = new IdempotencyIndex<>(256, Duration.ofMillis(100));
+        keys = new String[hotKeys];
+        for (int i = 0; i < hotKeys; i++) {
+            keys[i] = "KEY-" + i;
+            retries.execute("CUST-12345", keys[i], () -> "payment");
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String replayHotKeys() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        return retries.execute("CUST-12345", key, () -> "payment");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String executeFreshKeys() {
+        return firstCalls.execute("CUST-12345", Long.toString(freshKeys.incrementAndGet()), () -> "payment");
+    }
+}
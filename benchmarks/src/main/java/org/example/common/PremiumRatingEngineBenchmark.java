@@ -0,0 +1,126 @@
+package org.example.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single quotes and whole-book repricing through {@link PremiumRatingEngine}, next to the string
+ * parsing formula {@code calculatePremiumRate} used before. Setup first checks that the bundled plan quotes a
+ * grid of policies as the old {@code PremiumRates} did, with policy management's 1.5 loading over age 50.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PremiumRatingEngineBenchmark {
+
+    private static final int BOOK_SIZE = 1_000_000;
+    private static final String[] TYPES = {"life", "Auto", "HOME", "health", "travel"};
+    private static final String[] RISKS = {"LOW", "medium", "HIGH"};
+
+    private final PremiumRatingEngine engine = PremiumRatingEngine.shared();
+    private final PolicyType[] policyTypes = new PolicyType[BOOK_SIZE];
+    private final RiskCategory[] riskCategories = new RiskCategory[BOOK_SIZE];
+    private final int[] ages = new int[BOOK_SIZE];
+    private final double[] coverageAmounts = new double[BOOK_SIZE];
+    private final double[] premiums = new double[BOOK_SIZE];
+    private int index;
+
+    @Setup
+    public void book() throws IOException {
+        checkAgainstLegacy();
+        for (int i = 0; i < BOOK_SIZE; i++) {
+            policyTypes[i] = PolicyType.values()[i % PolicyType.values().length];
+            riskCategories[i] = RiskCategory.values()[i % RiskCategory.values().length];
+            ages[i] = 18 + i % 70;
+            coverageAmounts[i] = 10_000 + (i % 200) * 10_000;
+        }
+    }
+
+    @Benchmark
+    public double annualPremium() {
+        int i = index++ % BOOK_SIZE;
+        index %= BOOK_SIZE;
+        return engine.annualPremium(policyTypes[i], riskCategories[i], ages[i], coverageAmounts[i]);
+    }
+
+    @Benchmark
+    public PremiumQuote quoteFromStrings() {
+        int i = index++;
+        return engine.quote(TYPES[i % TYPES.length], RISKS[i % RISKS.length], 40, 250_000);
+    }
+
+    @Benchmark
+    public double legacyStringFormula() {
+        int i = index++;
+        return 250_000 * legacyBaseRate(TYPES[i % TYPES.length]) * legacyRiskMultiplier(RISKS[i % RISKS.length]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOK_SIZE)
+    public double[] priceBook() {
+        engine.priceBook(policyTypes, riskCategories, ages, coverageAmounts, premiums);
+        return premiums;
+    }
+
+    private static void checkAgainstLegacy() throws IOException {
+        Properties plan = new Properties();
+        try (InputStream in = PremiumRatingEngine.class.getClassLoader()
+                .getResourceAsStream(PremiumRatingEngine.DEFAULT_PLAN)) {
+            plan.load(in);
+        }
+        PremiumRatingEngine bundled = PremiumRatingEngine.compile(plan);
+        String[] types = {"life", "Auto", "HOME", "health", "travel", ""};
+        String[] risks = {"LOW", "medium", "High", "unknown"};
+        int[] ages = {PremiumRatingEngine.UNRATED_AGE, 0, 18, 49, 50, 51, 65, 99, 150};
+        double[] coverageAmounts = {0, 10_000, 100_000, 100_001, 250_000, 500_000, 1_000_000, 5_000_000};
+        for (String type : types) {
+            for (String risk : risks) {
+                for (int age : ages) {
+                    for (double coverageAmount : coverageAmounts) {
+                        double premium = bundled.quote(type, risk, age, coverageAmount).annualPremium();
+                        double ageFactor = age > 50 ? 1.5 : 1.0;
+                        double legacy = coverageAmount * legacyBaseRate(type) * legacyRiskMultiplier(risk) * ageFactor;
+                        if (Math.abs(premium - legacy) > 1e-9 * Math.max(1, legacy)) {
+                            throw new IllegalStateException("Rating plan disagrees with PremiumRates for " + type +
+                                    ", " + risk + ", age " + age + ", coverage " + coverageAmount + ": " + premium +
+                                    " instead of " + legacy);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** {@code PremiumRates.baseRate} before the rating engine. */
+    private static double legacyBaseRate(String policyType) {
+        switch (policyType.toLowerCase()) {
+            case "life": return 0.003;
+            case "auto": return 0.015;
+            case "home": return 0.008;
+            case "health": return 0.05;
+            default: return 0.01;
+        }
+    }
+
+    private static double legacyRiskMultiplier(String riskCategory) {
+        return riskCategory.equalsIgnoreCase("HIGH") ? 2.0 :
+               riskCategory.equalsIgnoreCase("MEDIUM") ? 1.3 : 1.0;
+    }
+}
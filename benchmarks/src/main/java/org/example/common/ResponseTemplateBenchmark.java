@@ -0,0 +1,99 @@
+package org.example.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent replies rendered with {@code String.format} (and a per-call {@link DateTimeFormatter}), as the
+ * services used to, against the same patterns precompiled as {@link ResponseTemplate}s. Run with
+ * {@code -prof gc} to compare allocation per reply.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseTemplateBenchmark {
+
+    private static final String PREMIUM_PATTERN = "Premium Calculation:\n" +
+            "=================================\n" +
+            "Policy Type: %s\n" +
+            "Coverage Amount: $%.2f\n" +
+            "Base Premium: $%.2f\n" +
+            "Age Factor (Age %d): %.2fx\n" +
+            "Risk Category: %s (%.2fx)\n" +
+            "Annual Premium: $%.2f\n" +
+            "Monthly Premium: $%.2f";
+    private static final String CLAIM_PATTERN = "Claim submitted successfully!\n" +
+            "Claim Number: %s\n" +
+            "Policy Number: %s\n" +
+            "Claim Type: %s\n" +
+            "Claim Amount: $%.2f\n" +
+            "Description: %s\n" +
+            "Status: PENDING REVIEW\n" +
+            "Submitted: %s\n" +
+            "Expected Processing Time: 5-7 business days";
+    private static final String SUMMARY_PATTERN = "Claims Summary for Policy %s:\n\n" +
+            "Total Claims: %d\n" +
+            "Approved: %d ($%,.2f)\n" +
+            "Denied: %d\n" +
+            "Pending: %d ($%,.2f)\n\n" +
+            "Recent Claims:%s";
+    private static final String TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private static final ResponseTemplate PREMIUM = ResponseTemplate.compile(PREMIUM_PATTERN);
+    private static final ResponseTemplate CLAIM = ResponseTemplate.compile(CLAIM_PATTERN);
+    private static final ResponseTemplate SUMMARY = ResponseTemplate.compile(SUMMARY_PATTERN);
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern(TIMESTAMP_PATTERN);
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 3, 14, 9, 26, 53);
+    private double coverageAmount = 500_000;
+
+    @Benchmark
+    public String premiumStringFormat() {
+        coverageAmount += 0.01;
+        return String.format(PREMIUM_PATTERN, "Life", coverageAmount, 1500.0, 55, 1.5, "HIGH", 2.0,
+                4500.0, 375.0);
+    }
+
+    @Benchmark
+    public String premiumTemplate() {
+        coverageAmount += 0.01;
+        return PREMIUM.render("Life", coverageAmount, 1500.0, 55, 1.5, "HIGH", 2.0, 4500.0, 375.0);
+    }
+
+    @Benchmark
+    public String claimStringFormat() {
+        return String.format(CLAIM_PATTERN, "CLM-1048576001", "POL-1048576000", "Auto", 12_500.0,
+                "Rear-end collision", now.format(DateTimeFormatter.ofPattern(TIMESTAMP_PATTERN)));
+    }
+
+    @Benchmark
+    public String claimTemplate() {
+        return CLAIM.render("CLM-1048576001", "POL-1048576000", "Auto", 12_500.0, "Rear-end collision",
+                now.format(TIMESTAMP));
+    }
+
+    @Benchmark
+    public String summaryStringFormat() {
+        return String.format(SUMMARY_PATTERN, "POL-1048576000", 42L, 30L, 1_234_567.89, 4L, 8L, 98_765.43,
+                "\nNone");
+    }
+
+    @Benchmark
+    public String summaryTemplate() {
+        return SUMMARY.render("POL-1048576000", 42L, 30L, 1_234_567.89, 4L, 8L, 98_765.43, "\nNone");
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.customerservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bookings from four threads sharing one {@link AppointmentCalendar}, all asking for the same morning, so
+ * they contend for the same agents' words. Every booking is cancelled again, which keeps the calendar from
+ * filling up; a booking is the search for the nearest free slot plus the compare-and-set that takes it.
+ * {@code availability} is the bulk query over every agent's day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AppointmentCalendarBenchmark {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 11, 2, 8, 0);
+    private static final LocalDateTime PREFERRED = LocalDateTime.of(2026, 11, 3, 10, 0);
+
+    @Param({"50", "500"})
+    public int agents;
+
+    private AppointmentCalendar calendar;
+    private int slots;
+
+    /** Each thread's confirmation numbers. */
+    @State(Scope.Thread)
+    public static class Ids {
+        private final String prefix = "APT-" + Thread.currentThread().getId() + "-";
+        private long next;
+
+        String next() {
+            return prefix + next++;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        calendar = new AppointmentCalendar(AppointmentCalendar.roster(agents), LocalTime.of(9, 0),
+                Duration.ofMinutes(15), 32, 30, clock);
+        slots = calendar.slotsFor(Duration.ofMinutes(45));
+    }
+
+    @Benchmark
+    public AppointmentCalendar.Booking bookAndCancel(Ids ids) {
+        String id = ids.next();
+        calendar.book(id, PREFERRED, slots);
+        return calendar.cancel(id);
+    }
+
+    @Benchmark
+    public int[] availability() {
+        return calendar.availability(PREFERRED.toLocalDate(), slots);
+    }
+}
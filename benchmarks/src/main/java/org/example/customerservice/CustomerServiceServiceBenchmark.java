@@ -0,0 +1,105 @@
+package org.example.customerservice;
+
+import org.example.claimsprocessing.ClaimsProcessingService;
+import org.example.insuranceclient.InProcessToolTransport;
+import org.example.insuranceclient.ReplicaBalancer;
+import org.example.policymanagement.PolicyManagementService;
+import org.example.underwriting.UnderwritingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@code @Action} of {@link CustomerServiceService}, called directly: the cost an agent adds to a
+ * request once routing and argument binding are done. The customer overview and the service status report
+ * call the other services in process, through the balancer they use in a server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerServiceServiceBenchmark {
+
+    private static final String CONFIRMATION = "Confirmation Number: ";
+
+    private final CustomerServiceService service = new CustomerServiceService();
+
+    @Benchmark
+    public String getCustomerAccount() {
+        return service.getCustomerAccount("CUST-12345");
+    }
+
+    @Setup
+    public void setUp() {
+        ReplicaBalancer.configureShared(new InProcessToolTransport(Map.of(
+                CustomerOverview.policyUrl(), new PolicyManagementService(),
+                CustomerOverview.claimsUrl(), new ClaimsProcessingService(),
+                ServiceStatus.underwritingUrl(), new UnderwritingService())));
+        CustomerOverview.configureShared(ReplicaBalancer.shared());
+    }
+
+    @Benchmark
+    public String getCustomerOverview() {
+        return service.getCustomerOverview("CUST-12345");
+    }
+
+    @Benchmark
+    public String updateCustomerInfo() {
+        return service.updateCustomerInfo("CUST-12345", "email", "john.doe@example.com");
+    }
+
+    @Benchmark
+    public String handleInquiry() {
+        return service.handleInquiry("CUST-12345", "payment", "When is my next payment due?");
+    }
+
+    /** Cancels each appointment again, so the calendar never fills up and every call finds a slot. */
+    @Benchmark
+    public String scheduleAppointment() {
+        String reply = service.scheduleAppointment("CUST-12345", "policy review", "2026-11-03");
+        int start = reply.indexOf(CONFIRMATION) + CONFIRMATION.length();
+        return service.cancelAppointment(reply.substring(start, reply.indexOf('\n', start)));
+    }
+
+    @Benchmark
+    public String getAppointmentAvailability() {
+        return service.getAppointmentAvailability("2026-11-03");
+    }
+
+    @Benchmark
+    public String generateDocuments() {
+        return service.generateDocuments("POL-12345", "renewal");
+    }
+
+    @Benchmark
+    public String processPayment() {
+        return service.processPayment("CUST-12345", "POL-12345", 291.67, "credit card", null);
+    }
+
+    @Benchmark
+    public String submitFeedback() {
+        return service.submitFeedback("CUST-12345", 5, "Great service");
+    }
+
+    @Benchmark
+    public String checkServiceStatus() {
+        return service.checkServiceStatus();
+    }
+
+    @Benchmark
+    public String getSupportOptions() {
+        return service.getSupportOptions();
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.insuranceclient;
+
+import org.example.customerservice.CustomerServiceService;
+import org.example.policymanagement.PolicyManagementService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the mesh adds on top of an action itself, without HTTP: a direct service call, the same call through
+ * the reflective {@link InProcessToolTransport} dispatch, and a query served from a cached
+ * {@link MeshRoute} (shape the query, bind the arguments, dispatch). The HTTP hop is measured by
+ * {@link MeshHopProbe} against running servers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionDispatchBenchmark {
+
+    private static final String QUERY = "Calculate premium for a Life policy, age 42, coverage $500,000, risk category LOW";
+    private static final Map<String, Object> PREMIUM_ARGUMENTS = Map.of("policyType", "Life", "age", 42,
+            "coverageAmount", 500000, "riskCategory", "LOW");
+    private static final Map<String, Object> ACCOUNT_ARGUMENTS = Map.of("customerId", "CUST-12345");
+
+    private PolicyManagementService policyService;
+    private CustomerServiceService customerService;
+    private InProcessToolTransport transport;
+    private MeshRoute cachedRoute;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> services = MeshAgents.instances(type -> {
+            try {
+                return type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create " + type.getName(), e);
+            }
+        });
+        policyService = (PolicyManagementService) services.get(MeshAgents.POLICY_URL);
+        customerService = (CustomerServiceService) services.get(MeshAgents.CUSTOMER_SERVICE_URL);
+        transport = new InProcessToolTransport(services);
+
+        RouteResolver.Resolution resolution = new LocalActionRouter(ActionIndex.of(MeshAgents.SERVICES), null)
+                .route(QUERY);
+        cachedRoute = resolution == null ? null : MeshRoute.learn(QueryShape.of(QUERY), resolution);
+        if (cachedRoute == null) {
+            throw new IllegalStateException("The benchmark query no longer routes to a cacheable decision: " + QUERY);
+        }
+    }
+
+    @Benchmark
+    public String calculatePremiumDirect() {
+        return policyService.calculatePremium("Life", 42, 500000, "LOW");
+    }
+
+    @Benchmark
+    public String calculatePremiumDispatched() {
+        return transport.callTool(MeshAgents.POLICY_URL, "calculatePremium", PREMIUM_ARGUMENTS);
+    }
+
+    @Benchmark
+    public String calculatePremiumFromCachedRoute() {
+        QueryShape shape = QueryShape.of(QUERY);
+        return transport.callTool(cachedRoute.agentUrl(), cachedRoute.action(), cachedRoute.arguments(shape.slots()));
+    }
+
+    @Benchmark
+    public String getCustomerAccountDirect() {
+        return customerService.getCustomerAccount("CUST-12345");
+    }
+
+    @Benchmark
+    public String getCustomerAccountDispatched() {
+        return transport.callTool(MeshAgents.CUSTOMER_SERVICE_URL, "getCustomerAccount", ACCOUNT_ARGUMENTS);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.insuranceclient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-RPC encoding and decoding around one {@code tools/call} hop: the client building a request and
+ * reading the reply with {@link MeshToolClient}'s codec, and the agent side reading the request (including
+ * the arguments packed as a JSON string) and writing a reply, done here with Jackson as the agents do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonRpcCodecBenchmark {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Map<String, Object> ARGUMENTS = Map.of("policyNumber", "POL-12345", "claimType", "Medical",
+            "claimAmount", 5000, "description", "Emergency surgery");
+    private static final String REPLY_TEXT = "Claim CLM-1001 submitted for policy POL-12345: Medical, $5,000.00, " +
+            "status PENDING. Emergency surgery.";
+
+    private String requestBody;
+    private String replyBody;
+    private long id;
+
+    @Setup
+    public void setUp() throws IOException {
+        requestBody = encodeRequest();
+        replyBody = encodeReply();
+    }
+
+    @Benchmark
+    public String encodeRequest() throws IOException {
+        return MeshToolClient.requestBody(++id, "tools/call", MeshToolClient.toolCallParams("submitClaim", ARGUMENTS));
+    }
+
+    @Benchmark
+    public JsonNode decodeRequest() throws IOException {
+        JsonNode params = JSON.readTree(requestBody).path("params");
+        return JSON.readTree(params.path("arguments").path(MeshToolClient.PLAIN_ENGLISH_ARGUMENT).asText());
+    }
+
+    @Benchmark
+    public String encodeReply() throws IOException {
+        ObjectNode reply = JSON.createObjectNode().put("jsonrpc", "2.0");
+        reply.putObject("result").put("isError", false)
+                .putArray("content").addObject().put("type", "text").put("text", REPLY_TEXT);
+        reply.put("id", ++id);
+        return JSON.writeValueAsString(reply);
+    }
+
+    @Benchmark
+    public String decodeReply() throws IOException {
+        return MeshToolClient.replyText("submitClaim", MeshToolClient.result(replyBody, "tools/call"));
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.insuranceclient;
+
+import org.example.claimsprocessing.ClaimsProcessingService;
+import org.example.customerservice.CustomerServiceService;
+import org.example.policymanagement.PolicyManagementService;
+import org.example.underwriting.UnderwritingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of routing a query locally with a {@link LocalActionRouter}, split into the BM25 lookup and the
+ * whole decision including argument extraction. Compare with the LLM round trip it replaces, which is
+ * typically hundreds of milliseconds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalActionRouterBenchmark {
+
+    private static final List<String> QUERIES = List.of(
+            "Get customer account information for customer ID CUST-12345",
+            "Assess risk for John Doe, 42 years old, good health, software engineer, non-smoker",
+            "Create a life insurance policy for John Doe with $500,000 coverage",
+            "Submit a medical claim for policy POL-12345, claim amount $5000, for emergency surgery",
+            "Calculate the payout for claim CLM-3 with claim amount $10,000, deductible $500 and 80% coverage",
+            "Process a payment of $120 for customer CUST-2 on policy POL-3 by credit card");
+
+    private ActionIndex index;
+    private LocalActionRouter router;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        index = ActionIndex.of(Map.of(
+                PolicyManagementService.class, "http://localhost:7871/",
+                ClaimsProcessingService.class, "http://localhost:7872/",
+                UnderwritingService.class, "http://localhost:7873/",
+                CustomerServiceService.class, "http://localhost:7874/"));
+        router = new LocalActionRouter(index, null);
+    }
+
+    private String nextQuery() {
+        String query = QUERIES.get(next);
+        next = (next + 1) % QUERIES.size();
+        return query;
+    }
+
+    @Benchmark
+    public List<ActionIndex.Match> search() {
+        return index.search(nextQuery(), 2);
+    }
+
+    @Benchmark
+    public RouteResolver.Resolution route() {
+        return router.route(nextQuery());
+    }
+}
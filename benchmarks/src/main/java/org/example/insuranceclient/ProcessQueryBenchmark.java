@@ -0,0 +1,91 @@
+package org.example.insuranceclient;
+
+import io.github.vishalmysore.mesh.AgentCatalog;
+import org.example.consolidated.ConsolidatedMeshServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end query latency against a {@link StubModelServer} instead of a real model, with the
+ * {@link ConsolidatedMeshServer} started in the benchmark JVM and called over HTTP.
+ * <p>
+ * {@code processQuery} is the tools4ai path through {@link AgentCatalog#processQuery}, configured by
+ * {@code tools4ai_stub.properties}; {@code routedByModel} asks the stub for every route through an
+ * {@link LlmRouteResolver}, and {@code routedFromCache} goes through a {@link RoutingMeshClient} whose cache
+ * already holds the route. The difference between the first two is what tools4ai adds around the model
+ * call, and between the last two what the routing cache saves, less the model's own latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Dtools4ai.properties.path=tools4ai_stub.properties")
+public class ProcessQueryBenchmark {
+
+    private static final String QUERY = "Get customer account information for customer ID CUST-12345";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private StubModelServer model;
+    private ConfigurableApplicationContext agents;
+    private AgentCatalog agentCatalog;
+    private MeshToolClient http;
+    private LlmRouteResolver resolver;
+    private List<MeshTool> tools;
+    private RoutingMeshClient routing;
+
+    @Setup
+    public void setUp() {
+        Map<Class<?>, String> consolidated = new HashMap<>();
+        MeshAgents.SERVICES.keySet().forEach(type -> consolidated.put(type, MeshAgents.CONSOLIDATED_URL));
+        model = new StubModelServer(StubModelServer.DEFAULT_PORT, consolidated).start();
+        agents = ConsolidatedMeshServer.start();
+
+        agentCatalog = new AgentCatalog();
+        agentCatalog.addAgent(MeshAgents.CONSOLIDATED_URL);
+        http = new MeshToolClient(TIMEOUT);
+        tools = http.listTools(MeshAgents.CONSOLIDATED_URL);
+        resolver = new LlmRouteResolver(model.baseUrl(), "stub", "stub", TIMEOUT);
+        routing = new RoutingMeshClient(List.of(MeshAgents.CONSOLIDATED_URL), http, resolver,
+                new RoutingCache(16, TimeUnit.HOURS.toNanos(1)), query -> agentCatalog.processQuery(query).getTextResult());
+        routing.apply(QUERY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        agents.close();
+        model.close();
+    }
+
+    @Benchmark
+    public String processQuery() {
+        return agentCatalog.processQuery(QUERY).getTextResult();
+    }
+
+    @Benchmark
+    public String routedByModel() {
+        RouteResolver.Resolution route = resolver.resolve(QUERY, () -> tools);
+        return http.callTool(route.agentUrl(), route.action(), route.arguments());
+    }
+
+    @Benchmark
+    public String routedFromCache() {
+        return routing.apply(QUERY);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.insuranceclient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link ReplicaBalancer} adds to a call, from four threads sharing one agent: picking a replica,
+ * counting it in flight and updating its EWMA and breaker. The transport answers at once, so this is the
+ * balancer alone; compare with the HTTP hop {@link MeshHopProbe} measures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ReplicaBalancerBenchmark {
+
+    private static final String AGENT_URL = "http://localhost:7872/";
+    private static final Map<String, Object> ARGUMENTS = Map.of("claimNumber", "CLM-12345");
+
+    @Param({"1", "3"})
+    public int replicas;
+
+    private ReplicaBalancer balancer;
+
+    @Setup
+    public void setUp() {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            urls.add("http://localhost:" + (7872 + 10 * i) + "/");
+        }
+        ToolTransport transport = new ToolTransport() {
+            @Override
+            public List<MeshTool> listTools(String agentUrl) {
+                return List.of();
+            }
+
+            @Override
+            public String callTool(String agentUrl, String action, Map<String, Object> arguments) {
+                return agentUrl;
+            }
+        };
+        balancer = new ReplicaBalancer(transport, Map.of(AGENT_URL, urls), 3, Duration.ofSeconds(5),
+                Duration.ofSeconds(5));
+    }
+
+    @TearDown
+    public void tearDown() {
+        balancer.close();
+    }
+
+    @Benchmark
+    public String callTool() {
+        return balancer.callTool(AGENT_URL, "getClaimStatus", ARGUMENTS);
+    }
+}
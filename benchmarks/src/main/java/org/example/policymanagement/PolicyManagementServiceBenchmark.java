@@ -0,0 +1,63 @@
+package org.example.policymanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@code @Action} of {@link PolicyManagementService}, called directly: the cost an agent adds to a
+ * request once routing and argument binding are done.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyManagementServiceBenchmark {
+
+    private final PolicyManagementService service = new PolicyManagementService();
+
+    @Benchmark
+    public String createPolicy() {
+        return service.createPolicy("Life Insurance", "John Doe", 500_000);
+    }
+
+    @Benchmark
+    public String renewPolicy() {
+        return service.renewPolicy("POL-12345", 5);
+    }
+
+    @Benchmark
+    public String cancelPolicy() {
+        return service.cancelPolicy("POL-12345", "Customer request");
+    }
+
+    @Benchmark
+    public String getPolicyDetails() {
+        return service.getPolicyDetails("POL-12345");
+    }
+
+    @Benchmark
+    public String updatePolicy() {
+        return service.updatePolicy("POL-12345", "beneficiary", "Jane Doe");
+    }
+
+    @Benchmark
+    public String calculatePremium() {
+        return service.calculatePremium("Life", 42, 500_000, "MEDIUM");
+    }
+
+    @Benchmark
+    public String listCustomerPolicies() {
+        return service.listCustomerPolicies("CUST-12345");
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.underwriting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applicants per second through {@link BatchUnderwriter} for a 100k applicant batch. The score is per
+ * applicant, so dividing it by {@code parallelism} gives applicants per second per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchUnderwriterBenchmark {
+
+    private static final int APPLICANTS = 100_000;
+
+    @Param({"1", "4", "0"})
+    public int parallelism;
+
+    private ForkJoinPool pool;
+    private BatchUnderwriter underwriter;
+    private String csv;
+    private String ndjson;
+
+    @Setup
+    public void prepare() {
+        int threads = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        pool = new ForkJoinPool(threads);
+        underwriter = new BatchUnderwriter(pool, 1024, threads * 2);
+        StringBuilder csvBody = new StringBuilder("applicantName,age,healthStatus,occupation,smoker,policyType,coverageAmount\n");
+        StringBuilder ndjsonBody = new StringBuilder();
+        String[] health = {"EXCELLENT", "GOOD", "FAIR", "POOR"};
+        String[] occupations = {"Software Engineer", "Construction Worker", "Nurse", "Mining Technician"};
+        String[] policyTypes = {"life", "auto", "home", "health"};
+        for (int i = 0; i < APPLICANTS; i++) {
+            String name = "Applicant " + i;
+            int age = 20 + i % 55;
+            boolean smoker = i % 5 == 0;
+            csvBody.append(name).append(',').append(age).append(',').append(health[i & 3]).append(',')
+                    .append(occupations[(i >> 2) & 3]).append(',').append(smoker).append(',')
+                    .append(policyTypes[(i >> 4) & 3]).append(",250000\n");
+            ndjsonBody.append("{\"applicantName\":\"").append(name).append("\",\"age\":").append(age)
+                    .append(",\"healthStatus\":\"").append(health[i & 3]).append("\",\"occupation\":\"")
+                    .append(occupations[(i >> 2) & 3]).append("\",\"smoker\":").append(smoker)
+                    .append(",\"policyType\":\"").append(policyTypes[(i >> 4) & 3]).append("\",\"coverageAmount\":250000}\n");
+        }
+        csv = csvBody.toString();
+        ndjson = ndjsonBody.toString();
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(APPLICANTS)
+    public long csv() throws IOException {
+        return underwriter.process(new BufferedReader(new StringReader(csv)), Writer.nullWriter(), BatchUnderwriter.Format.CSV);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(APPLICANTS)
+    public long ndjson() throws IOException {
+        return underwriter.process(new BufferedReader(new StringReader(ndjson)), Writer.nullWriter(), BatchUnderwriter.Format.NDJSON);
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.underwriting;
+
+import org.example.common.RiskCategory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiled {@link RiskScoringEngine} against the original if-chain of {@code assessRisk}, with the
+ * bundled rule table and with several hundred occupation hazard keywords. Run with {@code -prof gc}
+ * to confirm the engine does not allocate. Setup first checks that the bundled table scores and categorizes
+ * a grid of applicants exactly as the if-chain did, so the comparison is between equivalent rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RiskScoringEngineBenchmark {
+
+    private static final String[] HEALTH = {"Excellent", "GOOD", "fair", "Poor"};
+    private static final String[] OCCUPATIONS = {
+            "Software Engineer", "Construction site supervisor", "Underground coal mining technician",
+            "Registered nurse", "Commercial airline pilot", "High school teacher"};
+
+    @Param({"bundled", "500-keywords"})
+    public String rules;
+
+    private RiskScoringEngine engine;
+    private int index;
+
+    @Setup
+    public void compile() {
+        if (rules.equals("bundled")) {
+            engine = RiskScoringEngine.load();
+            checkAgainstLegacy(engine);
+            return;
+        }
+        Properties table = new Properties();
+        table.setProperty("base.score", "50");
+        table.setProperty("age.0-29", "-10");
+        table.setProperty("age.46-60", "15");
+        table.setProperty("age.61-150", "30");
+        for (String health : HEALTH) {
+            table.setProperty("health." + health.toUpperCase(), "10");
+        }
+        table.setProperty("smoker", "25");
+        table.setProperty("hazard.construction", "20");
+        table.setProperty("hazard.mining", "20");
+        for (int i = 0; i < 500; i++) {
+            table.setProperty("hazard.hazard" + Integer.toString(i * 7919, 36), Integer.toString(i % 30));
+        }
+        table.setProperty("category.LOW", "40");
+        table.setProperty("category.MEDIUM", "70");
+        engine = RiskScoringEngine.compile(table);
+    }
+
+    @Benchmark
+    public RiskCategory compiledEngine() {
+        int i = index++;
+        int score = engine.score(25 + (i & 31), HEALTH[i & 3], OCCUPATIONS[i % OCCUPATIONS.length], (i & 4) != 0);
+        return engine.categorize(score);
+    }
+
+    @Benchmark
+    public String legacyIfChain() {
+        int i = index++;
+        return legacyCategory(25 + (i & 31), HEALTH[i & 3], OCCUPATIONS[i % OCCUPATIONS.length], (i & 4) != 0);
+    }
+
+    private static void checkAgainstLegacy(RiskScoringEngine engine) {
+        String[] healthStatuses = {"Excellent", "GOOD", "good", "fair", "Poor", "POOR", "unknown", ""};
+        String[] occupations = {"Software Engineer", "Construction site supervisor", "CONSTRUCTION",
+                "Underground coal mining technician", "Mining and construction consultant", "Coal miner",
+                "Registered nurse", ""};
+        for (int age = 0; age <= 120; age++) {
+            for (String health : healthStatuses) {
+                for (String occupation : occupations) {
+                    for (boolean smoker : new boolean[]{false, true}) {
+                        int score = engine.score(age, health, occupation, smoker);
+                        int legacyScore = legacyScore(age, health, occupation, smoker);
+                        String category = engine.categorize(score).name();
+                        if (score != legacyScore || !category.equals(legacyCategory(legacyScore))) {
+                            throw new IllegalStateException("Rule table disagrees with the if-chain for age " + age +
+                                    ", health " + health + ", occupation " + occupation + ", smoker " + smoker +
+                                    ": " + score + " " + category + " instead of " + legacyScore + " " +
+                                    legacyCategory(legacyScore));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** The scoring part of {@code assessRisk} before the rule engine. */
+    private static String legacyCategory(int age, String healthStatus, String occupation, boolean smoker) {
+        return legacyCategory(legacyScore(age, healthStatus, occupation, smoker));
+    }
+
+    private static int legacyScore(int age, String healthStatus, String occupation, boolean smoker) {
+        int riskScore = 50;
+        if (age > 60) riskScore += 30;
+        else if (age > 45) riskScore += 15;
+        else if (age < 30) riskScore -= 10;
+        if (healthStatus.equalsIgnoreCase("EXCELLENT")) riskScore -= 20;
+        else if (healthStatus.equalsIgnoreCase("GOOD")) riskScore -= 10;
+        else if (healthStatus.equalsIgnoreCase("FAIR")) riskScore += 10;
+        else if (healthStatus.equalsIgnoreCase("POOR")) riskScore += 30;
+        if (smoker) riskScore += 25;
+        if (occupation.toLowerCase().contains("construction") ||
+            occupation.toLowerCase().contains("mining")) {
+            riskScore += 20;
+        }
+        return riskScore;
+    }
+
+    private static String legacyCategory(int riskScore) {
+        if (riskScore < 40) return "LOW";
+        else if (riskScore < 70) return "MEDIUM";
+        return "HIGH";
+    }
+}
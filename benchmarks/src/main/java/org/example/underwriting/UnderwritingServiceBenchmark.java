@@ -0,0 +1,58 @@
+package org.example.underwriting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@code @Action} of {@link UnderwritingService}, called directly: the cost an agent adds to a
+ * request once routing and argument binding are done.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnderwritingServiceBenchmark {
+
+    private final UnderwritingService service = new UnderwritingService();
+
+    @Benchmark
+    public String assessRisk() {
+        return service.assessRisk("John Doe", 42, "good", "software engineer", false);
+    }
+
+    @Benchmark
+    public String calculatePremiumRate() {
+        return service.calculatePremiumRate("Life", "MEDIUM", 500_000);
+    }
+
+    @Benchmark
+    public String evaluateEligibility() {
+        return service.evaluateEligibility("John Doe", "Health", "None");
+    }
+
+    @Benchmark
+    public String generateRiskReport() {
+        return service.generateRiskReport("APP-12345");
+    }
+
+    @Benchmark
+    public String processApplication() {
+        return service.processApplication("APP-12345", "APPROVED", "Risk within guidelines");
+    }
+
+    @Benchmark
+    public String setPolicyTerms() {
+        return service.setPolicyTerms("Life", 20, 500_000);
+    }
+}
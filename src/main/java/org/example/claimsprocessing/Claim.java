@@ -0,0 +1,17 @@
+package org.example.claimsprocessing;
+
+/**
+ * Immutable view of one claim, materialised from {@link ClaimStore} columns on read.
+ * Amounts are in dollars, timestamps in epoch milliseconds.
+ */
+public record Claim(String claimNumber,
+                    String policyNumber,
+                    String claimType,
+                    ClaimStatus status,
+                    double claimAmount,
+                    double settledAmount,
+                    String description,
+                    String note,
+                    long submittedAt,
+                    long updatedAt) {
+}
@@ -0,0 +1,488 @@
+package org.example.claimsprocessing;
+
+import lombok.extern.java.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of claim lifecycle events, written through memory-mapped segment files.
+ * <p>
+ * Every segment starts with {@code [int magic][int segmentSize]}, followed by records of
+ * {@code [int bodyLength][int crc32c][body]}; a zero length marks the end of the written part of a segment.
+ * Records never span segments. The journal position is a logical offset
+ * ({@code segmentIndex * segmentSize + offset}), which snapshots use to know where replay resumes, so a journal
+ * keeps the segment size it was created with: an existing journal is reopened with the size in its segment
+ * header, whatever size is asked for.
+ * <p>
+ * One process owns a journal directory: {@link #open} takes an exclusive lock on its {@code journal.lock} file
+ * and fails if another process (or another journal in this one) holds it, so two servers started on the same
+ * {@code claims.journal.dir} cannot interleave their records. {@link #close()} releases it.
+ * <p>
+ * Appends only copy bytes into the mapped segment under a short lock. Durability is provided by group
+ * commit: callers that need it wait in {@link #awaitDurable(long)} while a single flusher thread
+ * forces the dirty range, so one {@code fsync} covers every append that arrived while the previous one
+ * was running.
+ */
+@Log
+public final class ClaimJournal implements Closeable {
+
+    static final byte SUBMITTED = 1;
+    static final byte TRANSITION = 2;
+
+    private static final int SEGMENT_MAGIC = 0x434c4d4a; // "CLMJ"
+    private static final int SEGMENT_HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "journal.lock";
+    /**
+     * Directories locked by this JVM. A second channel on the lock file must never be opened here: closing it
+     * would release the first channel's lock on some systems, Linux among them.
+     */
+    private static final Set<Path> LOCKED = ConcurrentHashMap.newKeySet();
+
+    /** Receives replayed events in journal order. */
+    public interface Handler {
+        void onSubmitted(long claimId, long timestamp, String policyNumber, String claimType,
+                         long amountCents, String description);
+
+        void onTransition(long claimId, long timestamp, ClaimStatus status, long settledCents, String note);
+    }
+
+    private final Path directory;
+    private final FileLock lock;
+    private final int segmentSize;
+    private final boolean fsync;
+
+    private final Object appendLock = new Object();
+    private final Object durableLock = new Object();
+    private final Thread flusher;
+
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    /** Logical end of the last fully written record; only advanced under {@code appendLock}. */
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    /** Set under {@code appendLock}, so an append either completes before {@link #close()} or is refused. */
+    private volatile boolean closed;
+
+    private ClaimJournal(Path directory, FileLock lock, int segmentSize, List<Long> segments, boolean fsync)
+            throws IOException {
+        this.directory = directory;
+        this.lock = lock;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        segmentIndex = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        segment = map(segmentIndex);
+        int end = scanEnd(segment);
+        segment.position(end);
+        writtenPosition = segmentIndex * segmentSize + end;
+        durablePosition = writtenPosition;
+        flusher = new Thread(this::flushLoop, "claims-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Opens (or creates) the journal in {@code directory}, continuing after the last valid record.
+     *
+     * @param segmentSize the size of the segments of a new journal; an existing one keeps its own
+     * @param fsync whether {@link #awaitDurable(long)} waits for the data to be forced to disk
+     * @throws IOException if the journal is in use by another process, or cannot be read
+     */
+    public static ClaimJournal open(Path directory, int segmentSize, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        FileLock lock = lock(directory);
+        try {
+            return open(directory, lock, segmentSize, fsync);
+        } catch (IOException | RuntimeException e) {
+            unlock(directory, lock);
+            throw e;
+        }
+    }
+
+    private static ClaimJournal open(Path directory, FileLock lock, int segmentSize, boolean fsync)
+            throws IOException {
+        List<Long> segments = segmentIndexes(directory);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            // a segment created just before a crash may not have its header yet
+            int stored = storedSegmentSize(segmentPath(directory, segments.get(i)));
+            if (stored > 0) {
+                if (stored != segmentSize) {
+                    log.info("Claim journal " + directory + " has " + stored +
+                            "-byte segments; keeping them instead of " + segmentSize);
+                    segmentSize = stored;
+                }
+                break;
+            }
+        }
+        return new ClaimJournal(directory, lock, segmentSize, segments, fsync);
+    }
+
+    private static FileLock lock(Path directory) throws IOException {
+        if (!LOCKED.add(directory.toAbsolutePath().normalize())) {
+            throw inUse(directory);
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw inUse(directory);
+            }
+            return lock;
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            LOCKED.remove(directory.toAbsolutePath().normalize());
+            throw e;
+        }
+    }
+
+    private static void unlock(Path directory, FileLock lock) throws IOException {
+        try {
+            lock.channel().close(); // releases the lock
+        } finally {
+            LOCKED.remove(directory.toAbsolutePath().normalize());
+        }
+    }
+
+    private static IOException inUse(Path directory) {
+        return new IOException("Claim journal " + directory + " is in use by another process; give each server " +
+                "its own claims.journal.dir");
+    }
+
+    public long appendSubmitted(long claimId, long timestamp, String policyNumber, String claimType,
+                                long amountCents, String description) {
+        byte[] policy = utf8(policyNumber);
+        byte[] type = utf8(claimType);
+        byte[] text = utf8(description);
+        int bodyLength = 1 + 8 + 8 + 8 + stringSize(policy) + stringSize(type) + stringSize(text);
+        synchronized (appendLock) {
+            MappedByteBuffer buffer = reserve(bodyLength);
+            int start = buffer.position();
+            buffer.position(start + RECORD_HEADER);
+            buffer.put(SUBMITTED).putLong(claimId).putLong(timestamp).putLong(amountCents);
+            putString(buffer, policy);
+            putString(buffer, type);
+            putString(buffer, text);
+            return seal(buffer, start, bodyLength);
+        }
+    }
+
+    public long appendTransition(long claimId, long timestamp, ClaimStatus status, long settledCents, String note) {
+        byte[] text = utf8(note);
+        int bodyLength = 1 + 8 + 8 + 1 + 8 + stringSize(text);
+        synchronized (appendLock) {
+            MappedByteBuffer buffer = reserve(bodyLength);
+            int start = buffer.position();
+            buffer.position(start + RECORD_HEADER);
+            buffer.put(TRANSITION).putLong(claimId).putLong(timestamp)
+                    .put((byte) status.ordinal()).putLong(settledCents);
+            putString(buffer, text);
+            return seal(buffer, start, bodyLength);
+        }
+    }
+
+    /** Blocks until every record up to {@code position} has been forced to disk (no-op without fsync). */
+    public void awaitDurable(long position) {
+        if (!fsync || durablePosition >= position) {
+            return;
+        }
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+            while (durablePosition < position && !closed) {
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public long position() {
+        return writtenPosition;
+    }
+
+    /** The size of this journal's segments, which its positions are counted in. */
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Replays every record at or after {@code fromPosition} in order.
+     *
+     * @return the number of events replayed
+     */
+    public long replay(long fromPosition, Handler handler) throws IOException {
+        long events = 0;
+        for (long index : segmentIndexes(directory)) {
+            if ((index + 1) * segmentSize <= fromPosition) {
+                continue;
+            }
+            MappedByteBuffer buffer = index == segmentIndex ? segment.duplicate() : map(index);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int offset = (int) Math.max(SEGMENT_HEADER, fromPosition - index * segmentSize);
+            while (true) {
+                int bodyLength = validRecordLength(buffer, offset);
+                if (bodyLength < 0) {
+                    break;
+                }
+                buffer.position(offset + RECORD_HEADER);
+                dispatch(buffer, handler);
+                offset += RECORD_HEADER + bodyLength;
+                events++;
+            }
+        }
+        return events;
+    }
+
+    /** Deletes segments that lie entirely before {@code position}, e.g. once a snapshot covers them. */
+    public void deleteSegmentsBefore(long position) throws IOException {
+        for (long index : segmentIndexes(directory)) {
+            if (index != segmentIndex && (index + 1) * segmentSize <= position) {
+                Files.deleteIfExists(segmentPath(directory, index));
+            }
+        }
+    }
+
+    /**
+     * Refuses further appends, waits for the ones in progress and for the flusher to stop, then forces
+     * everything written.
+     */
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.interrupt();
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        synchronized (appendLock) {
+            segment.force();
+            durablePosition = writtenPosition;
+        }
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+        try {
+            unlock(directory, lock);
+        } catch (IOException e) {
+            log.warning("Could not release the claim journal lock in " + directory + ": " + e);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private MappedByteBuffer reserve(int bodyLength) {
+        if (closed) {
+            throw new IllegalStateException("Claim journal is closed");
+        }
+        int recordLength = RECORD_HEADER + bodyLength;
+        // keep room for the zero length that terminates a segment
+        if (SEGMENT_HEADER + recordLength + 4 > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + recordLength + " bytes exceeds segment size");
+        }
+        if (segment.remaining() < recordLength + 4) {
+            segment.force();
+            segmentIndex++;
+            try {
+                segment = map(segmentIndex);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not roll claim journal segment", e);
+            }
+            segment.position(SEGMENT_HEADER);
+            writtenPosition = segmentIndex * segmentSize + SEGMENT_HEADER;
+        }
+        return segment;
+    }
+
+    private long seal(MappedByteBuffer buffer, int start, int bodyLength) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + RECORD_HEADER, bodyLength));
+        buffer.putInt(start + 4, (int) crc.getValue());
+        // the length goes in last so a torn record is never mistaken for a complete one
+        buffer.putInt(start, bodyLength);
+        writtenPosition = segmentIndex * segmentSize + buffer.position();
+        return writtenPosition;
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            synchronized (durableLock) {
+                while (durablePosition >= writtenPosition && !closed) {
+                    try {
+                        durableLock.wait(100);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            MappedByteBuffer current;
+            long target;
+            synchronized (appendLock) {
+                current = segment;
+                target = writtenPosition;
+            }
+            long base = (target / segmentSize) * segmentSize;
+            int from = (int) Math.max(0, durablePosition - base);
+            current.force(from, (int) (target - base) - from);
+            synchronized (durableLock) {
+                if (target > durablePosition) {
+                    durablePosition = target;
+                }
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private int validRecordLength(MappedByteBuffer buffer, int offset) {
+        if (offset + RECORD_HEADER > buffer.capacity()) {
+            return -1;
+        }
+        int bodyLength = buffer.getInt(offset);
+        if (bodyLength <= 0 || offset + RECORD_HEADER + bodyLength > buffer.capacity()) {
+            return -1;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + RECORD_HEADER, bodyLength));
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? bodyLength : -1;
+    }
+
+    private int scanEnd(MappedByteBuffer buffer) {
+        int offset = SEGMENT_HEADER;
+        int bodyLength;
+        while ((bodyLength = validRecordLength(buffer, offset)) > 0) {
+            offset += RECORD_HEADER + bodyLength;
+        }
+        if (offset + 4 <= buffer.capacity() && buffer.getInt(offset) != 0) {
+            log.warning("Discarding torn claim journal record at segment " + segmentIndex + " offset " + offset);
+            buffer.putInt(offset, 0);
+        }
+        return offset;
+    }
+
+    private static void dispatch(MappedByteBuffer buffer, Handler handler) {
+        byte type = buffer.get();
+        long claimId = buffer.getLong();
+        long timestamp = buffer.getLong();
+        if (type == SUBMITTED) {
+            long amountCents = buffer.getLong();
+            String policy = getString(buffer);
+            String claimType = getString(buffer);
+            String description = getString(buffer);
+            handler.onSubmitted(claimId, timestamp, policy, claimType, amountCents, description);
+        } else if (type == TRANSITION) {
+            ClaimStatus status = ClaimStatus.ofOrdinal(buffer.get());
+            long settledCents = buffer.getLong();
+            handler.onTransition(claimId, timestamp, status, settledCents, getString(buffer));
+        } else {
+            throw new IllegalStateException("Unknown claim journal record type " + type);
+        }
+    }
+
+    /** Maps segment {@code index}, writing the header of a new one and checking that of an existing one. */
+    private MappedByteBuffer map(long index) throws IOException {
+        Path path = segmentPath(directory, index);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) == 0) {
+                buffer.putInt(4, segmentSize).putInt(0, SEGMENT_MAGIC);
+            } else if (buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != segmentSize) {
+                throw new IOException("Not a claim journal segment of " + segmentSize + " bytes: " + path);
+            }
+            return buffer;
+        }
+    }
+
+    /** The segment size in the header of {@code path}, 0 if the header was never written. */
+    private static int storedSegmentSize(Path path) throws IOException {
+        byte[] bytes = new byte[SEGMENT_HEADER];
+        int read;
+        try (InputStream in = Files.newInputStream(path)) {
+            read = in.readNBytes(bytes, 0, bytes.length);
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (read < SEGMENT_HEADER || header.getInt(0) == 0) {
+            return 0;
+        }
+        if (header.getInt(0) != SEGMENT_MAGIC || header.getInt(4) <= SEGMENT_HEADER) {
+            throw new IOException("Not a claim journal segment: " + path);
+        }
+        return header.getInt(4);
+    }
+
+    private static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%012d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> segmentIndexes(Path directory) throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> indexes.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(MappedByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.claimsprocessing;
+
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event-sourced persistence for the claims agent: on startup the shared {@link ClaimStore} is rebuilt
+ * from the latest snapshot plus the journal written after it, then the journal is attached so that
+ * every further change is recorded. Snapshots are taken periodically and on shutdown, after which the
+ * journal segments they cover are deleted.
+ */
+@Component
+@Log
+public class ClaimPersistence {
+
+    private static final String SNAPSHOT_FILE = "claims.snapshot";
+    private static final String JOURNAL_DIR = "journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final long snapshotIntervalMinutes;
+    private final ClaimStore store = ClaimStore.shared();
+
+    private ClaimJournal journal;
+    private ScheduledExecutorService snapshotter;
+
+    public ClaimPersistence(@Value("${claims.journal.dir:data/claims}") String directory,
+                            @Value("${claims.journal.segment.bytes:67108864}") int segmentSize,
+                            @Value("${claims.journal.fsync:true}") boolean fsync,
+                            @Value("${claims.snapshot.interval.minutes:15}") long snapshotIntervalMinutes) {
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.snapshotIntervalMinutes = snapshotIntervalMinutes;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        long started = System.nanoTime();
+        ClaimSnapshot.Resume resume = ClaimSnapshot.load(store, directory.resolve(SNAPSHOT_FILE));
+        int fromSnapshot = store.size();
+        // an existing journal keeps its segment size, which may not be the one configured now
+        journal = ClaimJournal.open(directory.resolve(JOURNAL_DIR), segmentSize, fsync);
+        long events = journal.replay(resume.positionIn(journal.segmentSize()), store.replayHandler());
+        store.attachJournal(journal);
+        log.info(String.format("Recovered %d claims (%d from snapshot, %d journal events) in %d ms",
+                store.size(), fromSnapshot, events, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)));
+
+        if (snapshotIntervalMinutes > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "claims-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalMinutes,
+                    snapshotIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /** Writes a snapshot of the store and drops the journal segments it makes redundant. */
+    public synchronized void snapshot() throws IOException {
+        long started = System.nanoTime();
+        long position = journal.position();
+        long claims = ClaimSnapshot.write(store, position, journal.segmentSize(), directory.resolve(SNAPSHOT_FILE));
+        journal.deleteSegmentsBefore(position);
+        log.info(String.format("Snapshot of %d claims at journal position %d written in %d ms",
+                claims, position, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        snapshotQuietly();
+        journal.close();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warning("Claims snapshot failed: " + e);
+        }
+    }
+}
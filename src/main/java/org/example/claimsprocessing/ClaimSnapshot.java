@@ -0,0 +1,130 @@
+package org.example.claimsprocessing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Point-in-time image of a {@link ClaimStore} together with the journal position replay resumes from, and the
+ * journal segment size that position is counted in.
+ * <p>
+ * The position is taken before the store is walked, so the image is fuzzy: claims may already include
+ * changes journaled after it. {@link ClaimStore#replayHandler()} tolerates that.
+ */
+final class ClaimSnapshot {
+
+    /** Where replay resumes: {@code journalPosition} in a journal of {@code segmentSize}-byte segments. */
+    record Resume(long journalPosition, int segmentSize) {
+
+        static final Resume START = new Resume(0, 0);
+
+        /** The position in a journal of {@code journalSegmentSize}-byte segments. */
+        long positionIn(int journalSegmentSize) {
+            if (segmentSize == 0 || segmentSize == journalSegmentSize) {
+                return journalPosition;
+            }
+            return journalPosition / segmentSize * journalSegmentSize + journalPosition % segmentSize;
+        }
+    }
+
+    private static final int MAGIC = 0x434c4d53; // "CLMS"
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ClaimSnapshot() {
+    }
+
+    /** Writes the snapshot atomically; returns the number of claims written. */
+    static long write(ClaimStore store, long journalPosition, int segmentSize, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] count = new long[1];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalPosition);
+            out.writeInt(segmentSize);
+            store.forEachClaim(claim -> {
+                try {
+                    out.writeBoolean(true);
+                    out.writeLong(ClaimStore.parseClaimId(claim.claimNumber()));
+                    writeString(out, claim.policyNumber());
+                    writeString(out, claim.claimType());
+                    out.writeByte(claim.status().ordinal());
+                    out.writeLong(ClaimStore.toCents(claim.claimAmount()));
+                    out.writeLong(ClaimStore.toCents(claim.settledAmount()));
+                    writeString(out, claim.description());
+                    writeString(out, claim.note());
+                    out.writeLong(claim.submittedAt());
+                    out.writeLong(claim.updatedAt());
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeBoolean(false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    /**
+     * Loads the snapshot into an empty store.
+     *
+     * @return where to replay the journal from, {@link Resume#START} if there is no snapshot
+     */
+    static Resume load(ClaimStore store, Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Resume.START;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a claims snapshot: " + file);
+            }
+            Resume resume = new Resume(in.readLong(), in.readInt());
+            while (in.readBoolean()) {
+                long claimId = in.readLong();
+                String policyNumber = readString(in);
+                String claimType = readString(in);
+                ClaimStatus status = ClaimStatus.ofOrdinal(in.readByte());
+                long amountCents = in.readLong();
+                long settledCents = in.readLong();
+                String description = readString(in);
+                String note = readString(in);
+                long submittedAt = in.readLong();
+                long updatedAt = in.readLong();
+                store.restore(new Claim(ClaimStore.CLAIM_PREFIX + claimId, policyNumber, claimType, status,
+                        amountCents / 100.0, settledCents / 100.0, description, note, submittedAt, updatedAt));
+            }
+            return resume;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
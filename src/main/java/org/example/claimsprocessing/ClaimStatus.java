@@ -0,0 +1,46 @@
+package org.example.claimsprocessing;
+
+/**
+ * Lifecycle of a claim: submitted claims are reviewed, may wait for documentation, and are then
+ * either approved (and later paid) or denied.
+ */
+public enum ClaimStatus {
+    PENDING_REVIEW("PENDING REVIEW"),
+    PENDING_DOCUMENTATION("PENDING DOCUMENTATION"),
+    APPROVED("APPROVED"),
+    DENIED("DENIED"),
+    PAID("PAID");
+
+    private static final ClaimStatus[] VALUES = values();
+
+    private final String label;
+
+    ClaimStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isPending() {
+        return this == PENDING_REVIEW || this == PENDING_DOCUMENTATION;
+    }
+
+    public boolean canTransitionTo(ClaimStatus next) {
+        switch (next) {
+            case PENDING_DOCUMENTATION:
+            case APPROVED:
+            case DENIED:
+                return isPending();
+            case PAID:
+                return this == APPROVED;
+            default:
+                return false;
+        }
+    }
+
+    static ClaimStatus ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,433 @@
+package org.example.claimsprocessing;
+
+import org.example.common.ConcurrentLongIntMap;
+import org.example.common.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory claims repository.
+ * <p>
+ * Claims are kept column-wise in fixed size pages of primitive arrays rather than as one object
+ * graph per claim, which costs roughly 60 bytes per claim plus its description. Claim numbers
+ * ({@code CLM-<id>}) resolve to a slot through a {@link ConcurrentLongIntMap}; claims of the same
+ * policy are chained newest-first through the {@code nextForPolicy} column, starting at the policy's
+ * head slot. Status counters are maintained per policy and globally on every transition, so a policy
+ * summary never scans the store. Updates to a claim are serialised on a lock stripe for its slot.
+ * <p>
+ * When a {@link ClaimJournal} is attached every change is appended to it while the stripe is held,
+ * so the journal order per claim matches the order the changes were applied in.
+ */
+public final class ClaimStore {
+
+    public static final String CLAIM_PREFIX = "CLM-";
+
+    private static final String CAPACITY_PROPERTY = "claims.store.capacity";
+    private static final int DEFAULT_CAPACITY = 4_000_000;
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int LOCK_STRIPES = 256;
+    private static final int NO_SLOT = -1;
+    private static final int STATUS_COUNT = ClaimStatus.values().length;
+
+    private static volatile ClaimStore shared;
+
+    private final int capacity;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicReferenceArray<Page> pages;
+    private final ConcurrentLongIntMap claimIndex;
+    private final ConcurrentHashMap<String, PolicyClaims> policies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> claimTypes = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private final LongAdder[] statusCounts = new LongAdder[STATUS_COUNT];
+    private volatile ClaimJournal journal;
+
+    public ClaimStore(int capacity) {
+        this.capacity = capacity;
+        this.pages = new AtomicReferenceArray<>((capacity + PAGE_SIZE - 1) >>> PAGE_BITS);
+        this.claimIndex = new ConcurrentLongIntMap(Math.min(capacity, 1 << 20));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        for (int i = 0; i < STATUS_COUNT; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+    }
+
+    /** The store backing this JVM's claims agent, sized by the {@code claims.store.capacity} property. */
+    public static ClaimStore shared() {
+        ClaimStore store = shared;
+        if (store == null) {
+            synchronized (ClaimStore.class) {
+                if (shared == null) {
+                    shared = new ClaimStore(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+                }
+                store = shared;
+            }
+        }
+        return store;
+    }
+
+    /** Journals every subsequent change; state already in the store is expected to be covered by it. */
+    void attachJournal(ClaimJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records a new claim, pending review.
+     *
+     * @throws IllegalArgumentException if the policy number or claim type is missing, or the amount is negative
+     *                                  or not a number
+     */
+    public Claim submit(String policyNumber, String claimType, double claimAmount, String description) {
+        if (policyNumber == null || policyNumber.isBlank()) {
+            throw new IllegalArgumentException("A claim needs a policy number");
+        }
+        if (claimType == null || claimType.isBlank()) {
+            throw new IllegalArgumentException("A claim needs a claim type");
+        }
+        requireAmount("Claim amount", claimAmount);
+        long submittedAt = System.currentTimeMillis();
+        int slot = insert(IdGenerator.shared().nextId(), policyNumber, claimType, ClaimStatus.PENDING_REVIEW,
+                toCents(claimAmount), 0, description, null, submittedAt, submittedAt);
+        return read(slot);
+    }
+
+    /** Re-inserts a claim in its recorded state, as read from a snapshot. */
+    void restore(Claim claim) {
+        insert(parseClaimId(claim.claimNumber()), claim.policyNumber(), claim.claimType(), claim.status(),
+                toCents(claim.claimAmount()), toCents(claim.settledAmount()), claim.description(), claim.note(),
+                claim.submittedAt(), claim.updatedAt());
+    }
+
+    /**
+     * Takes a slot and claims the id for it in the index before anything is written, so a duplicate id leaves
+     * no trace: it hands the slot back, unless a concurrent insert took the next one already, in which case the
+     * slot stays empty. Readers see a reserved slot as no claim until it is filled.
+     */
+    private int insert(long claimId, String policyNumber, String claimType, ClaimStatus status, long amountCents,
+                       long settledCents, String description, String note, long submittedAt, long updatedAt) {
+        int slot = nextSlot.getAndIncrement();
+        if (slot >= capacity) {
+            nextSlot.decrementAndGet();
+            throw new IllegalStateException("Claim store is full (" + capacity + " claims)");
+        }
+        if (claimIndex.putIfAbsent(claimId, slot) != ConcurrentLongIntMap.NO_VALUE) {
+            nextSlot.compareAndSet(slot + 1, slot);
+            throw new IllegalStateException("Duplicate claim number " + CLAIM_PREFIX + claimId);
+        }
+        PolicyClaims policy = policies.computeIfAbsent(canonicalPolicyNumber(policyNumber), PolicyClaims::new);
+        Page page = page(slot);
+        int i = slot & PAGE_MASK;
+        long journalPosition = 0;
+        synchronized (stripe(slot)) {
+            page.claimIds[i] = claimId;
+            page.policies[i] = policy;
+            page.claimTypes[i] = claimTypes.computeIfAbsent(claimType, type -> type);
+            page.statuses[i] = (byte) status.ordinal();
+            page.amountCents[i] = amountCents;
+            page.settledCents[i] = settledCents;
+            page.descriptions[i] = description;
+            page.notes[i] = note;
+            page.submittedAt[i] = submittedAt;
+            page.updatedAt[i] = updatedAt;
+            ClaimJournal attached = journal;
+            if (attached != null) {
+                journalPosition = attached.appendSubmitted(claimId, submittedAt, policyNumber, claimType,
+                        amountCents, description);
+            }
+        }
+        int head;
+        do {
+            head = policy.head.get();
+            page.nextForPolicy[i] = head;
+        } while (!policy.head.compareAndSet(head, slot));
+        policy.record(status, effectiveCents(page, i, status), 1);
+        statusCounts[status.ordinal()].increment();
+        awaitDurable(journalPosition);
+        return slot;
+    }
+
+    /** Returns the claim with the given number, or {@code null} if this store does not hold it. */
+    public Claim find(String claimNumber) {
+        int slot = slotOf(claimNumber);
+        return slot == NO_SLOT ? null : read(slot);
+    }
+
+    /**
+     * Moves a claim to {@code next}. {@code settledAmount} is recorded for approvals and payments,
+     * {@code note} keeps the denial reason or the documents requested.
+     *
+     * @return the updated claim, or {@code null} if this store does not hold it
+     * @throws IllegalStateException if the claim's current status does not allow the transition
+     * @throws IllegalArgumentException if {@code settledAmount} is negative or not a number
+     */
+    public Claim transition(String claimNumber, ClaimStatus next, double settledAmount, String note) {
+        requireAmount("Settled amount", settledAmount);
+        int slot = slotOf(claimNumber);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        applyTransition(slot, next, toCents(settledAmount), note, System.currentTimeMillis());
+        return read(slot);
+    }
+
+    /**
+     * Applies journal events on top of a snapshot. The snapshot may already reflect some of the events
+     * after its position; because claims only move forward, those events are recognised as invalid
+     * transitions (or known claims) and skipped.
+     */
+    ClaimJournal.Handler replayHandler() {
+        return new ClaimJournal.Handler() {
+            @Override
+            public void onSubmitted(long claimId, long timestamp, String policyNumber, String claimType,
+                                    long amountCents, String description) {
+                if (claimIndex.get(claimId) == ConcurrentLongIntMap.NO_VALUE) {
+                    insert(claimId, policyNumber, claimType, ClaimStatus.PENDING_REVIEW, amountCents, 0,
+                            description, null, timestamp, timestamp);
+                }
+            }
+
+            @Override
+            public void onTransition(long claimId, long timestamp, ClaimStatus status, long settledCents, String note) {
+                int slot = claimIndex.get(claimId);
+                if (slot != ConcurrentLongIntMap.NO_VALUE
+                        && ClaimStatus.ofOrdinal(page(slot).statuses[slot & PAGE_MASK]).canTransitionTo(status)) {
+                    applyTransition(slot, status, settledCents, note, timestamp);
+                }
+            }
+        };
+    }
+
+    /** Visits every claim in slot order; used to write snapshots. */
+    void forEachClaim(Consumer<Claim> visitor) {
+        int end = Math.min(nextSlot.get(), capacity);
+        for (int slot = 0; slot < end; slot++) {
+            Claim claim = read(slot);
+            if (claim != null) {
+                visitor.accept(claim);
+            }
+        }
+    }
+
+    private void applyTransition(int slot, ClaimStatus next, long settledCents, String note, long updatedAt) {
+        Page page = page(slot);
+        int i = slot & PAGE_MASK;
+        long journalPosition = 0;
+        synchronized (stripe(slot)) {
+            if (page.policies[i] == null) {
+                throw new IllegalStateException("The claim is still being submitted"); // reserved, not filled yet
+            }
+            ClaimStatus current = ClaimStatus.ofOrdinal(page.statuses[i]);
+            if (!current.canTransitionTo(next)) {
+                throw new IllegalStateException(String.format("Claim %s%d is %s and cannot be moved to %s",
+                        CLAIM_PREFIX, page.claimIds[i], current.getLabel(), next.getLabel()));
+            }
+            long before = effectiveCents(page, i, current);
+            if (next == ClaimStatus.APPROVED || next == ClaimStatus.PAID) {
+                page.settledCents[i] = settledCents;
+            }
+            if (note != null) {
+                page.notes[i] = note;
+            }
+            page.statuses[i] = (byte) next.ordinal();
+            page.updatedAt[i] = updatedAt;
+
+            PolicyClaims policy = page.policies[i];
+            policy.record(current, -before, -1);
+            policy.record(next, effectiveCents(page, i, next), 1);
+            statusCounts[current.ordinal()].decrement();
+            statusCounts[next.ordinal()].increment();
+            ClaimJournal attached = journal;
+            if (attached != null) {
+                journalPosition = attached.appendTransition(page.claimIds[i], updatedAt, next, settledCents, note);
+            }
+        }
+        awaitDurable(journalPosition);
+    }
+
+    private void awaitDurable(long journalPosition) {
+        ClaimJournal attached = journal;
+        if (attached != null && journalPosition > 0) {
+            attached.awaitDurable(journalPosition);
+        }
+    }
+
+    /**
+     * Summary of a policy's claims, listing at most {@code recentLimit} of the newest claims; a missing or
+     * blank policy number has none.
+     */
+    public ClaimsSummary summarize(String policyNumber, int recentLimit) {
+        PolicyClaims policy = policyNumber == null || policyNumber.isBlank() ? null
+                : policies.get(canonicalPolicyNumber(policyNumber));
+        if (policy == null) {
+            return new ClaimsSummary(policyNumber, 0, 0, 0, 0, 0, 0, List.of());
+        }
+        List<Claim> recent = new ArrayList<>(Math.min(recentLimit, 16));
+        for (int slot = policy.head.get(); slot != NO_SLOT && recent.size() < recentLimit;
+             slot = page(slot).nextForPolicy[slot & PAGE_MASK]) {
+            recent.add(read(slot));
+        }
+        int approved = policy.count(ClaimStatus.APPROVED) + policy.count(ClaimStatus.PAID);
+        int pending = policy.count(ClaimStatus.PENDING_REVIEW) + policy.count(ClaimStatus.PENDING_DOCUMENTATION);
+        long approvedCents = policy.cents(ClaimStatus.APPROVED) + policy.cents(ClaimStatus.PAID);
+        long pendingCents = policy.cents(ClaimStatus.PENDING_REVIEW) + policy.cents(ClaimStatus.PENDING_DOCUMENTATION);
+        return new ClaimsSummary(policyNumber, policy.total(), approved, approvedCents / 100.0,
+                policy.count(ClaimStatus.DENIED), pending, pendingCents / 100.0, recent);
+    }
+
+    /** Number of claims currently in {@code status} across all policies. */
+    public long count(ClaimStatus status) {
+        return statusCounts[status.ordinal()].sum();
+    }
+
+    public int size() {
+        return claimIndex.size();
+    }
+
+    /** Parses {@code CLM-<digits>} (prefix case-insensitive) to the numeric claim id, or -1. */
+    public static long parseClaimId(String claimNumber) {
+        if (claimNumber == null) {
+            return -1;
+        }
+        String value = claimNumber.trim();
+        if (value.regionMatches(true, 0, CLAIM_PREFIX, 0, CLAIM_PREFIX.length())) {
+            value = value.substring(CLAIM_PREFIX.length());
+        }
+        if (value.isEmpty() || value.length() > 19 || value.charAt(0) == '+' || value.charAt(0) == '-') {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The claim number in the form the store reports it ({@code CLM-<id>}), so every spelling
+     * {@link #parseClaimId} accepts for a claim maps to one key; a number it does not accept is returned as is.
+     */
+    public static String canonicalClaimNumber(String claimNumber) {
+        long claimId = parseClaimId(claimNumber);
+        return claimId < 0 ? claimNumber : CLAIM_PREFIX + claimId;
+    }
+
+    /** The policy number in the form claims are grouped and reported under: trimmed and upper case. */
+    public static String canonicalPolicyNumber(String policyNumber) {
+        return policyNumber == null ? null : policyNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static void requireAmount(String name, double amount) {
+        if (!(amount >= 0) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException(name + " must be a non-negative number, got " + amount);
+        }
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private int slotOf(String claimNumber) {
+        long claimId = parseClaimId(claimNumber);
+        if (claimId < 0) {
+            return NO_SLOT;
+        }
+        int slot = claimIndex.get(claimId);
+        return slot == ConcurrentLongIntMap.NO_VALUE ? NO_SLOT : slot;
+    }
+
+    /** Materialises the claim in {@code slot}, or {@code null} if the slot is reserved but not filled yet. */
+    private Claim read(int slot) {
+        Page page = page(slot);
+        int i = slot & PAGE_MASK;
+        synchronized (stripe(slot)) {
+            if (page.policies[i] == null) {
+                return null;
+            }
+            ClaimStatus status = ClaimStatus.ofOrdinal(page.statuses[i]);
+            return new Claim(CLAIM_PREFIX + page.claimIds[i], page.policies[i].policyNumber,
+                    page.claimTypes[i], status, page.amountCents[i] / 100.0, page.settledCents[i] / 100.0,
+                    page.descriptions[i], page.notes[i], page.submittedAt[i], page.updatedAt[i]);
+        }
+    }
+
+    private static long effectiveCents(Page page, int i, ClaimStatus status) {
+        return status == ClaimStatus.APPROVED || status == ClaimStatus.PAID ? page.settledCents[i] : page.amountCents[i];
+    }
+
+    private Object stripe(int slot) {
+        return stripes[slot & (LOCK_STRIPES - 1)];
+    }
+
+    private Page page(int slot) {
+        int index = slot >>> PAGE_BITS;
+        Page page = pages.get(index);
+        if (page == null) {
+            Page created = new Page();
+            page = pages.compareAndExchange(index, null, created);
+            if (page == null) {
+                page = created;
+            }
+        }
+        return page;
+    }
+
+    /** One block of {@link #PAGE_SIZE} claims stored column-wise. */
+    private static final class Page {
+        final long[] claimIds = new long[PAGE_SIZE];
+        final PolicyClaims[] policies = new PolicyClaims[PAGE_SIZE];
+        final String[] claimTypes = new String[PAGE_SIZE];
+        final byte[] statuses = new byte[PAGE_SIZE];
+        final long[] amountCents = new long[PAGE_SIZE];
+        final long[] settledCents = new long[PAGE_SIZE];
+        final String[] descriptions = new String[PAGE_SIZE];
+        final String[] notes = new String[PAGE_SIZE];
+        final long[] submittedAt = new long[PAGE_SIZE];
+        final long[] updatedAt = new long[PAGE_SIZE];
+        final int[] nextForPolicy = new int[PAGE_SIZE];
+    }
+
+    /** Secondary index entry: head of the policy's claim chain and its per-status counters. */
+    private static final class PolicyClaims {
+        final String policyNumber;
+        final AtomicInteger head = new AtomicInteger(NO_SLOT);
+        final AtomicIntegerArray counts = new AtomicIntegerArray(STATUS_COUNT);
+        final AtomicLongArray cents = new AtomicLongArray(STATUS_COUNT);
+
+        PolicyClaims(String policyNumber) {
+            this.policyNumber = policyNumber;
+        }
+
+        void record(ClaimStatus status, long amountCents, int delta) {
+            counts.addAndGet(status.ordinal(), delta);
+            cents.addAndGet(status.ordinal(), amountCents);
+        }
+
+        int count(ClaimStatus status) {
+            return counts.get(status.ordinal());
+        }
+
+        long cents(ClaimStatus status) {
+            return cents.get(status.ordinal());
+        }
+
+        int total() {
+            int total = 0;
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                total += counts.get(i);
+            }
+            return total;
+        }
+    }
+}
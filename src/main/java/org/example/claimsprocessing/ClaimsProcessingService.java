@@ -2,80 +2,149 @@ package org.example.claimsprocessing;
 
 import com.t4a.annotations.Action;
 import com.t4a.annotations.Agent;
+import org.example.common.IdGenerator;
+import org.example.common.IdempotencyIndex;
+import org.example.common.ResponseCache;
+import org.example.common.ResponseTemplate;
 import org.springframework.stereotype.Service;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
 @Agent(groupName = "claimsProcessingOperations")
 @Service
 public class ClaimsProcessingService {
 
+    private static final int RECENT_CLAIMS_LIMIT = 10;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final ResponseTemplate CLAIM_SUBMITTED = ResponseTemplate.compile("Claim submitted successfully!\n" +
+            "Claim Number: %s\n" +
+            "Policy Number: %s\n" +
+            "Claim Type: %s\n" +
+            "Claim Amount: $%.2f\n" +
+            "Description: %s\n" +
+            "Status: PENDING REVIEW\n" +
+            "Submitted: %s\n" +
+            "Expected Processing Time: 5-7 business days");
+    private static final ResponseTemplate CLAIM_STATUS = ResponseTemplate.compile("Claim Status for %s:\n" +
+            "=================================\n" +
+            "Current Status: %s\n" +
+            "Claim Amount: $%,.2f\n" +
+            "Submitted Date: %s\n" +
+            "Last Updated: %s\n" +
+            "Assigned Adjuster: Sarah Johnson\n" +
+            "Notes: %s");
+    private static final ResponseTemplate PAYMENT_COMPLETED_NOTE = ResponseTemplate.compile("Payment of $%,.2f completed.");
+    private static final ResponseTemplate CLAIM_APPROVED = ResponseTemplate.compile("Claim %s has been APPROVED.\n" +
+            "Approved Amount: $%.2f\n" +
+            "Approval Date: %s\n" +
+            "Payment Method: Direct Deposit\n" +
+            "Expected Payment Date: %s\n" +
+            "Status: APPROVED - PAYMENT PENDING");
+    private static final ResponseTemplate CLAIM_DENIED = ResponseTemplate.compile("Claim %s has been DENIED.\n" +
+            "Reason: %s\n" +
+            "Denial Date: %s\n" +
+            "Status: DENIED\n" +
+            "Appeal Information: You may appeal this decision within 30 days.");
+    private static final ResponseTemplate DOCUMENTATION_REQUESTED = ResponseTemplate.compile(
+            "Additional documentation requested for Claim %s:\n" +
+            "Documents Required:\n%s\n" +
+            "Deadline: %s\n" +
+            "Submission Method: Upload to customer portal or email to claims@insurance.com\n" +
+            "Status: PENDING DOCUMENTATION");
+    private static final ResponseTemplate CLAIM_PAYOUT = ResponseTemplate.compile("Claim Payout Calculation for %s:\n" +
+            "=================================\n" +
+            "Total Claim Amount: $%.2f\n" +
+            "Policy Deductible: $%.2f\n" +
+            "Coverage Percentage: %.0f%%\n" +
+            "Eligible Amount: $%.2f\n" +
+            "Final Payout Amount: $%.2f");
+    private static final ResponseTemplate RECENT_CLAIM = ResponseTemplate.compile("\n%d. %s - %s - $%,.2f - %s");
+    private static final ResponseTemplate CLAIMS_SUMMARY = ResponseTemplate.compile("Claims Summary for Policy %s:\n\n" +
+            "Total Claims: %d\n" +
+            "Approved: %d ($%,.2f)\n" +
+            "Denied: %d\n" +
+            "Pending: %d ($%,.2f)\n\n" +
+            "Recent Claims:%s");
+    private static final ResponseTemplate PAYMENT_PROCESSED = ResponseTemplate.compile("Payment processed for Claim %s:\n" +
+            "Transaction ID: %s\n" +
+            "Payment Amount: $%.2f\n" +
+            "Payment Method: %s\n" +
+            "Processing Date: %s\n" +
+            "Status: COMPLETED");
+    private static final ResponseTemplate CLAIM_NOT_FOUND = ResponseTemplate.compile("Claim %s was not found.");
+
+    private final ClaimStore claimStore = ClaimStore.shared();
+    private final ResponseCache responses = ResponseCache.withConfiguredSize();
+    private final IdempotencyIndex<String> payments = IdempotencyIndex.withConfiguredTtl();
+
     @Action(description = "Submit a new insurance claim")
     public String submitClaim(String policyNumber, String claimType, double claimAmount, String description) {
-        String claimNumber = "CLM-" + (System.currentTimeMillis() % 100000);
-        return String.format("Claim submitted successfully!\n" +
-               "Claim Number: %s\n" +
-               "Policy Number: %s\n" +
-               "Claim Type: %s\n" +
-               "Claim Amount: $%.2f\n" +
-               "Description: %s\n" +
-               "Status: PENDING REVIEW\n" +
-               "Submitted: %s\n" +
-               "Expected Processing Time: 5-7 business days", 
-               claimNumber, policyNumber, claimType, claimAmount, description,
-               LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        Claim claim;
+        try {
+            claim = claimStore.submit(policyNumber, claimType, claimAmount, description);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        claimChanged(claim);
+        return CLAIM_SUBMITTED.render(claim.claimNumber(), policyNumber, claimType, claimAmount, description,
+                LocalDateTime.now().format(TIMESTAMP));
     }
 
     @Action(description = "Get claim status")
     public String getClaimStatus(String claimNumber) {
-        String[] statuses = {"PENDING REVIEW", "UNDER INVESTIGATION", "APPROVED", "PAID", "DENIED"};
-        int index = Math.abs(claimNumber.hashCode() % statuses.length);
-        String status = statuses[index];
-        
-        return String.format("Claim Status for %s:\n" +
-               "=================================\n" +
-               "Current Status: %s\n" +
-               "Claim Amount: $5,000.00\n" +
-               "Submitted Date: 2026-01-15\n" +
-               "Last Updated: %s\n" +
-               "Assigned Adjuster: Sarah Johnson\n" +
-               "Notes: %s", 
-               claimNumber, status, java.time.LocalDate.now(),
-               status.equals("APPROVED") ? "All documentation verified. Payment processing initiated." :
-               status.equals("DENIED") ? "Claim does not meet policy coverage criteria." :
-               "Claim is being reviewed by our team.");
+        // keyed as claimChanged invalidates, so "clm-7" and "CLM-7" cannot hold replies of different ages
+        String key = ClaimStore.canonicalClaimNumber(claimNumber);
+        return responses.get("getClaimStatus", key, () -> renderClaimStatus(key));
     }
 
     @Action(description = "Approve a claim")
     public String approveClaim(String claimNumber, double approvedAmount) {
-        return String.format("Claim %s has been APPROVED.\n" +
-               "Approved Amount: $%.2f\n" +
-               "Approval Date: %s\n" +
-               "Payment Method: Direct Deposit\n" +
-               "Expected Payment Date: %s\n" +
-               "Status: APPROVED - PAYMENT PENDING", 
-               claimNumber, approvedAmount, java.time.LocalDate.now(),
-               java.time.LocalDate.now().plusDays(3));
+        Claim claim;
+        try {
+            claim = claimStore.transition(claimNumber, ClaimStatus.APPROVED, approvedAmount, null);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (claim == null) {
+            return notFound(claimNumber);
+        }
+        claimChanged(claim);
+        return CLAIM_APPROVED.render(claim.claimNumber(), approvedAmount, java.time.LocalDate.now(),
+                java.time.LocalDate.now().plusDays(3));
     }
 
     @Action(description = "Deny a claim")
     public String denyClaim(String claimNumber, String reason) {
-        return String.format("Claim %s has been DENIED.\n" +
-               "Reason: %s\n" +
-               "Denial Date: %s\n" +
-               "Status: DENIED\n" +
-               "Appeal Information: You may appeal this decision within 30 days.", 
-               claimNumber, reason, java.time.LocalDate.now());
+        Claim claim;
+        try {
+            claim = claimStore.transition(claimNumber, ClaimStatus.DENIED, 0, reason);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (claim == null) {
+            return notFound(claimNumber);
+        }
+        claimChanged(claim);
+        return CLAIM_DENIED.render(claim.claimNumber(), reason, java.time.LocalDate.now());
     }
 
     @Action(description = "Request additional documentation for a claim")
     public String requestDocumentation(String claimNumber, String documentsNeeded) {
-        return String.format("Additional documentation requested for Claim %s:\n" +
-               "Documents Required:\n%s\n" +
-               "Deadline: %s\n" +
-               "Submission Method: Upload to customer portal or email to claims@insurance.com\n" +
-               "Status: PENDING DOCUMENTATION", 
-               claimNumber, documentsNeeded, java.time.LocalDate.now().plusDays(10));
+        Claim claim;
+        try {
+            claim = claimStore.transition(claimNumber, ClaimStatus.PENDING_DOCUMENTATION, 0, documentsNeeded);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (claim == null) {
+            return notFound(claimNumber);
+        }
+        claimChanged(claim);
+        return DOCUMENTATION_REQUESTED.render(claim.claimNumber(), documentsNeeded, java.time.LocalDate.now().plusDays(10));
     }
 
     @Action(description = "Calculate claim payout amount")
@@ -83,40 +152,98 @@ public class ClaimsProcessingService {
         double payoutAmount = (claimAmount - deductible) * (coveragePercentage / 100.0);
         payoutAmount = Math.max(0, payoutAmount);
         
-        return String.format("Claim Payout Calculation for %s:\n" +
-               "=================================\n" +
-               "Total Claim Amount: $%.2f\n" +
-               "Policy Deductible: $%.2f\n" +
-               "Coverage Percentage: %.0f%%\n" +
-               "Eligible Amount: $%.2f\n" +
-               "Final Payout Amount: $%.2f", 
-               claimNumber, claimAmount, deductible, coveragePercentage,
-               claimAmount - deductible, payoutAmount);
+        return CLAIM_PAYOUT.render(claimNumber, claimAmount, deductible, coveragePercentage,
+                claimAmount - deductible, payoutAmount);
     }
 
     @Action(description = "Get claims summary for a policy")
     public String getClaimsSummary(String policyNumber) {
-        return String.format("Claims Summary for Policy %s:\n\n", policyNumber) +
-               "Total Claims: 3\n" +
-               "Approved: 2 ($8,500)\n" +
-               "Denied: 0\n" +
-               "Pending: 1 ($5,000)\n\n" +
-               "Recent Claims:\n" +
-               "1. CLM-12345 - Medical - $3,500 - PAID\n" +
-               "2. CLM-12346 - Auto Accident - $5,000 - PAID\n" +
-               "3. CLM-12347 - Property Damage - $5,000 - PENDING REVIEW";
-    }
-
-    @Action(description = "Process claim payment")
-    public String processPayment(String claimNumber, double amount, String paymentMethod) {
-        String transactionId = "TXN-" + (System.currentTimeMillis() % 100000);
-        return String.format("Payment processed for Claim %s:\n" +
-               "Transaction ID: %s\n" +
-               "Payment Amount: $%.2f\n" +
-               "Payment Method: %s\n" +
-               "Processing Date: %s\n" +
-               "Status: COMPLETED", 
-               claimNumber, transactionId, amount, paymentMethod,
-               LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        if (policyNumber == null || policyNumber.isBlank()) {
+            return "A claims summary needs a policy number";
+        }
+        String key = ClaimStore.canonicalPolicyNumber(policyNumber);
+        return responses.get("getClaimsSummary", key, () -> renderClaimsSummary(key));
+    }
+
+    @Action(description = "Process claim payment; a retry with the same idempotency key returns the original payment")
+    public String processPayment(String claimNumber, double amount, String paymentMethod, String idempotencyKey) {
+        // a refused payment throws, so the index forgets it and a retry under the same key runs again
+        try {
+            return payments.execute(ClaimStore.canonicalClaimNumber(claimNumber), idempotencyKey,
+                    () -> pay(claimNumber, amount, paymentMethod));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    public ResponseCache.Stats responseCacheStats() {
+        return responses.stats();
+    }
+
+    public IdempotencyIndex.Stats paymentIdempotencyStats() {
+        return payments.stats();
+    }
+
+    /**
+     * Pays the claim and renders the receipt.
+     *
+     * @throws IllegalStateException if the claim cannot be paid yet
+     * @throws IllegalArgumentException if the claim does not exist or the amount is invalid, with the reply
+     */
+    private String pay(String claimNumber, double amount, String paymentMethod) {
+        Claim claim = claimStore.transition(claimNumber, ClaimStatus.PAID, amount, null);
+        if (claim == null) {
+            throw new IllegalArgumentException(notFound(claimNumber));
+        }
+        claimChanged(claim);
+        String transactionId = IdGenerator.shared().nextId("TXN-");
+        return PAYMENT_PROCESSED.render(claim.claimNumber(), transactionId, amount, paymentMethod,
+                LocalDateTime.now().format(TIMESTAMP));
+    }
+
+    /**
+     * Drops the cached status of the claim and the summary of its policy. The store reports both numbers in
+     * their canonical form, which is what the replies are cached under.
+     */
+    private void claimChanged(Claim claim) {
+        responses.invalidate(claim.claimNumber());
+        responses.invalidate(claim.policyNumber());
+    }
+
+    private String renderClaimStatus(String claimNumber) {
+        Claim claim = claimStore.find(claimNumber);
+        if (claim == null) {
+            return notFound(claimNumber);
+        }
+        ClaimStatus status = claim.status();
+        
+        return CLAIM_STATUS.render(claim.claimNumber(), status.getLabel(), claim.claimAmount(),
+                toDate(claim.submittedAt()), toDate(claim.updatedAt()),
+                status == ClaimStatus.APPROVED ? "All documentation verified. Payment processing initiated." :
+                status == ClaimStatus.PAID ? PAYMENT_COMPLETED_NOTE.render(claim.settledAmount()) :
+                status == ClaimStatus.DENIED ? "Claim does not meet policy coverage criteria. Reason: " + claim.note() :
+                status == ClaimStatus.PENDING_DOCUMENTATION ? "Awaiting documentation: " + claim.note() :
+                "Claim is being reviewed by our team.");
+    }
+
+    private String renderClaimsSummary(String policyNumber) {
+        ClaimsSummary summary = claimStore.summarize(policyNumber, RECENT_CLAIMS_LIMIT);
+        StringBuilder recent = new StringBuilder();
+        int index = 1;
+        for (Claim claim : summary.recentClaims()) {
+            RECENT_CLAIM.appendTo(recent, index++, claim.claimNumber(), claim.claimType(), claim.claimAmount(),
+                    claim.status().getLabel());
+        }
+        return CLAIMS_SUMMARY.render(policyNumber, summary.totalClaims(), summary.approvedClaims(), summary.approvedAmount(),
+                summary.deniedClaims(), summary.pendingClaims(), summary.pendingAmount(),
+                recent.length() == 0 ? "\nNone" : recent);
+    }
+
+    private static String notFound(String claimNumber) {
+        return CLAIM_NOT_FOUND.render(claimNumber);
+    }
+
+    private static LocalDate toDate(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate();
     }
 }
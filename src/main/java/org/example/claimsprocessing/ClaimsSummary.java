@@ -0,0 +1,17 @@
+package org.example.claimsprocessing;
+
+import java.util.List;
+
+/**
+ * Per-policy claim counters plus the most recent claims, newest first.
+ * Approved totals include paid claims and pending totals include claims awaiting documentation.
+ */
+public record ClaimsSummary(String policyNumber,
+                            int totalClaims,
+                            int approvedClaims,
+                            double approvedAmount,
+                            int deniedClaims,
+                            int pendingClaims,
+                            double pendingAmount,
+                            List<Claim> recentClaims) {
+}
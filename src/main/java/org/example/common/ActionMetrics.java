@@ -0,0 +1,122 @@
+package org.example.common;
+
+import com.t4a.annotations.Agent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@code @Action} invocation, tagged by the {@code groupName} of its {@code @Agent} and the
+ * action name, and counts the ones that throw.
+ * <p>
+ * Within a JSON-RPC request (see {@link RequestTimingFilter}) the time spent outside actions is recorded
+ * as well, against the action the request ended up calling: that is where tools4ai maps the plain-English
+ * arguments, usually with a model call, and where the request and reply are (de)serialized. Together the
+ * two timers split a request into routing and execution.
+ * <p>
+ * Meters are looked up once per method and kept, so recording costs a map lookup and the timer update.
+ */
+@Aspect
+public class ActionMetrics {
+
+    /** The meters of one action. */
+    record Meters(Timer execution, Timer routing, Counter errors) {
+    }
+
+    /** Actions run by the current request; only the first (outermost) one is attributed the routing time. */
+    static final class RequestActions {
+        private Meters meters;
+        private long actionNanos;
+    }
+
+    private static final ThreadLocal<RequestActions> CURRENT_REQUEST = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    public ActionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("@annotation(com.t4a.annotations.Action)")
+    public Object timeAction(ProceedingJoinPoint call) throws Throwable {
+        Method method = ((MethodSignature) call.getSignature()).getMethod();
+        Meters actionMeters = meters(method);
+        long start = System.nanoTime();
+        try {
+            return call.proceed();
+        } catch (Throwable e) {
+            actionMeters.errors().increment();
+            throw e;
+        } finally {
+            record(actionMeters, System.nanoTime() - start);
+        }
+    }
+
+    /** Records one invocation of an action whose meters were looked up with {@link #meters(Method)}. */
+    void record(Meters actionMeters, long nanos) {
+        actionMeters.execution().record(nanos, TimeUnit.NANOSECONDS);
+        RequestActions request = CURRENT_REQUEST.get();
+        if (request != null) {
+            if (request.meters == null) {
+                request.meters = actionMeters;
+            }
+            request.actionNanos += nanos;
+        }
+    }
+
+    Meters meters(Method method) {
+        return meters.computeIfAbsent(method, this::register);
+    }
+
+    /** Starts attributing actions to a request on the current thread. */
+    RequestActions beginRequest() {
+        RequestActions request = new RequestActions();
+        CURRENT_REQUEST.set(request);
+        return request;
+    }
+
+    /** Records the request's time outside actions, if it called one. */
+    void endRequest(RequestActions request, long requestNanos) {
+        CURRENT_REQUEST.remove();
+        if (request.meters != null) {
+            request.meters.routing().record(Math.max(0, requestNanos - request.actionNanos), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Meters register(Method method) {
+        Agent agent = method.getDeclaringClass().getAnnotation(Agent.class);
+        String group = agent == null ? method.getDeclaringClass().getSimpleName() : agent.groupName();
+        String action = method.getName();
+        Timer execution = Timer.builder("mesh.action")
+                .description("Time spent in @Action methods")
+                .tag("agent", group)
+                .tag("action", action)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        Timer routing = Timer.builder("mesh.request.routing")
+                .description("Time of a JSON-RPC request spent outside @Action methods: argument mapping, " +
+                        "model calls and (de)serialization")
+                .tag("agent", group)
+                .tag("action", action)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        Counter errors = Counter.builder("mesh.action.errors")
+                .description("@Action invocations that threw")
+                .tag("agent", group)
+                .tag("action", action)
+                .register(registry);
+        return new Meters(execution, routing, errors);
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admission control for the JSON-RPC requests: each agent group gets a {@link ConcurrencyLimiter}, and a
+ * request runs only once it holds a slot. A {@code tools/call} takes a slot of its action's group; any other
+ * method, such as the plain-English requests tools4ai answers by asking its model which action to run, and a
+ * call to an action of no group take a slot of the server's default group, since their action is not known
+ * before dispatch. The slot is held for the whole request, so it covers the model call tools4ai makes to
+ * pick the action or map the arguments as well as the action itself; that is the work that saturates first.
+ * <p>
+ * Actions named in {@code high} wait in the high priority lane (payments, which a user is waiting on) and
+ * those in {@code low} in the low one (feedback, which can come back later); the rest are normal. A
+ * rejected call gets 503 with a {@code Retry-After} header and a JSON-RPC error, without reaching tools4ai.
+ * <p>
+ * Only JSON posted to the JSON-RPC endpoint is read here, and replayed to tools4ai; every other request, such
+ * as a CSV upload to the batch underwriting endpoint, passes through untouched and keeps streaming, and so
+ * does a body that is not JSON, for tools4ai to refuse. The JSON is read into memory only up to
+ * {@code -Dmesh.admission.max.body.bytes} (default 1 MiB): a request declaring a longer body, or sending one,
+ * gets 413 with a JSON-RPC error before anything is parsed.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int MAX_BODY_BYTES = Math.min(Integer.getInteger("mesh.admission.max.body.bytes", 1 << 20),
+            Integer.MAX_VALUE - 1);
+
+    private final String endpointPath;
+    private final Map<String, ConcurrencyLimiter> limiters = new LinkedHashMap<>();
+    private final Map<String, ConcurrencyLimiter> actionLimiters = new LinkedHashMap<>();
+    private final ConcurrencyLimiter defaultLimiter;
+    private final Set<String> high;
+    private final Set<String> low;
+    private final MeterRegistry registry;
+
+    /**
+     * @param endpointPath the path tools4ai serves JSON-RPC on
+     * @param actionGroups the {@code @Agent} group of every action, which gets one limiter per group from
+     *                     {@link ConcurrencyLimiter#withConfiguredLimits(String)}
+     * @param defaultGroup the group of requests whose action is not known before dispatch; it may be one of
+     *                     the action groups
+     */
+    public AdmissionFilter(String endpointPath, Map<String, String> actionGroups, String defaultGroup,
+                           Set<String> high, Set<String> low, MeterRegistry registry) {
+        this.endpointPath = endpointPath;
+        this.high = Set.copyOf(high);
+        this.low = Set.copyOf(low);
+        this.registry = registry;
+        actionGroups.forEach((action, group) -> actionLimiters.put(action,
+                limiters.computeIfAbsent(group, this::register)));
+        this.defaultLimiter = limiters.computeIfAbsent(defaultGroup, this::register);
+    }
+
+    private ConcurrencyLimiter register(String group) {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.withConfiguredLimits(group);
+        Gauge.builder("mesh.admission.limit", limiter, l -> l.stats().limit()).tag("agent", group)
+                .description("Concurrent calls the agent group admits").register(registry);
+        Gauge.builder("mesh.admission.inflight", limiter, l -> l.stats().inFlight()).tag("agent", group)
+                .register(registry);
+        Gauge.builder("mesh.admission.queued", limiter, l -> l.stats().queued()).tag("agent", group)
+                .register(registry);
+        return limiter;
+    }
+
+    /** The limiter of each agent group, e.g. for status reports. */
+    public Map<String, ConcurrencyLimiter> limiters() {
+        return Map.copyOf(limiters);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!"POST".equals(request.getMethod()) || !isJsonRpc(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (request.getContentLengthLong() > MAX_BODY_BYTES) {
+            tooLarge(response);
+            return;
+        }
+        // one byte past the limit tells a body that is too long (or declared no length) from one that fits
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            tooLarge(response);
+            return;
+        }
+        HttpServletRequest replay = new BufferedRequest(request, body);
+        JsonNode root = parse(body);
+        if (root == null) {
+            chain.doFilter(replay, response);
+            return;
+        }
+        String action = calledAction(root);
+        ConcurrencyLimiter limiter = actionLimiters.getOrDefault(action, defaultLimiter);
+        ConcurrencyLimiter.Priority priority = priority(action);
+        ConcurrencyLimiter.Permit permit;
+        try {
+            permit = limiter.acquire(priority);
+        } catch (ConcurrencyLimiter.RejectedException e) {
+            registry.counter("mesh.admission.rejected", "agent", limiter.name(), "priority",
+                    priority.name().toLowerCase(Locale.ROOT)).increment();
+            reject(response, root, e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("Interrupted while waiting for admission", e);
+        }
+        boolean succeeded = false;
+        try {
+            chain.doFilter(replay, response);
+            succeeded = response.getStatus() < 500;
+        } finally {
+            permit.release(succeeded);
+        }
+    }
+
+    private boolean isJsonRpc(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String contentType = request.getContentType();
+        return (path.isEmpty() ? "/" : path).equals(endpointPath) && contentType != null &&
+                contentType.toLowerCase(Locale.ROOT).startsWith("application/json");
+    }
+
+    ConcurrencyLimiter.Priority priority(String action) {
+        if (action == null) {
+            return ConcurrencyLimiter.Priority.NORMAL;
+        }
+        if (high.contains(action)) {
+            return ConcurrencyLimiter.Priority.HIGH;
+        }
+        return low.contains(action) ? ConcurrencyLimiter.Priority.LOW : ConcurrencyLimiter.Priority.NORMAL;
+    }
+
+    /** The request as JSON, or {@code null} if it is not a JSON object. */
+    static JsonNode parse(byte[] body) {
+        try {
+            JsonNode root = JSON.readTree(body);
+            return root != null && root.isObject() ? root : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** The action a {@code tools/call} request calls, or {@code null} for any other request. */
+    static String calledAction(JsonNode root) {
+        if (!"tools/call".equals(root.path("method").asText())) {
+            return null;
+        }
+        String name = root.path("params").path("name").asText();
+        return name.isEmpty() ? null : name;
+    }
+
+    private static void reject(HttpServletResponse response, JsonNode request,
+                               ConcurrencyLimiter.RejectedException e) throws IOException {
+        long retryAfterMillis = e.retryAfterMillis();
+        ObjectNode reply = JSON.createObjectNode().put("jsonrpc", "2.0");
+        reply.set("id", request.get("id"));
+        reply.putObject("error").put("code", -32000).put("message", e.getMessage())
+                .putObject("data").put("retryAfterMillis", retryAfterMillis);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        // Retry-After is in whole seconds; the exact hint is in the error data
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+        response.setContentType("application/json");
+        response.getOutputStream().write(JSON.writeValueAsBytes(reply));
+    }
+
+    /** Refuses a body over the limit; its id is not known, since the body is not parsed. */
+    private static void tooLarge(HttpServletResponse response) throws IOException {
+        ObjectNode reply = JSON.createObjectNode().put("jsonrpc", "2.0").putNull("id");
+        reply.putObject("error").put("code", -32600)
+                .put("message", "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+        response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        response.setContentType("application/json");
+        response.getOutputStream().write(JSON.writeValueAsBytes(reply));
+    }
+
+    /** The request with its body read, replaying the body to the rest of the chain. */
+    private static final class BufferedRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        BufferedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("The body has already been read");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
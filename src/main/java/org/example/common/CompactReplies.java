@@ -0,0 +1,39 @@
+package org.example.common;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Returns the text reply of every {@code @Action} in {@link CompactReply} form when the request asks for it
+ * with the {@value CompactReply#FORMAT_HEADER} header, or when the server defaults to it with
+ * {@code -Dmesh.reply.format=compact}. Actions keep rendering their usual text, so caches and the human
+ * facing format are unaffected; only what leaves the agent changes.
+ */
+@Aspect
+public class CompactReplies {
+
+    private final boolean compactByDefault = CompactReply.compactByDefault();
+
+    @Around("@annotation(com.t4a.annotations.Action)")
+    public Object formatReply(ProceedingJoinPoint call) throws Throwable {
+        Object reply = call.proceed();
+        return reply instanceof String text && compact() ? CompactReply.compact(text) : reply;
+    }
+
+    private boolean compact() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            HttpServletRequest request = servlet.getRequest();
+            String format = request.getHeader(CompactReply.FORMAT_HEADER);
+            if (format != null) {
+                return format.equalsIgnoreCase(CompactReply.COMPACT);
+            }
+        }
+        return compactByDefault;
+    }
+}
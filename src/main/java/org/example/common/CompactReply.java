@@ -0,0 +1,247 @@
+package org.example.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Converts the agents' text replies to minimal JSON for agent-to-agent hops, and back to text for a human.
+ * <p>
+ * Every reply is built from a {@link ResponseTemplate} of {@code Label: value} lines, section headings
+ * ({@code HEALTH ASSESSMENT:}), {@code ====} banners, blank lines and the odd sentence. The compact form
+ * keeps the data and drops the layout, like a record of the reply's fields: each {@code Label: value} line
+ * becomes a camel-case field (amounts as JSON numbers), and the lines under a heading become a nested object
+ * that ends at the next blank line. Keys are kept short, because in JSON every one is quoted: a section is
+ * keyed by the first word of its heading, and its fields drop the words the heading already says, so
+ * {@code Risk Category} under {@code RISK ANALYSIS:} is {@code risk.category}. Sentences with figures or
+ * identifiers in them are joined into a
+ * {@code text} field; the others ("Payment Processed Successfully", "Receipt sent to registered email
+ * address") only restate the fields for a person and go, as do banners and blank lines. A reply that is
+ * only sentences stays a plain string.
+ */
+public final class CompactReply {
+
+    /** Header a caller sends to choose the reply format of one request: {@value #COMPACT} or {@value #TEXT}. */
+    public static final String FORMAT_HEADER = "X-Mesh-Reply-Format";
+    /** System property with the default format, used when a request does not say. */
+    public static final String FORMAT_PROPERTY = "mesh.reply.format";
+    public static final String COMPACT = "compact";
+    public static final String TEXT = "text";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String FREE_TEXT = "text";
+    private static final Pattern NOT_A_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /** A plain or dollar amount, with optional thousands separators: {@code 42}, {@code $500,000.00}. */
+    private static final Pattern AMOUNT =
+            Pattern.compile("\\$?-?(?:0|[1-9]\\d{0,2}(?:,\\d{3})*|[1-9]\\d{3,14})(?:\\.\\d+)?");
+
+    private CompactReply() {
+    }
+
+    /** Whether replies are compact unless a request asks otherwise. */
+    public static boolean compactByDefault() {
+        return COMPACT.equalsIgnoreCase(System.getProperty(FORMAT_PROPERTY, TEXT));
+    }
+
+    public static String compact(String text) {
+        ObjectNode reply = JSON.createObjectNode();
+        ObjectNode section = null;
+        Map<ObjectNode, String> headings = new IdentityHashMap<>();
+        StringBuilder sentences = new StringBuilder();
+        StringBuilder dataSentences = new StringBuilder();
+        for (String rawLine : text.split("\n")) {
+            String line = rawLine.strip();
+            if (line.isEmpty()) {
+                section = null;
+                continue;
+            }
+            if (isBanner(line)) {
+                continue;
+            }
+            int colon = line.indexOf(": ");
+            if (colon < 0 && line.endsWith(":") && line.length() > 1) {
+                String heading = line.substring(0, line.length() - 1);
+                section = reply.putObject(uniqueKey(reply, key(heading)));
+                headings.put(section, heading);
+            } else if (colon > 0) {
+                ObjectNode target = section != null ? section : reply;
+                String key = uniqueKey(target, key(line.substring(0, colon)));
+                String value = line.substring(colon + 2).strip();
+                if (AMOUNT.matcher(value).matches()) {
+                    BigDecimal amount = new BigDecimal(value.replace("$", "").replace(",", "")).stripTrailingZeros();
+                    if (amount.scale() <= 0) {
+                        target.put(key, amount.longValueExact());
+                    } else {
+                        target.put(key, amount);
+                    }
+                } else {
+                    target.put(key, value);
+                }
+            } else {
+                appendSentence(sentences, line);
+                if (line.chars().anyMatch(Character::isDigit)) {
+                    appendSentence(dataSentences, line);
+                }
+            }
+        }
+        if (reply.isEmpty()) {
+            return toJson(JSON.getNodeFactory().textNode(sentences.toString()));
+        }
+        if (reply.size() == 1 && reply.elements().next().isObject() && dataSentences.length() == 0) {
+            // a titled reply ("Premium Calculation:") is only its fields, so they keep their full names
+            return toJson(reply.elements().next());
+        }
+        ObjectNode shortened = shortenSections(reply, headings);
+        if (dataSentences.length() > 0) {
+            shortened.put(uniqueKey(shortened, FREE_TEXT), dataSentences.toString());
+        }
+        return toJson(shortened);
+    }
+
+    /** The reply with each section keyed by its heading's first word and without the heading's words in its fields. */
+    private static ObjectNode shortenSections(ObjectNode reply, Map<ObjectNode, String> headings) {
+        ObjectNode shortened = JSON.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = reply.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String heading = headings.get(field.getValue());
+            if (heading == null) {
+                shortened.set(field.getKey(), field.getValue());
+                continue;
+            }
+            List<String> headingWords = words(heading);
+            ObjectNode section = shortened.putObject(uniqueKey(shortened, key(headingWords.subList(0, Math.min(1, headingWords.size())))));
+            field.getValue().fields().forEachRemaining(sectionField -> {
+                List<String> words = words(label(sectionField.getKey()));
+                List<String> kept = new ArrayList<>(words);
+                kept.removeIf(headingWords::contains);
+                section.set(uniqueKey(section, key(kept.isEmpty() ? words : kept)), sectionField.getValue());
+            });
+        }
+        return shortened;
+    }
+
+    /**
+     * The compact reply laid out as {@code Label: value} lines again, for showing to a person; text that is
+     * not a compact reply is returned as it is.
+     */
+    public static String expand(String reply) {
+        String trimmed = reply.strip();
+        if (!trimmed.startsWith("{") && !trimmed.startsWith("\"")) {
+            return reply;
+        }
+        JsonNode node;
+        try {
+            node = JSON.readTree(trimmed);
+        } catch (JsonProcessingException e) {
+            return reply;
+        }
+        if (node.isTextual()) {
+            return node.asText();
+        }
+        StringBuilder text = new StringBuilder();
+        appendFields(text, node);
+        return text.toString().strip();
+    }
+
+    private static void appendFields(StringBuilder text, JsonNode node) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isObject()) {
+                text.append('\n').append(label(field.getKey()).toUpperCase(Locale.ROOT)).append(":\n");
+                appendFields(text, field.getValue());
+            } else if (field.getKey().equals(FREE_TEXT)) {
+                text.append(field.getValue().asText()).append('\n');
+            } else {
+                text.append(label(field.getKey())).append(": ").append(field.getValue().asText()).append('\n');
+            }
+        }
+    }
+
+    private static void appendSentence(StringBuilder sentences, String line) {
+        if (sentences.length() > 0) {
+            sentences.append(' ');
+        }
+        sentences.append(line);
+    }
+
+    /** A label as a camel-case key: {@code Claim Amount} becomes {@code claimAmount}. */
+    private static String key(String label) {
+        return key(words(label));
+    }
+
+    private static String key(List<String> words) {
+        StringBuilder key = new StringBuilder();
+        for (String word : words) {
+            key.append(key.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return key.length() == 0 ? "value" : key.toString();
+    }
+
+    /** The lower-case words of a label: {@code Claim Amount} has {@code claim} and {@code amount}. */
+    private static List<String> words(String label) {
+        List<String> words = new ArrayList<>();
+        for (String word : NOT_A_WORD.split(label)) {
+            if (!word.isEmpty()) {
+                words.add(word.toLowerCase(Locale.ROOT));
+            }
+        }
+        return words;
+    }
+
+    /** A camel-case key as words again: {@code claimAmount} becomes {@code Claim Amount}. */
+    private static String label(String key) {
+        StringBuilder label = new StringBuilder(key.length() + 4);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (i == 0) {
+                label.append(Character.toUpperCase(c));
+            } else {
+                if (Character.isUpperCase(c) || Character.isDigit(c) && !Character.isDigit(key.charAt(i - 1))) {
+                    label.append(' ');
+                }
+                label.append(c);
+            }
+        }
+        return label.toString();
+    }
+
+    private static boolean isBanner(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != '=' && line.charAt(i) != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String uniqueKey(ObjectNode target, String key) {
+        if (!target.has(key)) {
+            return key;
+        }
+        int suffix = 2;
+        while (target.has(key + suffix)) {
+            suffix++;
+        }
+        return key + suffix;
+    }
+
+    private static String toJson(JsonNode node) {
+        try {
+            return JSON.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
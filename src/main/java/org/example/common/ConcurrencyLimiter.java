@@ -0,0 +1,280 @@
+package org.example.common;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An adaptive limit on the requests one agent group works on at once, with a bounded, prioritised wait
+ * queue in front of it.
+ * <p>
+ * The limit follows AIMD on latency: the lowest latency seen recently stands for the agent without load, and
+ * a request that takes more than {@code tolerance} times that cuts the limit by 10%, while requests that
+ * finish in time with the limit in use raise it by about one per limit's worth of completions. So the limit
+ * settles where adding work starts to add latency instead of throughput, wherever that is for this agent and
+ * its model, and follows it when it moves. A failed request counts as a slow one.
+ * <p>
+ * A request over the limit waits in its {@link Priority} lane, and free slots go to the highest lane first,
+ * in arrival order within a lane. When the queue is full, a request evicts the newest waiter of a lower
+ * lane, or is rejected if there is none; a waiter that is not admitted within the queue timeout is rejected
+ * too. Rejection is immediate and carries a retry-after hint, so a caller can go elsewhere or back off
+ * rather than hold a thread.
+ */
+public final class ConcurrencyLimiter {
+
+    public enum Priority { HIGH, NORMAL, LOW }
+
+    /** Thrown instead of admitting a request. */
+    public static final class RejectedException extends RuntimeException {
+        private final long retryAfterMillis;
+
+        RejectedException(String message, long retryAfterMillis) {
+            super(message, null, false, false);
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long retryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+
+    /** A limit snapshot, e.g. for gauges and logs. */
+    public record Stats(int limit, int inFlight, int queued, long admitted, long rejected) {
+    }
+
+    /** A slot held by an admitted request, given back with {@link #release}. */
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private boolean released;
+
+        /** Gives the slot back and feeds the request's latency to the limit; repeated calls do nothing. */
+        public void release(boolean succeeded) {
+            if (!released) {
+                released = true;
+                completed(System.nanoTime() - start, succeeded);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        final Priority priority;
+        Permit permit;
+        boolean evicted;
+
+        Waiter(Priority priority) {
+            this.priority = priority;
+        }
+    }
+
+    /** Completions after which the no-load latency is re-learned, so an old minimum does not stick. */
+    private static final int BASELINE_WINDOW = 1_000;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final int queueCapacity;
+    private final long queueTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition admitted = lock.newCondition();
+    private final Map<Priority, Deque<Waiter>> lanes = new EnumMap<>(Priority.class);
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double tolerance,
+                              int queueCapacity, long queueTimeout, TimeUnit unit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min <= initial <= max limit: " + minLimit + ", " +
+                    initialLimit + ", " + maxLimit);
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.queueCapacity = queueCapacity;
+        this.queueTimeoutNanos = unit.toNanos(queueTimeout);
+        for (Priority priority : Priority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * A limiter configured with {@code mesh.limit.initial} (default 20), {@code mesh.limit.min} (1),
+     * {@code mesh.limit.max} (200), {@code mesh.limit.tolerance} (2.0), {@code mesh.limit.queue} (50) and
+     * {@code mesh.limit.queue.timeout.ms} (1000).
+     */
+    public static ConcurrencyLimiter withConfiguredLimits(String name) {
+        return new ConcurrencyLimiter(name, Integer.getInteger("mesh.limit.initial", 20),
+                Integer.getInteger("mesh.limit.min", 1), Integer.getInteger("mesh.limit.max", 200),
+                Double.parseDouble(System.getProperty("mesh.limit.tolerance", "2.0")),
+                Integer.getInteger("mesh.limit.queue", 50), Long.getLong("mesh.limit.queue.timeout.ms", 1000),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Admits a request at once if the limit allows and no one of the same or a higher priority is waiting,
+     * otherwise queues it until a slot frees up.
+     *
+     * @throws RejectedException if the queue is full of requests at least as important, or the wait times out
+     */
+    public Permit acquire(Priority priority) throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit && !waitingAtOrAbove(priority)) {
+                return admit();
+            }
+            if (queued >= queueCapacity && !evictBelow(priority)) {
+                throw reject("queue full");
+            }
+            Waiter waiter = new Waiter(priority);
+            lanes.get(priority).addLast(waiter);
+            queued++;
+            long remaining = queueTimeoutNanos;
+            try {
+                while (waiter.permit == null && !waiter.evicted && remaining > 0) {
+                    remaining = admitted.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                abandon(waiter);
+                throw e;
+            }
+            if (waiter.permit != null) {
+                return waiter.permit;
+            }
+            if (!waiter.evicted) {
+                lanes.get(priority).remove(waiter);
+                queued--;
+            }
+            throw reject(waiter.evicted ? "evicted by a higher priority request" : "queue timeout");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats((int) limit, inFlight, queued, admittedCount.get(), rejectedCount.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit admit() {
+        inFlight++;
+        admittedCount.incrementAndGet();
+        return new Permit();
+    }
+
+    /**
+     * Takes an interrupted waiter out of the queue or, if it was granted a slot in the meantime, hands the slot
+     * on without a latency sample, since nothing ran in it.
+     */
+    private void abandon(Waiter waiter) {
+        if (waiter.permit != null) {
+            waiter.permit.released = true;
+            inFlight--;
+            grant();
+        } else if (!waiter.evicted) {
+            lanes.get(waiter.priority).remove(waiter);
+            queued--;
+        }
+    }
+
+    private boolean waitingAtOrAbove(Priority priority) {
+        for (Priority lane : Priority.values()) {
+            if (!lanes.get(lane).isEmpty()) {
+                return true;
+            }
+            if (lane == priority) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /** Evicts the newest waiter of the lowest lane below {@code priority}, if there is one. */
+    private boolean evictBelow(Priority priority) {
+        Priority[] priorities = Priority.values();
+        for (int i = priorities.length - 1; i > priority.ordinal(); i--) {
+            Waiter victim = lanes.get(priorities[i]).pollLast();
+            if (victim != null) {
+                victim.evicted = true;
+                queued--;
+                admitted.signalAll();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RejectedException reject(String reason) {
+        rejectedCount.incrementAndGet();
+        long retryAfterMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(
+                baselineNanos == Long.MAX_VALUE ? queueTimeoutNanos : baselineNanos));
+        return new RejectedException(name + " is at its concurrency limit of " + (int) limit + " (" + reason + ")",
+                retryAfterMillis);
+    }
+
+    private void completed(long nanos, boolean succeeded) {
+        lock.lock();
+        try {
+            inFlight--;
+            adjustLimit(nanos, succeeded);
+            grant();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjustLimit(long nanos, boolean succeeded) {
+        if (succeeded) {
+            windowMinNanos = Math.min(windowMinNanos, nanos);
+            baselineNanos = Math.min(baselineNanos, nanos);
+            if (++windowSamples >= BASELINE_WINDOW) {
+                baselineNanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+        }
+        if (!succeeded || nanos > baselineNanos * tolerance) {
+            limit = Math.max(minLimit, limit * 0.9);
+        } else if (inFlight + 1 >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /** Hands free slots to the waiters, highest lane first. */
+    private void grant() {
+        boolean granted = false;
+        for (Priority priority : Priority.values()) {
+            Deque<Waiter> lane = lanes.get(priority);
+            while (inFlight < (int) limit && !lane.isEmpty()) {
+                Waiter waiter = lane.pollFirst();
+                queued--;
+                waiter.permit = admit();
+                granted = true;
+            }
+        }
+        if (granted) {
+            admitted.signalAll();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.common;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent {@code long -> int} hash map without boxing, used as a primary index from numeric
+ * business ids to record slots.
+ * <p>
+ * The key space is split over independently locked segments, each an open-addressing table of two
+ * flat arrays (about 24 bytes per entry at the maximum load factor). Readers use an optimistic
+ * {@link StampedLock} read and only fall back to the read lock when a writer raced with them.
+ */
+public final class ConcurrentLongIntMap {
+
+    public static final int NO_VALUE = -1;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    public ConcurrentLongIntMap(int expectedSize) {
+        this(expectedSize, 64);
+    }
+
+    public ConcurrentLongIntMap(int expectedSize, int concurrencyLevel) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1) << 1);
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        int perSegment = (int) Math.min(1 << 30, (long) (expectedSize / segmentCount / LOAD_FACTOR) + 1);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /** Returns the value mapped to {@code key}, or {@link #NO_VALUE}. */
+    public int get(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Maps {@code key} to a non-negative {@code value} unless a mapping exists already.
+     *
+     * @return the existing value, or {@link #NO_VALUE} if the new mapping was installed
+     */
+    public int putIfAbsent(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative: " + value);
+        }
+        long hash = mix(key);
+        return segmentFor(hash).putIfAbsent(key, hash, value);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segmentShift == 64 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /** Keys and values are swapped together on resize so an optimistic reader never mixes tables. */
+    private static final class Table {
+        final long[] keys;
+        /** value + 1, so that 0 marks an empty slot without a separate fill pass. */
+        final int[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private Table table;
+        private int size;
+
+        Segment(int capacity) {
+            table = new Table(Math.max(16, Integer.highestOneBit(Math.max(1, capacity - 1) << 1)));
+        }
+
+        int get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            int value = find(table, key, hash);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    value = find(table, key, hash);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        int putIfAbsent(long key, long hash, int value) {
+            long stamp = lock.writeLock();
+            try {
+                int existing = find(table, key, hash);
+                if (existing != NO_VALUE) {
+                    return existing;
+                }
+                if (size + 1 > table.keys.length * LOAD_FACTOR) {
+                    table = resize(table);
+                }
+                insert(table, key, hash, value);
+                size++;
+                return NO_VALUE;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static int find(Table table, long key, long hash) {
+            long[] keys = table.keys;
+            int[] values = table.values;
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                int stored = values[i];
+                if (stored == 0) {
+                    return NO_VALUE;
+                }
+                if (keys[i] == key) {
+                    return stored - 1;
+                }
+            }
+            return NO_VALUE;
+        }
+
+        private static void insert(Table table, long key, long hash, int value) {
+            int mask = table.keys.length - 1;
+            int i = (int) hash & mask;
+            while (table.values[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table.keys[i] = key;
+            table.values[i] = value + 1;
+        }
+
+        private static Table resize(Table old) {
+            Table grown = new Table(old.keys.length << 1);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.values[i] != 0) {
+                    insert(grown, old.keys[i], mix(old.keys[i]), old.values[i] - 1);
+                }
+            }
+            return grown;
+        }
+    }
+}
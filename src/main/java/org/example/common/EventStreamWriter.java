@@ -0,0 +1,39 @@
+package org.example.common;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes Server-Sent Events ({@code text/event-stream}) and flushes after every event, so a client sees
+ * each partial result as soon as it is produced.
+ * <p>
+ * Writes block while the connection's send buffer is full, which holds the producer back to the pace the
+ * client reads at instead of queueing events in memory.
+ */
+public final class EventStreamWriter {
+
+    public static final String CONTENT_TYPE = "text/event-stream";
+
+    private final Writer out;
+
+    public EventStreamWriter(Writer out) {
+        this.out = out;
+    }
+
+    /** Writes one event; every line of {@code data} becomes a {@code data:} field. */
+    public void event(String name, String data) throws IOException {
+        StringBuilder event = new StringBuilder(data.length() + name.length() + 32);
+        event.append("event: ").append(name).append('\n');
+        int start = 0;
+        while (true) {
+            int end = data.indexOf('\n', start);
+            event.append("data: ").append(data, start, end < 0 ? data.length() : end).append('\n');
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        out.write(event.append('\n').toString());
+        out.flush();
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, Snowflake-style generator for the business identifiers minted by the agents
+ * (CLM-, TXN-, POL-, PAY-, TKT-, DOC-, APT-, FDB-).
+ * <p>
+ * Each id packs {@code 41 bits} of milliseconds since {@link #EPOCH}, a {@code 10 bit} node id and a
+ * {@code 12 bit} per-millisecond sequence. The timestamp and sequence live together in a single
+ * {@link AtomicLong}, so issuing an id is one CAS: when the sequence of the current millisecond is
+ * exhausted (or the wall clock steps backwards) the generator borrows the next millisecond instead of
+ * blocking, which keeps ids strictly increasing within a JVM. Distinct node ids keep the four server
+ * processes (and any replicas) from ever colliding.
+ */
+public final class IdGenerator {
+
+    /** 2026-01-01T00:00:00Z, gives the 41 bit timestamp roughly 69 years of range. */
+    public static final long EPOCH = 1767225600000L;
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final String NODE_ID_PROPERTY = "mesh.node.id";
+    private static final String NODE_ID_ENV = "MESH_NODE_ID";
+
+    private static volatile IdGenerator shared;
+
+    private final int nodeId;
+    /** (epoch millis << SEQUENCE_BITS) | sequence of the last id handed out. */
+    private final AtomicLong state = new AtomicLong();
+
+    public IdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Installs the JVM wide generator. Called once from each server's {@code main}; the
+     * {@code mesh.node.id} system property or {@code MESH_NODE_ID} environment variable overrides the
+     * server default so that replicas of the same agent can be given their own node id.
+     */
+    public static synchronized IdGenerator configureShared(int defaultNodeId) {
+        shared = new IdGenerator(resolveNodeId(defaultNodeId));
+        return shared;
+    }
+
+    /** The JVM wide generator, created from the node id override (or node 0) if not configured. */
+    public static IdGenerator shared() {
+        IdGenerator generator = shared;
+        if (generator == null) {
+            synchronized (IdGenerator.class) {
+                if (shared == null) {
+                    shared = new IdGenerator(resolveNodeId(0));
+                }
+                generator = shared;
+            }
+        }
+        return generator;
+    }
+
+    static int resolveNodeId(int defaultNodeId) {
+        String configured = System.getProperty(NODE_ID_PROPERTY);
+        if (configured == null || configured.isBlank()) {
+            configured = System.getenv(NODE_ID_ENV);
+        }
+        return configured == null || configured.isBlank() ? defaultNodeId : Integer.parseInt(configured.trim());
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public long nextId() {
+        long nowSlot = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            next = Math.max(prev + 1, nowSlot);
+        } while (!state.compareAndSet(prev, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | ((long) nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /** Returns {@code prefix + nextId()}, e.g. {@code CLM-2178764190130176}. */
+    public String nextId(String prefix) {
+        return prefix + nextId();
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.common;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs an operation at most once per idempotency key within a time-to-live, so that a retried request
+ * (an LLM repeating a tool call, the mesh re-routing a query) gets the original result instead of being
+ * executed again.
+ * <p>
+ * Keys hash to one of a fixed number of stripes, each a small insertion-ordered map behind its own lock, so
+ * unrelated keys rarely contend. The lock is only held to look up or claim a key, never while the operation
+ * runs: the first caller for a key registers a pending result and runs the operation, and concurrent
+ * duplicates block on that result rather than running it too. A result is kept for the TTL after it was
+ * claimed; since every entry of a stripe has the same TTL, the stripe's oldest entries expire first and
+ * are dropped from its head whenever the stripe is touched. An operation that throws is not remembered:
+ * the waiting duplicates see the same exception, and the next retry runs it afresh.
+ *
+ * @param <V> the result type
+ */
+public final class IdempotencyIndex<V> {
+
+    /** Counters since the index was created. */
+    public record Stats(long executions, long replays, long waits, long expirations, int size) {
+
+        @Override
+        public String toString() {
+            return String.format("Idempotency index: %d executed, %d replayed (%d after waiting), %d expired, " +
+                    "%d keys", executions, replays, waits, expirations, size);
+        }
+    }
+
+    private record Entry<V>(CompletableFuture<V> result, long expiresAt) {
+    }
+
+    private static final class Stripe<V> {
+        final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+    }
+
+    private final Stripe<V>[] stripes;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public IdempotencyIndex(int stripes, Duration ttl) {
+        this(stripes, ttl, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    IdempotencyIndex(int stripes, Duration ttl, LongSupplier clock) {
+        int count = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Index with a TTL from the {@code idempotency.ttl.minutes} system property (default 60) and a stripe
+     * per 16 keys of expected concurrency, 256 in all.
+     */
+    public static <V> IdempotencyIndex<V> withConfiguredTtl() {
+        return new IdempotencyIndex<>(256, Duration.ofMinutes(Long.getLong("idempotency.ttl.minutes", 60)));
+    }
+
+    /**
+     * The result of {@code operation} for {@code key}: computed now if the key is new or expired, otherwise
+     * the result of the earlier call, waiting for it if it is still running.
+     */
+    public V execute(String key, Supplier<V> operation) {
+        Stripe<V> stripe = stripes[stripe(key)];
+        long now = clock.getAsLong();
+        CompletableFuture<V> claimed = new CompletableFuture<>();
+        Entry<V> existing;
+        synchronized (stripe) {
+            expire(stripe, now);
+            existing = stripe.entries.get(key);
+            if (existing == null) {
+                stripe.entries.put(key, new Entry<>(claimed, now + ttlNanos));
+            }
+        }
+        if (existing != null) {
+            return replay(existing.result());
+        }
+
+        executions.increment();
+        try {
+            V result = operation.get();
+            claimed.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            synchronized (stripe) {
+                Entry<V> entry = stripe.entries.get(key);
+                if (entry != null && entry.result() == claimed) {
+                    stripe.entries.remove(key);
+                }
+            }
+            claimed.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * As {@link #execute(String, Supplier)} with the key qualified by {@code scope} (a claim, a customer), so a
+     * key reused for another entity does not replay that entity's result. A blank key runs the operation
+     * without deduplication, for callers that do not send one.
+     */
+    public V execute(String scope, String key, Supplier<V> operation) {
+        if (key == null || key.isBlank()) {
+            return operation.get();
+        }
+        return execute(scope + '\u0000' + key.strip(), operation);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public Stats stats() {
+        return new Stats(executions.sum(), replays.sum(), waits.sum(), expirations.sum(), size());
+    }
+
+    private V replay(CompletableFuture<V> result) {
+        replays.increment();
+        if (!result.isDone()) {
+            waits.increment();
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    // the original call is going to finish either way; its result is what the caller needs
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    if (cause instanceof Error error) {
+                        throw error;
+                    }
+                    throw new CompletionException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Drops the expired entries at the head of the stripe; the caller holds its lock. */
+    private void expire(Stripe<V> stripe, long now) {
+        Iterator<Map.Entry<String, Entry<V>>> oldest = stripe.entries.entrySet().iterator();
+        while (oldest.hasNext()) {
+            Entry<V> entry = oldest.next().getValue();
+            if (entry.expiresAt() - now > 0) {
+                return;
+            }
+            oldest.remove();
+            expirations.increment();
+        }
+    }
+
+    private int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.common;
+
+import com.t4a.annotations.Action;
+import com.t4a.annotations.Agent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admission control for an agent server, imported by every {@code *Server}: one {@link ConcurrencyLimiter}
+ * per {@code @Agent} group in front of its actions. Requests whose action is not known before dispatch are
+ * limited as the server's only group or, when it hosts several, as a group named after the server
+ * ({@code spring.application.name}). {@code mesh.limit.priority.high} and
+ * {@code mesh.limit.priority.low} list the actions of the high and low priority lanes, and
+ * {@code mesh.jsonrpc.path} (default {@code /}) is where tools4ai serves JSON-RPC.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MeshAdmissionConfiguration {
+
+    @Bean
+    public AdmissionFilter admissionFilter(ListableBeanFactory beans, MeterRegistry registry,
+                                           @Value("${spring.application.name}") String server,
+                                           @Value("${mesh.jsonrpc.path:/}") String endpointPath,
+                                           @Value("${mesh.limit.priority.high:processPayment}") Set<String> high,
+                                           @Value("${mesh.limit.priority.low:submitFeedback}") Set<String> low) {
+        Map<String, String> groups = actionGroups(beans);
+        return new AdmissionFilter(endpointPath, groups, defaultGroup(groups, server), high, low, registry);
+    }
+
+    static String defaultGroup(Map<String, String> actionGroups, String server) {
+        Set<String> groups = new HashSet<>(actionGroups.values());
+        return groups.size() == 1 ? groups.iterator().next() : server;
+    }
+
+    /** The group of every action, from the bean types, so no agent is created for it. */
+    static Map<String, String> actionGroups(ListableBeanFactory beans) {
+        Map<String, String> groups = new LinkedHashMap<>();
+        for (String name : beans.getBeanNamesForAnnotation(Agent.class)) {
+            Class<?> type = ClassUtils.getUserClass(beans.getType(name));
+            String group = type.getAnnotation(Agent.class).groupName();
+            for (Method method : type.getMethods()) {
+                if (method.isAnnotationPresent(Action.class)) {
+                    // an action served by two groups (processPayment when consolidated) is limited by the first
+                    groups.putIfAbsent(method.getName(), group);
+                }
+            }
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Action and request metrics for an agent server, imported by every {@code *Server}. The meters are
+ * scraped from {@code /actuator/prometheus}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MeshMetricsConfiguration {
+
+    @Bean
+    public ActionMetrics actionMetrics(MeterRegistry registry) {
+        return new ActionMetrics(registry);
+    }
+
+    @Bean
+    public RequestTimingFilter requestTimingFilter(ActionMetrics actionMetrics) {
+        return new RequestTimingFilter(actionMetrics);
+    }
+}
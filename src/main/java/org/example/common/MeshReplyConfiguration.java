@@ -0,0 +1,17 @@
+package org.example.common;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reply formatting for an agent server, imported by every {@code *Server}: text for people, or
+ * {@link CompactReply} JSON for agents that feed the reply into another model prompt.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MeshReplyConfiguration {
+
+    @Bean
+    public CompactReplies compactReplies() {
+        return new CompactReplies();
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.common;
+
+import com.t4a.annotations.Agent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+
+/**
+ * Startup for an agent server, imported by every {@code *Server}: keeps the beans that must not wait for a
+ * request out of the lazy initialization the {@code fast-start} profile turns on. Those are the {@code @Agent}
+ * services, so the first action call doesn't pay for building one, and beans with a {@code @PostConstruct}
+ * method, which do their work at startup (claim recovery attaches the journal there, and nothing else asks
+ * for it). Everything else is created on first use. Without lazy initialization this changes nothing.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MeshStartupConfiguration {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerMeshBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType.isAnnotationPresent(Agent.class) ||
+                hasPostConstruct(beanType);
+    }
+
+    private static boolean hasPostConstruct(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class;
+             current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PostConstruct.class)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
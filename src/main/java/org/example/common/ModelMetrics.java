@@ -0,0 +1,82 @@
+package org.example.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and token counts of the chat completions the mesh requests itself, tagged by model and by what
+ * the call was for. Recorded to Micrometer's global registry, which Spring Boot backs with the Prometheus
+ * registry in a server and which costs next to nothing in a plain client JVM.
+ */
+public final class ModelMetrics {
+
+    private static volatile ModelMetrics shared;
+
+    private record Meters(Timer latency, Counter promptTokens, Counter completionTokens) {
+    }
+
+    private record Key(String model, String purpose) {
+    }
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Key, Meters> meters = new ConcurrentHashMap<>();
+
+    public ModelMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static ModelMetrics shared() {
+        ModelMetrics metrics = shared;
+        if (metrics == null) {
+            synchronized (ModelMetrics.class) {
+                metrics = shared;
+                if (metrics == null) {
+                    metrics = new ModelMetrics(Metrics.globalRegistry);
+                    shared = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Records one completion.
+     *
+     * @param purpose          what the completion was for, e.g. {@code routing}
+     * @param promptTokens     as reported in the reply's {@code usage}, 0 if it had none
+     * @param completionTokens as reported in the reply's {@code usage}, 0 if it had none
+     */
+    public void record(String model, String purpose, long nanos, long promptTokens, long completionTokens) {
+        Meters modelMeters = meters.computeIfAbsent(new Key(model, purpose), this::register);
+        modelMeters.latency().record(nanos, TimeUnit.NANOSECONDS);
+        modelMeters.promptTokens().increment(promptTokens);
+        modelMeters.completionTokens().increment(completionTokens);
+    }
+
+    private Meters register(Key key) {
+        Timer latency = Timer.builder("mesh.model.call")
+                .description("Chat completion round trips")
+                .tag("model", key.model())
+                .tag("purpose", key.purpose())
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        return new Meters(latency, tokens(key, "prompt"), tokens(key, "completion"));
+    }
+
+    private Counter tokens(Key key, String type) {
+        return Counter.builder("mesh.model.tokens")
+                .description("Tokens reported by chat completions")
+                .baseUnit("tokens")
+                .tag("model", key.model())
+                .tag("purpose", key.purpose())
+                .tag("type", type)
+                .register(registry);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.common;
+
+import java.util.Locale;
+
+/**
+ * Policy types known to the rating engine; anything else is rated as {@link #OTHER}.
+ */
+public enum PolicyType {
+    LIFE,
+    AUTO,
+    HOME,
+    HEALTH,
+    OTHER;
+
+    /**
+     * The type named exactly, in any case; anything else, "Life Insurance" or " life" included, is
+     * {@link #OTHER}, as underwriting has always rated it.
+     */
+    public static PolicyType parse(String policyType) {
+        switch (policyType.toLowerCase(Locale.ROOT)) {
+            case "life":
+                return LIFE;
+            case "auto":
+                return AUTO;
+            case "home":
+                return HOME;
+            case "health":
+                return HEALTH;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.common;
+
+/**
+ * Breakdown of one premium: {@code basePremium = coverage x baseRate x coverageFactor} and
+ * {@code annualPremium = basePremium x ageFactor x riskFactor}.
+ */
+public record PremiumQuote(PolicyType policyType,
+                           RiskCategory riskCategory,
+                           double coverageAmount,
+                           double baseRate,
+                           double coverageFactor,
+                           double ageFactor,
+                           double riskFactor,
+                           double basePremium,
+                           double annualPremium) {
+
+    public double monthlyPremium() {
+        return annualPremium / 12;
+    }
+
+    public double quarterlyPremium() {
+        return annualPremium / 4;
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Premium rating shared by the underwriting and policy management agents.
+ * <p>
+ * The rating plan ({@code premium-rating.properties}) is precomputed into a dense {@code double[]}
+ * of rates per dollar of coverage, indexed by policy type, risk category, age band and coverage band
+ * ordinals. A quote is a couple of band lookups and one array read. {@link #reload()} compiles a new
+ * table and publishes it with a single volatile write, so readers never wait; a batch priced with
+ * {@link #priceBook} uses one table throughout. The shared engine reloads a plan given by
+ * {@code premium.rating.path} whenever the file changes, through {@link RuleFileWatcher}.
+ */
+public final class PremiumRatingEngine {
+
+    /** Age passed by callers that do not rate by age; falls in a band of its own with factor 1.0. */
+    public static final int UNRATED_AGE = -1;
+
+    public static final String DEFAULT_PLAN = "premium-rating.properties";
+    private static final String PLAN_PATH_PROPERTY = "premium.rating.path";
+    private static final int MAX_AGE = 150;
+    private static final PolicyType[] POLICY_TYPES = PolicyType.values();
+    private static final RiskCategory[] RISK_CATEGORIES = RiskCategory.values();
+
+    private static volatile PremiumRatingEngine shared;
+
+    private volatile RatingTable table;
+
+    private PremiumRatingEngine(RatingTable table) {
+        this.table = table;
+    }
+
+    public static PremiumRatingEngine compile(Properties plan) {
+        return new PremiumRatingEngine(new RatingTable(plan));
+    }
+
+    public static PremiumRatingEngine shared() {
+        PremiumRatingEngine engine = shared;
+        if (engine == null) {
+            synchronized (PremiumRatingEngine.class) {
+                if (shared == null) {
+                    shared = new PremiumRatingEngine(new RatingTable(loadPlan()));
+                    String path = System.getProperty(PLAN_PATH_PROPERTY);
+                    if (path != null) {
+                        RuleFileWatcher.shared().watch(Path.of(path), shared::reload);
+                    }
+                }
+                engine = shared;
+            }
+        }
+        return engine;
+    }
+
+    /** Recompiles the rating plan from its source and swaps the new table in. */
+    public void reload() {
+        table = new RatingTable(loadPlan());
+    }
+
+    public void reload(Properties plan) {
+        table = new RatingTable(plan);
+    }
+
+    public PremiumQuote quote(String policyType, String riskCategory, int age, double coverageAmount) {
+        return quote(PolicyType.parse(policyType), RiskCategory.parse(riskCategory), age, coverageAmount);
+    }
+
+    public PremiumQuote quote(PolicyType policyType, RiskCategory riskCategory, int age, double coverageAmount) {
+        RatingTable current = table;
+        int coverageBand = current.coverageBand(coverageAmount);
+        double baseRate = current.baseRates[policyType.ordinal()];
+        double coverageFactor = current.coverageFactors[coverageBand];
+        int ageBand = current.ageBand(age);
+        double annualPremium = coverageAmount
+                * current.rates[current.index(policyType.ordinal(), riskCategory.ordinal(), ageBand, coverageBand)];
+        return new PremiumQuote(policyType, riskCategory, coverageAmount, baseRate, coverageFactor,
+                current.ageFactors[ageBand], current.riskFactors[riskCategory.ordinal()],
+                coverageAmount * baseRate * coverageFactor, annualPremium);
+    }
+
+    /** Annual premium without the breakdown; does not allocate. */
+    public double annualPremium(PolicyType policyType, RiskCategory riskCategory, int age, double coverageAmount) {
+        return table.premium(policyType.ordinal(), riskCategory.ordinal(), age, coverageAmount);
+    }
+
+    /**
+     * Reprices a whole book in parallel: {@code premiums[i]} receives the annual premium of the i-th
+     * policy described by the other arrays. Every entry is priced against the same table, even if a
+     * reload happens meanwhile.
+     */
+    public void priceBook(PolicyType[] policyTypes, RiskCategory[] riskCategories, int[] ages,
+                          double[] coverageAmounts, double[] premiums) {
+        RatingTable current = table;
+        Arrays.parallelSetAll(premiums, i -> current.premium(policyTypes[i].ordinal(),
+                riskCategories[i].ordinal(), ages[i], coverageAmounts[i]));
+    }
+
+    private static Properties loadPlan() {
+        String path = System.getProperty(PLAN_PATH_PROPERTY);
+        Properties plan = new Properties();
+        try (InputStream in = path != null ? Files.newInputStream(Path.of(path))
+                : PremiumRatingEngine.class.getClassLoader().getResourceAsStream(DEFAULT_PLAN)) {
+            if (in == null) {
+                throw new IllegalStateException("Premium rating plan not found: " + DEFAULT_PLAN);
+            }
+            plan.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read premium rating plan", e);
+        }
+        return plan;
+    }
+
+    /** Immutable compiled rating plan. */
+    private static final class RatingTable {
+        final double[] baseRates = new double[POLICY_TYPES.length];
+        final double[] riskFactors = new double[RISK_CATEGORIES.length];
+        /** Band 0 is {@link #UNRATED_AGE}, bands 1.. follow the configured upper bounds. */
+        final double[] ageFactors;
+        final byte[] ageBands = new byte[MAX_AGE + 1];
+        final double[] coverageUpper;
+        final double[] coverageFactors;
+        /** Rate per dollar of coverage for [policyType][riskCategory][ageBand][coverageBand]. */
+        final double[] rates;
+        final int ageBandCount;
+        final int coverageBandCount;
+
+        RatingTable(Properties plan) {
+            for (PolicyType type : POLICY_TYPES) {
+                baseRates[type.ordinal()] = Double.parseDouble(required(plan, "base.rate." + type));
+            }
+            for (RiskCategory category : RISK_CATEGORIES) {
+                riskFactors[category.ordinal()] = Double.parseDouble(required(plan, "risk.factor." + category));
+            }
+
+            double[] ageUpper = doubles(required(plan, "age.band.upper"));
+            double[] configuredAgeFactors = doubles(required(plan, "age.band.factor"));
+            if (configuredAgeFactors.length != ageUpper.length) {
+                throw new IllegalArgumentException("age.band.factor needs one factor per age band");
+            }
+            ageBandCount = ageUpper.length + 1;
+            ageFactors = new double[ageBandCount];
+            ageFactors[0] = 1.0;
+            System.arraycopy(configuredAgeFactors, 0, ageFactors, 1, configuredAgeFactors.length);
+            for (int age = 0, band = 0; age <= MAX_AGE; age++) {
+                while (band < ageUpper.length - 1 && age > ageUpper[band]) {
+                    band++;
+                }
+                ageBands[age] = (byte) (band + 1);
+            }
+
+            coverageUpper = doubles(required(plan, "coverage.band.upper"));
+            coverageFactors = doubles(required(plan, "coverage.band.factor"));
+            if (coverageFactors.length != coverageUpper.length + 1) {
+                throw new IllegalArgumentException("coverage.band.factor needs one factor per coverage band");
+            }
+            coverageBandCount = coverageFactors.length;
+
+            rates = new double[POLICY_TYPES.length * RISK_CATEGORIES.length * ageBandCount * coverageBandCount];
+            for (int type = 0; type < POLICY_TYPES.length; type++) {
+                for (int risk = 0; risk < RISK_CATEGORIES.length; risk++) {
+                    for (int ageBand = 0; ageBand < ageBandCount; ageBand++) {
+                        for (int coverageBand = 0; coverageBand < coverageBandCount; coverageBand++) {
+                            rates[index(type, risk, ageBand, coverageBand)] = baseRates[type] * riskFactors[risk]
+                                    * ageFactors[ageBand] * coverageFactors[coverageBand];
+                        }
+                    }
+                }
+            }
+        }
+
+        double premium(int type, int risk, int age, double coverageAmount) {
+            return coverageAmount * rates[index(type, risk, ageBand(age), coverageBand(coverageAmount))];
+        }
+
+        int index(int type, int risk, int ageBand, int coverageBand) {
+            return ((type * RISK_CATEGORIES.length + risk) * ageBandCount + ageBand) * coverageBandCount + coverageBand;
+        }
+
+        int ageBand(int age) {
+            return age == UNRATED_AGE ? 0 : ageBands[Math.max(0, Math.min(MAX_AGE, age))];
+        }
+
+        int coverageBand(double coverageAmount) {
+            int band = 0;
+            while (band < coverageUpper.length && coverageAmount > coverageUpper[band]) {
+                band++;
+            }
+            return band;
+        }
+
+        private static String required(Properties plan, String key) {
+            String value = plan.getProperty(key);
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Premium rating plan is missing " + key);
+            }
+            return value.trim();
+        }
+
+        private static double[] doubles(String values) {
+            return Arrays.stream(values.split(",")).map(String::trim).mapToDouble(Double::parseDouble).toArray();
+        }
+    }
+}
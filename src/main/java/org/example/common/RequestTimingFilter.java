@@ -0,0 +1,39 @@
+package org.example.common;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Times every POST request (the JSON-RPC calls) so that {@link ActionMetrics} can record how much of it was
+ * spent outside the action it called. Requests that call no action record nothing here; Spring Boot's own
+ * {@code http.server.requests} timer covers them.
+ */
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private final ActionMetrics actionMetrics;
+
+    public RequestTimingFilter(ActionMetrics actionMetrics) {
+        this.actionMetrics = actionMetrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!"POST".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ActionMetrics.RequestActions actions = actionMetrics.beginRequest();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            actionMetrics.endRequest(actions, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of agent replies for read-only actions, keyed by action and argument, with
+ * invalidation by entity (a policy, claim or customer id).
+ * <p>
+ * Rather than tracking which replies mention which entity, every entity hashes to one of a fixed number of
+ * generation counters. A reply is stored with the generation of the entities it was built from and is only
+ * served while those generations are unchanged; a write bumps its entity's generation after it has been
+ * applied, so no reply read before the write is served after it. Entities sharing a counter invalidate
+ * each other now and then, which costs a reload but never returns stale data. Stale replies stay in the
+ * {@link TinyLfuCache} until they are reloaded or evicted.
+ */
+public final class ResponseCache {
+
+    private static final int GENERATION_STRIPES = 1 << 12;
+
+    /** Counters since the cache was created. */
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Response cache: %d hits, %d misses (%.1f%% hit rate), %d evicted, %d invalidations, " +
+                    "%d replies", hits, misses, hitRate() * 100, evictions, invalidations, size);
+        }
+    }
+
+    private record Key(String action, String argument) {
+    }
+
+    private record Reply(String text, long generation) {
+    }
+
+    private final TinyLfuCache<Key, Reply> replies;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ResponseCache(int maximumSize) {
+        this.replies = new TinyLfuCache<>(maximumSize);
+    }
+
+    /** Cache sized by the {@code response.cache.size} system property (default 10,000 replies). */
+    public static ResponseCache withConfiguredSize() {
+        return new ResponseCache(Integer.getInteger("response.cache.size", 10_000));
+    }
+
+    /**
+     * The reply of {@code action} for its single {@code argument}, which is also the entity it depends on,
+     * loading it on a miss.
+     */
+    public String get(String action, String argument, Supplier<String> loader) {
+        return get(action, argument, null, loader);
+    }
+
+    /**
+     * As {@link #get(String, String, Supplier)}, for a reply that also depends on {@code alsoDependsOn}, a
+     * group that writes invalidate when they cannot name every entity they affect.
+     */
+    public String get(String action, String argument, String alsoDependsOn, Supplier<String> loader) {
+        Key key = new Key(action, argument);
+        long generation = generation(argument, alsoDependsOn);
+        Reply reply = replies.get(key);
+        if (reply != null && reply.generation() == generation) {
+            hits.increment();
+            return reply.text();
+        }
+        misses.increment();
+        String text = loader.get();
+        replies.put(key, new Reply(text, generation));
+        return text;
+    }
+
+    /** Marks every reply built from {@code entity} as stale. Call after the write has been applied. */
+    public void invalidate(String entity) {
+        generations.incrementAndGet(stripe(entity));
+        invalidations.increment();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), replies.evictions(), invalidations.sum(), replies.size());
+    }
+
+    /** Generations only ever grow, so their sum changes whenever any of them does. */
+    private long generation(String entity, String group) {
+        long generation = generations.get(stripe(entity));
+        return group == null ? generation : generation + generations.get(stripe(group));
+    }
+
+    private static int stripe(String entity) {
+        int h = entity == null ? 0 : entity.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
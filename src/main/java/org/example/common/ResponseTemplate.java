@@ -0,0 +1,223 @@
+package org.example.common;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A {@link String#format(String, Object...)} pattern parsed once, for the replies the agents build on
+ * every action.
+ * <p>
+ * Supported conversions are {@code %s}, {@code %d}, {@code %.Nf}, {@code %,.Nf} and {@code %%}; anything
+ * else is rejected by {@link #compile(String)}. Rendering appends literals and arguments straight into a
+ * per-thread {@link StringBuilder} instead of going through a {@link java.util.Formatter}. The output is
+ * identical to {@code String.format} in the default format locale: values the fast path cannot render
+ * exactly (negative numbers, values close to a rounding boundary, huge magnitudes, locales with other
+ * digits) are passed to {@code String.format} for that one conversion.
+ */
+public final class ResponseTemplate {
+
+    private static final int STRING = 0, INTEGER = 1, FIXED = 2;
+    private static final int MAX_PRECISION = 6;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    /** Largest scaled value whose rounding is decided by the double arithmetic below. */
+    private static final double MAX_SCALED = 1e12;
+    /** Scaled values this close to a half are rounded by {@code String.format} instead. */
+    private static final double ROUNDING_MARGIN = 1e-3;
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private final String pattern;
+    /** Literal text before each conversion; one more entry than {@link #kinds} for the trailing text. */
+    private final String[] literals;
+    private final int[] kinds;
+    private final int[] precisions;
+    private final boolean[] grouping;
+    /** The original specifier of each conversion, used for the {@code String.format} fallback. */
+    private final String[] specifiers;
+    private final int estimatedLength;
+
+    private final boolean localizedDigits;
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+    private final int groupingSize;
+
+    private ResponseTemplate(String pattern) {
+        this.pattern = pattern;
+        List<String> literalParts = new ArrayList<>();
+        List<String> specifierParts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < pattern.length() && "0123456789.,".indexOf(pattern.charAt(end)) >= 0) {
+                end++;
+            }
+            if (end == pattern.length()) {
+                throw new IllegalArgumentException("Incomplete conversion at index " + i + " in: " + pattern);
+            }
+            String specifier = pattern.substring(i, end + 1);
+            if (specifier.equals("%%")) {
+                literal.append('%');
+            } else {
+                literalParts.add(literal.toString());
+                literal.setLength(0);
+                specifierParts.add(specifier);
+            }
+            i = end + 1;
+        }
+        literalParts.add(literal.toString());
+
+        literals = literalParts.toArray(new String[0]);
+        specifiers = specifierParts.toArray(new String[0]);
+        kinds = new int[specifiers.length];
+        precisions = new int[specifiers.length];
+        grouping = new boolean[specifiers.length];
+        int length = 0;
+        for (String part : literals) {
+            length += part.length();
+        }
+        for (int j = 0; j < specifiers.length; j++) {
+            parseSpecifier(j, specifiers[j]);
+            length += 16;
+        }
+        estimatedLength = length;
+
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        NumberFormat numberFormat = NumberFormat.getIntegerInstance(locale);
+        localizedDigits = symbols.getZeroDigit() != '0';
+        decimalSeparator = symbols.getDecimalSeparator();
+        groupingSeparator = symbols.getGroupingSeparator();
+        groupingSize = numberFormat instanceof DecimalFormat ? ((DecimalFormat) numberFormat).getGroupingSize() : 3;
+    }
+
+    public static ResponseTemplate compile(String pattern) {
+        return new ResponseTemplate(pattern);
+    }
+
+    /** Same result as {@code String.format(pattern, args)}. */
+    public String render(Object... args) {
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        appendTo(buffer, args);
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFERS.set(new StringBuilder(512));
+        }
+        return result;
+    }
+
+    /** Appends the rendered template to {@code out}, e.g. for replies assembled from several parts. */
+    public StringBuilder appendTo(StringBuilder out, Object... args) {
+        if (args.length < kinds.length) {
+            // let Formatter raise the usual MissingFormatArgumentException
+            String.format(pattern, args);
+        }
+        out.ensureCapacity(out.length() + estimatedLength);
+        for (int i = 0; i < kinds.length; i++) {
+            out.append(literals[i]);
+            Object arg = args[i];
+            switch (kinds[i]) {
+                case STRING:
+                    out.append(arg);
+                    break;
+                case INTEGER:
+                    appendInteger(out, i, arg);
+                    break;
+                default:
+                    appendFixed(out, i, arg);
+            }
+        }
+        return out.append(literals[kinds.length]);
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    private void parseSpecifier(int index, String specifier) {
+        char conversion = specifier.charAt(specifier.length() - 1);
+        String flags = specifier.substring(1, specifier.length() - 1);
+        if (conversion == 's' && flags.isEmpty()) {
+            kinds[index] = STRING;
+        } else if (conversion == 'd' && flags.isEmpty()) {
+            kinds[index] = INTEGER;
+        } else if (conversion == 'f' && flags.matches(",?\\.\\d")
+                && flags.charAt(flags.length() - 1) - '0' <= MAX_PRECISION) {
+            kinds[index] = FIXED;
+            grouping[index] = flags.charAt(0) == ',';
+            precisions[index] = flags.charAt(flags.length() - 1) - '0';
+        } else {
+            throw new IllegalArgumentException("Unsupported conversion " + specifier + " in: " + pattern);
+        }
+    }
+
+    private void appendInteger(StringBuilder out, int index, Object arg) {
+        if (!localizedDigits && (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte)) {
+            long value = ((Number) arg).longValue();
+            if (value >= 0) {
+                out.append(value);
+                return;
+            }
+        }
+        out.append(String.format(specifiers[index], arg));
+    }
+
+    private void appendFixed(StringBuilder out, int index, Object arg) {
+        if (!localizedDigits && arg instanceof Double) {
+            double value = (Double) arg;
+            int precision = precisions[index];
+            double scaled = value * POWERS_OF_TEN[precision];
+            // the sign bit also excludes -0.0, which String.format renders as "-0.00"
+            if (Double.doubleToRawLongBits(value) >= 0 && scaled < MAX_SCALED) {
+                long whole = (long) scaled;
+                double fraction = scaled - whole;
+                if (Math.abs(fraction - 0.5) > ROUNDING_MARGIN) {
+                    appendDecimal(out, fraction > 0.5 ? whole + 1 : whole, precision, grouping[index]);
+                    return;
+                }
+            }
+        }
+        out.append(String.format(specifiers[index], arg));
+    }
+
+    private void appendDecimal(StringBuilder out, long unscaled, int precision, boolean grouped) {
+        long integerPart = unscaled / POWERS_OF_TEN[precision];
+        if (grouped && groupingSize > 0) {
+            appendGrouped(out, integerPart);
+        } else {
+            out.append(integerPart);
+        }
+        if (precision > 0) {
+            out.append(decimalSeparator);
+            long fractionPart = unscaled % POWERS_OF_TEN[precision];
+            for (int digit = precision - 1; digit > 0 && fractionPart < POWERS_OF_TEN[digit]; digit--) {
+                out.append('0');
+            }
+            out.append(fractionPart);
+        }
+    }
+
+    private void appendGrouped(StringBuilder out, long value) {
+        String digits = Long.toString(value);
+        int first = digits.length() % groupingSize;
+        if (first == 0) {
+            first = groupingSize;
+        }
+        out.append(digits, 0, first);
+        for (int i = first; i < digits.length(); i += groupingSize) {
+            out.append(groupingSeparator).append(digits, i, i + groupingSize);
+        }
+    }
+}
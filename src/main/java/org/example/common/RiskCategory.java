@@ -0,0 +1,26 @@
+package org.example.common;
+
+/**
+ * Underwriting risk categories shared by the underwriting, rating and policy agents.
+ */
+public enum RiskCategory {
+    LOW("APPROVED - Standard rates"),
+    MEDIUM("APPROVED - Moderate premium adjustment"),
+    HIGH("REQUIRES ADDITIONAL REVIEW - High risk premium or limited coverage");
+
+    private final String recommendation;
+
+    RiskCategory(String recommendation) {
+        this.recommendation = recommendation;
+    }
+
+    public String getRecommendation() {
+        return recommendation;
+    }
+
+    /** "HIGH" and "MEDIUM" (case-insensitive) map to their category, anything else is {@link #LOW}. */
+    public static RiskCategory parse(String riskCategory) {
+        return riskCategory.equalsIgnoreCase("HIGH") ? HIGH :
+               riskCategory.equalsIgnoreCase("MEDIUM") ? MEDIUM : LOW;
+    }
+}
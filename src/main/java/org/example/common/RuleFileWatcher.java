@@ -0,0 +1,79 @@
+package org.example.common;
+
+import lombok.extern.java.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads rule tables when their file changes: the premium rating plan ({@code -Dpremium.rating.path}) and the
+ * underwriting risk rules ({@code -Dunderwriting.rules.path}) register here, and one daemon thread checks the
+ * files' modification time and size every {@code -Drules.watch.interval.seconds} (default 5). A changed file
+ * is handed to its reload, which compiles a new table and swaps it in; a file that does not compile is logged
+ * and the table in use is kept until the file changes again.
+ */
+@Log
+public final class RuleFileWatcher {
+
+    private record Version(FileTime modified, long size) {
+    }
+
+    private static final RuleFileWatcher SHARED = new RuleFileWatcher(
+            Long.getLong("rules.watch.interval.seconds", 5), TimeUnit.SECONDS);
+
+    private final Map<Path, Runnable> reloads = new ConcurrentHashMap<>();
+    private final Map<Path, Version> versions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rule-file-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    RuleFileWatcher(long interval, TimeUnit unit) {
+        checker.scheduleWithFixedDelay(this::check, interval, interval, unit);
+    }
+
+    public static RuleFileWatcher shared() {
+        return SHARED;
+    }
+
+    /** Calls {@code reload} whenever {@code file} changes from what it is now. */
+    public void watch(Path file, Runnable reload) {
+        Path key = file.toAbsolutePath().normalize();
+        Version version = version(key);
+        if (version != null) {
+            versions.put(key, version);
+        }
+        reloads.put(key, reload);
+    }
+
+    private void check() {
+        reloads.forEach((file, reload) -> {
+            Version current = version(file);
+            if (current == null || current.equals(versions.put(file, current))) {
+                return;
+            }
+            try {
+                reload.run();
+                log.info("Reloaded rules from " + file);
+            } catch (RuntimeException e) {
+                log.warning("Keeping the rules in use; " + file + " could not be loaded: " + e);
+            }
+        });
+    }
+
+    private static Version version(Path file) {
+        try {
+            return new Version(Files.getLastModifiedTime(file), Files.size(file));
+        } catch (IOException e) {
+            return null; // missing while it is being replaced; checked again next time
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache with W-TinyLFU eviction.
+ * <p>
+ * New entries go into a small LRU window (1% of the capacity). Entries leaving the window are only admitted
+ * to the main segmented LRU if they have been used more often than the entry they would push out, as
+ * counted by a 4-bit count-min sketch that is halved periodically so that old popularity fades. The main
+ * area is split into a probation segment and a protected segment (80%) that entries reach on their second
+ * hit. Scans of one-off keys therefore churn only the window and cannot flush the hot set.
+ * <p>
+ * All operations take the cache's monitor. Lookups are a few hash probes, which is negligible next to the
+ * work the cached values stand in for.
+ */
+public final class TinyLfuCache<K, V> {
+
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long evictions;
+
+    public TinyLfuCache(int maximumSize) {
+        if (maximumSize < 2) {
+            throw new IllegalArgumentException("maximumSize must be at least 2: " + maximumSize);
+        }
+        this.windowMax = Math.max(1, maximumSize / 100);
+        this.mainMax = maximumSize - windowMax;
+        this.protectedMax = Math.max(1, mainMax * 8 / 10);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /** The value cached for {@code key}, or {@code null}. Counts as a use of the key either way. */
+    public synchronized V get(K key) {
+        sketch.increment(key.hashCode());
+        V value = window.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = probation.remove(key);
+        if (value != null) {
+            protectedSegment.put(key, value);
+            if (protectedSegment.size() > protectedMax) {
+                Map.Entry<K, V> demoted = removeEldest(protectedSegment);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return value;
+        }
+        return protectedSegment.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        sketch.increment(key.hashCode());
+        if (window.containsKey(key)) {
+            window.put(key, value);
+        } else if (probation.containsKey(key)) {
+            probation.put(key, value);
+        } else if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, value);
+        } else {
+            window.put(key, value);
+            if (window.size() > windowMax) {
+                admit(removeEldest(window));
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    /** Entries dropped to stay within the maximum size, including candidates refused admission. */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /** Moves an entry leaving the window into the main area if it is used more often than the main area's victim. */
+    private void admit(Map.Entry<K, V> candidate) {
+        if (probation.size() + protectedSegment.size() < mainMax) {
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        LinkedHashMap<K, V> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        K victim = victimSegment.keySet().iterator().next();
+        evictions++;
+        if (sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.hashCode())) {
+            victimSegment.remove(victim);
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> segment) {
+        Iterator<Map.Entry<K, V>> entries = segment.entrySet().iterator();
+        Map.Entry<K, V> eldest = entries.next();
+        Map.Entry<K, V> entry = Map.entry(eldest.getKey(), eldest.getValue());
+        entries.remove();
+        return entry;
+    }
+
+    /**
+     * Count-min sketch of four 4-bit counters per key, sixteen counters to a {@code long}. After ten
+     * increments per cache slot every counter is halved.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(8, maximumSize - 1) << 1);
+            this.table = new long[length];
+            this.tableMask = length - 1;
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int depth = 0; depth < 4; depth++) {
+                long h = mix(hash, depth);
+                frequency = Math.min(frequency, (int) ((table[(int) h & tableMask] >>> shift(h)) & 15));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int depth = 0; depth < 4; depth++) {
+                long h = mix(hash, depth);
+                int index = (int) h & tableMask;
+                int shift = shift(h);
+                if (((table[index] >>> shift) & 15) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private static long mix(int hash, int depth) {
+            long h = (hash + SEEDS[depth]) * SEEDS[(depth + 1) & 3];
+            return h ^ (h >>> 32);
+        }
+
+        /** Which of the sixteen nibbles of the word this hash uses, as a bit shift. */
+        private static int shift(long h) {
+            return (int) ((h >>> 40) & 15) << 2;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.common.tracing;
+
+import com.t4a.annotations.Agent;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records every {@code @Action} invocation as a span, a child of whatever span is current: the request's
+ * server span, or the caller's span when the action is called in process.
+ * <p>
+ * The first action of a request also gets a {@code routing} span for the time between the request
+ * arriving and the action starting. That is where tools4ai reads the request and maps the plain-English
+ * arguments, usually with a model call, which happens inside the library and cannot be traced directly.
+ */
+@Aspect
+public class ActionTracing {
+
+    private final Tracer tracer;
+    private final ConcurrentMap<Method, String> agentNames = new ConcurrentHashMap<>();
+
+    public ActionTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("@annotation(com.t4a.annotations.Action)")
+    public Object traceAction(ProceedingJoinPoint call) throws Throwable {
+        Span parent = tracer.currentSpan();
+        if (parent == null || !parent.isRecording()) {
+            return call.proceed();
+        }
+        Method method = ((MethodSignature) call.getSignature()).getMethod();
+        long start = tracer.epochNanos();
+        if (parent.kind() == Span.Kind.SERVER && parent.claimFirstChild()) {
+            tracer.startSpan("routing", Span.Kind.INTERNAL, parent.context(), parent.startEpochNanos()).end(start);
+        }
+        Span span = tracer.startSpan("action " + method.getName(), Span.Kind.INTERNAL, parent.context(), start)
+                .attribute("mesh.agent", agentNames.computeIfAbsent(method, ActionTracing::agentName))
+                .attribute("mesh.action", method.getName());
+        try (Span.Scope ignored = span.makeCurrent()) {
+            return call.proceed();
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private static String agentName(Method method) {
+        Agent agent = method.getDeclaringClass().getAnnotation(Agent.class);
+        return agent == null ? method.getDeclaringClass().getSimpleName() : agent.groupName();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.common.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends spans to a file, one JSON object per line, so that the spans of several servers can be written
+ * to the same directory and merged with {@code cat} and {@code jq} (sort by {@code traceId}, then
+ * {@code start}).
+ */
+public final class FileSpanExporter implements SpanExporter {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Path file;
+
+    public FileSpanExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void export(List<SpanData> spans) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            for (SpanData span : spans) {
+                out.write(JSON.writeValueAsString(line(span)));
+                out.newLine();
+            }
+        }
+    }
+
+    private static ObjectNode line(SpanData span) {
+        ObjectNode line = JSON.createObjectNode()
+                .put("service", span.service())
+                .put("traceId", span.traceId())
+                .put("spanId", span.spanId())
+                .put("parentSpanId", span.parentSpanId())
+                .put("name", span.name())
+                .put("kind", span.kind().name())
+                .put("start", span.startEpochNanos())
+                .put("durationMicros", span.durationNanos() / 1_000);
+        ObjectNode attributes = line.putObject("attributes");
+        for (Map.Entry<String, String> attribute : span.attributes().entrySet()) {
+            attributes.put(attribute.getKey(), attribute.getValue());
+        }
+        if (span.error() != null) {
+            line.put("error", span.error());
+        }
+        return line;
+    }
+}
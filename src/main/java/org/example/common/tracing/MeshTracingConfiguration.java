@@ -0,0 +1,28 @@
+package org.example.common.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Request and action spans for an agent server, imported by every {@code *Server}. Spans are exported as
+ * configured for {@link Tracer}, under the server's {@code spring.application.name}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MeshTracingConfiguration {
+
+    @Bean
+    public Tracer tracer(@Value("${spring.application.name}") String service) {
+        return Tracer.configureSharedIfAbsent(service);
+    }
+
+    @Bean
+    public TracingFilter tracingFilter(Tracer tracer) {
+        return new TracingFilter(tracer);
+    }
+
+    @Bean
+    public ActionTracing actionTracing(Tracer tracer) {
+        return new ActionTracing(tracer);
+    }
+}
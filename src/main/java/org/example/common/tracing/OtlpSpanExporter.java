@@ -0,0 +1,93 @@
+package org.example.common.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Posts spans to an OpenTelemetry collector with OTLP/HTTP in its JSON encoding, e.g. to
+ * {@code http://localhost:4318/v1/traces}, so that any OTLP backend (Jaeger, Tempo, ...) can show them.
+ */
+public final class OtlpSpanExporter implements SpanExporter {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String SCOPE = "org.example.insurance-agentic-mesh";
+
+    private final HttpClient http;
+    private final URI endpoint;
+    private final Duration timeout;
+
+    public OtlpSpanExporter(URI endpoint, Duration timeout) {
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.endpoint = endpoint;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void export(List<SpanData> spans) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(request(spans))))
+                .build();
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("Collector at " + endpoint + " returned HTTP " + response.statusCode());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export to " + endpoint + " was interrupted", e);
+        }
+    }
+
+    /** An {@code ExportTraceServiceRequest} with one resource per service. */
+    static ObjectNode request(List<SpanData> spans) {
+        Map<String, List<SpanData>> byService = new LinkedHashMap<>();
+        for (SpanData span : spans) {
+            byService.computeIfAbsent(span.service(), service -> new ArrayList<>()).add(span);
+        }
+        ObjectNode request = JSON.createObjectNode();
+        ArrayNode resourceSpans = request.putArray("resourceSpans");
+        for (Map.Entry<String, List<SpanData>> service : byService.entrySet()) {
+            ObjectNode resource = resourceSpans.addObject();
+            attribute(resource.putObject("resource").putArray("attributes"), "service.name", service.getKey());
+            ObjectNode scopeSpans = resource.putArray("scopeSpans").addObject();
+            scopeSpans.putObject("scope").put("name", SCOPE);
+            ArrayNode otlpSpans = scopeSpans.putArray("spans");
+            for (SpanData span : service.getValue()) {
+                ObjectNode otlpSpan = otlpSpans.addObject()
+                        .put("traceId", span.traceId())
+                        .put("spanId", span.spanId())
+                        .put("name", span.name())
+                        .put("kind", span.kind().otlpCode)
+                        .put("startTimeUnixNano", Long.toString(span.startEpochNanos()))
+                        .put("endTimeUnixNano", Long.toString(span.endEpochNanos()));
+                if (span.parentSpanId() != null) {
+                    otlpSpan.put("parentSpanId", span.parentSpanId());
+                }
+                ArrayNode attributes = otlpSpan.putArray("attributes");
+                span.attributes().forEach((key, value) -> attribute(attributes, key, value));
+                if (span.error() != null) {
+                    otlpSpan.putObject("status").put("code", 2).put("message", span.error());
+                }
+            }
+        }
+        return request;
+    }
+
+    private static void attribute(ArrayNode attributes, String key, String value) {
+        attributes.addObject().put("key", key).putObject("value").put("stringValue", value);
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.common.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One timed operation of a trace, started by the {@link Tracer} and exported when {@link #end() ended}.
+ * A span is used by the thread that started it; only its {@link #context()} is shared, e.g. to propagate it
+ * in a request header.
+ * <p>
+ * When tracing is off, or the trace is not sampled, the span still carries a context (so that the decision
+ * propagates) but records nothing.
+ */
+public final class Span {
+
+    /** The OTLP span kinds used by the mesh. */
+    public enum Kind {
+        INTERNAL(1), SERVER(2), CLIENT(3);
+
+        final int otlpCode;
+
+        Kind(int otlpCode) {
+            this.otlpCode = otlpCode;
+        }
+    }
+
+    /** Restores the previously current span when closed. */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Tracer tracer;
+    private final String name;
+    private final Kind kind;
+    private final TraceContext context;
+    private final String parentSpanId;
+    private final long startEpochNanos;
+    private Map<String, String> attributes;
+    private String error;
+    private boolean childStarted;
+    private boolean ended;
+
+    Span(Tracer tracer, String name, Kind kind, TraceContext context, String parentSpanId, long startEpochNanos) {
+        this.tracer = tracer;
+        this.name = name;
+        this.kind = kind;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.startEpochNanos = startEpochNanos;
+    }
+
+    public TraceContext context() {
+        return context;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public long startEpochNanos() {
+        return startEpochNanos;
+    }
+
+    public boolean isRecording() {
+        return context.sampled() && tracer.enabled();
+    }
+
+    public Span attribute(String key, Object value) {
+        if (isRecording() && value != null) {
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+            }
+            attributes.put(key, String.valueOf(value));
+        }
+        return this;
+    }
+
+    /** Marks the span as failed. */
+    public Span error(Throwable failure) {
+        if (isRecording()) {
+            error = failure.getClass().getSimpleName() + (failure.getMessage() == null ? "" : ": " + failure.getMessage());
+        }
+        return this;
+    }
+
+    /** {@code true} the first time it is called, so that only the first child can claim to be it. */
+    boolean claimFirstChild() {
+        if (childStarted) {
+            return false;
+        }
+        childStarted = true;
+        return true;
+    }
+
+    /** Makes this the span that new spans on the current thread are children of, until the scope is closed. */
+    public Scope makeCurrent() {
+        return tracer.makeCurrent(this);
+    }
+
+    public void end() {
+        end(tracer.epochNanos());
+    }
+
+    /** Ends the span at an earlier time, for spans reconstructed after the fact. */
+    public void end(long endEpochNanos) {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        if (isRecording()) {
+            tracer.export(new SpanData(tracer.service(), context.traceId(), context.spanId(), parentSpanId, name, kind,
+                    startEpochNanos, endEpochNanos, attributes == null ? Map.of() : attributes, error));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.common.tracing;
+
+import java.util.Map;
+
+/**
+ * A finished span as handed to a {@link SpanExporter}. Times are nanoseconds since the Unix epoch;
+ * {@code parentSpanId} is {@code null} for a root span and {@code error} is {@code null} unless it failed.
+ */
+public record SpanData(String service, String traceId, String spanId, String parentSpanId, String name,
+                       Span.Kind kind, long startEpochNanos, long endEpochNanos, Map<String, String> attributes,
+                       String error) {
+
+    public long durationNanos() {
+        return endEpochNanos - startEpochNanos;
+    }
+}
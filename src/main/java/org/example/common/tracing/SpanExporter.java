@@ -0,0 +1,10 @@
+package org.example.common.tracing;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Where finished spans go. Called from the tracer's export thread only, in batches. */
+public interface SpanExporter {
+
+    void export(List<SpanData> spans) throws IOException;
+}
@@ -0,0 +1,59 @@
+package org.example.common.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The identity of a span as carried between processes in a W3C {@code traceparent} header
+ * ({@code 00-<32 hex trace id>-<16 hex span id>-<flags>}).
+ */
+public record TraceContext(String traceId, String spanId, boolean sampled) {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    /** The context in a {@code traceparent} header, or {@code null} if it is missing or malformed. */
+    public static TraceContext parse(String traceparent) {
+        if (traceparent == null) {
+            return null;
+        }
+        String[] parts = traceparent.trim().split("-");
+        if (parts.length < 4 || parts[0].equals("ff") || !isHex(parts[1], 32) || !isHex(parts[2], 16)
+                || !isHex(parts[3], 2) || parts[1].equals("0".repeat(32)) || parts[2].equals("0".repeat(16))) {
+            return null;
+        }
+        return new TraceContext(parts[1], parts[2], (Integer.parseInt(parts[3], 16) & 1) == 1);
+    }
+
+    public String traceparent() {
+        return "00-" + traceId + '-' + spanId + (sampled ? "-01" : "-00");
+    }
+
+    static TraceContext root(boolean sampled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(hex(random.nextLong() | 1) + hex(random.nextLong()), newSpanId(), sampled);
+    }
+
+    TraceContext child() {
+        return new TraceContext(traceId, newSpanId(), sampled);
+    }
+
+    private static String newSpanId() {
+        return hex(ThreadLocalRandom.current().nextLong() | 1);
+    }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+
+    private static boolean isHex(String value, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0 || Character.isUpperCase(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
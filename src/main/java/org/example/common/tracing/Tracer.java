@@ -0,0 +1,212 @@
+package org.example.common.tracing;
+
+import lombok.extern.java.Log;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Starts spans, keeps track of the current one per thread and exports finished spans in the background.
+ * <p>
+ * Tracing is on when at least one exporter is configured: {@code mesh.tracing.file} appends spans to a
+ * JSON-lines file, {@code mesh.tracing.otlp.endpoint} posts them to an OTLP/HTTP collector (e.g.
+ * {@code http://localhost:4318/v1/traces}). {@code mesh.tracing.sample.rate} (default 1.0) is the share of
+ * new traces recorded; traces started elsewhere keep the caller's decision. Finished spans are queued and
+ * written by a daemon thread in batches, and dropped rather than blocking when the queue is full. With
+ * tracing off a span is just a context, so propagation still works and the cost is a few allocations.
+ */
+@Log
+public final class Tracer {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 512;
+    private static final Duration EXPORT_INTERVAL = Duration.ofSeconds(1);
+
+    private static volatile Tracer shared;
+
+    private final String service;
+    private final List<SpanExporter> exporters;
+    private final double sampleRate;
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private final BlockingQueue<SpanData> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final long epochNanosAtStart = System.currentTimeMillis() * 1_000_000;
+    private final long nanoTimeAtStart = System.nanoTime();
+    private final Thread exportThread;
+
+    public Tracer(String service, List<SpanExporter> exporters, double sampleRate) {
+        this.service = service;
+        this.exporters = List.copyOf(exporters);
+        this.sampleRate = sampleRate;
+        if (this.exporters.isEmpty()) {
+            exportThread = null;
+        } else {
+            exportThread = new Thread(this::exportLoop, "mesh-tracing");
+            exportThread.setDaemon(true);
+            exportThread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+        }
+    }
+
+    /**
+     * Installs the JVM wide tracer for {@code service}, configured from the system properties. Called once
+     * from each server's and client's {@code main}.
+     */
+    public static synchronized Tracer configureShared(String service) {
+        List<SpanExporter> exporters = new ArrayList<>();
+        String file = System.getProperty("mesh.tracing.file");
+        if (file != null && !file.isBlank()) {
+            exporters.add(new FileSpanExporter(Path.of(file)));
+        }
+        String otlpEndpoint = System.getProperty("mesh.tracing.otlp.endpoint");
+        if (otlpEndpoint != null && !otlpEndpoint.isBlank()) {
+            exporters.add(new OtlpSpanExporter(URI.create(otlpEndpoint), Duration.ofSeconds(10)));
+        }
+        double sampleRate = Double.parseDouble(System.getProperty("mesh.tracing.sample.rate", "1.0"));
+        shared = new Tracer(service, exporters, sampleRate);
+        return shared;
+    }
+
+    /**
+     * Installs the JVM wide tracer unless one is installed already, e.g. by a client that also hosts the
+     * consolidated server in its JVM, whose spans then share the client's service name.
+     */
+    public static synchronized Tracer configureSharedIfAbsent(String service) {
+        return shared != null ? shared : configureShared(service);
+    }
+
+    /** The JVM wide tracer, configured for an unnamed service if no {@code main} did so. */
+    public static Tracer shared() {
+        Tracer tracer = shared;
+        if (tracer == null) {
+            synchronized (Tracer.class) {
+                if (shared == null) {
+                    configureShared("insurance-mesh");
+                }
+                tracer = shared;
+            }
+        }
+        return tracer;
+    }
+
+    public boolean enabled() {
+        return exportThread != null;
+    }
+
+    public String service() {
+        return service;
+    }
+
+    /** Spans dropped because the export queue was full. */
+    public long droppedSpans() {
+        return dropped.get();
+    }
+
+    /** The span current on this thread, or {@code null}. */
+    public Span currentSpan() {
+        return current.get();
+    }
+
+    /** Starts a child of the current span, or a new trace if there is none. */
+    public Span startSpan(String name, Span.Kind kind) {
+        Span parent = current.get();
+        return startSpan(name, kind, parent == null ? null : parent.context(), epochNanos());
+    }
+
+    /**
+     * Starts a span at {@code startEpochNanos}.
+     *
+     * @param parent the parent's context, e.g. from an incoming {@code traceparent}, or {@code null} to start
+     *               a new trace
+     */
+    public Span startSpan(String name, Span.Kind kind, TraceContext parent, long startEpochNanos) {
+        TraceContext context = parent == null
+                ? TraceContext.root(enabled() && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate))
+                : parent.child();
+        return new Span(this, name, kind, context, parent == null ? null : parent.spanId(), startEpochNanos);
+    }
+
+    /** Runs {@code work} in a new current span, marking the span failed if it throws. */
+    public <T> T inSpan(String name, Span.Kind kind, Supplier<T> work) {
+        Span span = startSpan(name, kind);
+        try (Span.Scope ignored = span.makeCurrent()) {
+            return work.get();
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /** Wall-clock time in nanoseconds, with {@link System#nanoTime()} resolution. */
+    public long epochNanos() {
+        return epochNanosAtStart + (System.nanoTime() - nanoTimeAtStart);
+    }
+
+    Span.Scope makeCurrent(Span span) {
+        Span previous = current.get();
+        current.set(span);
+        return () -> {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        };
+    }
+
+    void export(SpanData span) {
+        if (!queue.offer(span)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** Exports every queued span now. */
+    public synchronized void flush() {
+        List<SpanData> batch = new ArrayList<>(BATCH_SIZE);
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void exportLoop() {
+        while (true) {
+            try {
+                SpanData first = queue.poll(EXPORT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    synchronized (this) {
+                        List<SpanData> batch = new ArrayList<>(BATCH_SIZE);
+                        batch.add(first);
+                        queue.drainTo(batch, BATCH_SIZE - 1);
+                        write(batch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void write(List<SpanData> batch) {
+        for (SpanExporter exporter : exporters) {
+            try {
+                exporter.export(batch);
+            } catch (IOException | RuntimeException e) {
+                log.warning("Could not export " + batch.size() + " spans with " + exporter.getClass().getSimpleName() +
+                        ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.common.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Opens a server span for every POST request (the JSON-RPC calls), continuing the caller's trace from its
+ * {@code traceparent} header, and makes it current for the actions the request runs.
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        TraceContext caller = TraceContext.parse(request.getHeader(TraceContext.TRACEPARENT));
+        if (!"POST".equals(request.getMethod()) || (caller == null && !tracer.enabled())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Span span = tracer.startSpan("POST " + request.getRequestURI(), Span.Kind.SERVER, caller, tracer.epochNanos());
+        try (Span.Scope ignored = span.makeCurrent()) {
+            chain.doFilter(request, response);
+            span.attribute("http.status_code", response.getStatus());
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
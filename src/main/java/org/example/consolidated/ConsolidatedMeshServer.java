@@ -0,0 +1,77 @@
+package org.example.consolidated;
+
+import io.github.vishalmysore.tools4ai.EnableAgent;
+import lombok.extern.java.Log;
+import org.example.claimsprocessing.ClaimsProcessingServer;
+import org.example.claimsprocessing.ClaimsProcessingService;
+import org.example.common.IdGenerator;
+import org.example.common.MeshAdmissionConfiguration;
+import org.example.common.MeshMetricsConfiguration;
+import org.example.common.MeshReplyConfiguration;
+import org.example.common.MeshStartupConfiguration;
+import org.example.common.tracing.MeshTracingConfiguration;
+import org.example.customerservice.CustomerOverview;
+import org.example.customerservice.CustomerServiceServer;
+import org.example.customerservice.CustomerServiceService;
+import org.example.customerservice.ServiceStatus;
+import org.example.insuranceclient.InProcessToolTransport;
+import org.example.insuranceclient.ReplicaBalancer;
+import org.example.policymanagement.PolicyManagementServer;
+import org.example.policymanagement.PolicyManagementService;
+import org.example.underwriting.UnderwritingServer;
+import org.example.underwriting.UnderwritingService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+
+import java.util.Map;
+
+/**
+ * Hosts all four agent groups in one JVM on port 7870, for edge and small deployments: one heap, one
+ * startup and one set of loaded classes instead of four. The per-agent servers are left out of the scan so
+ * that their ports and properties don't apply; everything else in their packages (services, claim
+ * persistence, the batch underwriting endpoint) is picked up as usual.
+ * <p>
+ * The JSON-RPC endpoint serves the actions of every group. Both claims and customer service define
+ * {@code processPayment}, and a single endpoint can only expose one of them; clients that need both go
+ * through {@code RoutingMeshClient}, which addresses actions by agent. The customer overview and the service
+ * status report call the other services in process rather than over HTTP.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan(basePackageClasses = {PolicyManagementService.class, ClaimsProcessingService.class,
+        UnderwritingService.class, CustomerServiceService.class},
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {
+                PolicyManagementServer.class, ClaimsProcessingServer.class, UnderwritingServer.class,
+                CustomerServiceServer.class}))
+@EnableAgent
+@Import({MeshAdmissionConfiguration.class, MeshMetricsConfiguration.class, MeshReplyConfiguration.class,
+        MeshStartupConfiguration.class, MeshTracingConfiguration.class})
+@PropertySource("classpath:application-consolidated.properties")
+@Log
+public class ConsolidatedMeshServer {
+    static final int DEFAULT_NODE_ID = 5;
+
+    public static void main(String[] args) {
+        start(args);
+    }
+
+    /** Starts the consolidated server and returns its context, e.g. to call the services in process. */
+    public static ConfigurableApplicationContext start(String... args) {
+        IdGenerator.configureShared(DEFAULT_NODE_ID);
+        ConfigurableApplicationContext context = SpringApplication.run(ConsolidatedMeshServer.class, args);
+        ReplicaBalancer.configureShared(new InProcessToolTransport(Map.of(
+                CustomerOverview.policyUrl(), context.getBean(PolicyManagementService.class),
+                CustomerOverview.claimsUrl(), context.getBean(ClaimsProcessingService.class),
+                ServiceStatus.underwritingUrl(), context.getBean(UnderwritingService.class))));
+        CustomerOverview.configureShared(ReplicaBalancer.shared());
+        ServiceStatus.watchAgents();
+        log.info("Consolidated Mesh Server started successfully on port 7870");
+        return context;
+    }
+}
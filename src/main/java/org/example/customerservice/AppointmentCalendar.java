@@ -0,0 +1,269 @@
+package org.example.customerservice;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The appointment calendars of the customer service agents, and the search for the nearest free slot.
+ * <p>
+ * A business day is divided into slots ({@code slotsPerDay} of {@code slotLength} from {@code opens}, at most
+ * 64), and an agent's day is one {@code long} with a bit set for every booked slot. The agents' words of one day
+ * sit next to each other in an {@link AtomicLongArray}, created when the day is first asked for, so a search
+ * or an availability report for a day reads one array. Booking sets the appointment's bits with a
+ * compare-and-set on the agent's word; a booking that lost a race to another one for the same agent re-reads
+ * the word and searches again, so two bookings can never hold the same slot and no lock is taken. Cancelling
+ * clears the bits the same way.
+ * <p>
+ * The search starts at the requested time and goes forward, day by day over business days, to the earliest
+ * time any agent can fit the appointment. Agents free at that time are scanned from a random one, so
+ * concurrent bookings spread over them instead of racing for the first. Days before today are dropped, with
+ * their bookings.
+ */
+public final class AppointmentCalendar {
+
+    /** One booked appointment, under the caller's id (the confirmation number). */
+    public record Booking(String id, int agent, LocalDate date, int slot, int slots) {
+    }
+
+    private static final String[] FIRST_NAMES = {"Sarah", "Michael", "Emily", "David", "Jessica", "Daniel",
+            "Laura", "James", "Olivia", "Robert", "Sophia", "Thomas", "Grace", "Kevin", "Hannah", "Brian"};
+    private static final String[] LAST_NAMES = {"Johnson", "Chen", "Garcia", "Patel", "Miller", "Nguyen",
+            "Brooks", "Rivera", "Kim", "Turner", "Walsh", "Okafor", "Schmidt", "Lopez", "Bennett", "Cohen"};
+
+    private final List<String> agents;
+    private final LocalTime opens;
+    private final Duration slotLength;
+    private final int slotsPerDay;
+    private final long dayMask;
+    private final int searchDays;
+    private final Clock clock;
+    private final Map<Long, AtomicLongArray> days = new ConcurrentHashMap<>();
+    private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+    private volatile long prunedBefore;
+
+    public AppointmentCalendar(List<String> agents, LocalTime opens, Duration slotLength, int slotsPerDay,
+                               int searchDays, Clock clock) {
+        if (agents.isEmpty() || slotsPerDay < 1 || slotsPerDay > Long.SIZE) {
+            throw new IllegalArgumentException("Expected at least one agent and 1 to 64 slots a day, got " +
+                    agents.size() + " agents and " + slotsPerDay + " slots");
+        }
+        this.agents = List.copyOf(agents);
+        this.opens = opens;
+        this.slotLength = slotLength;
+        this.slotsPerDay = slotsPerDay;
+        this.dayMask = slotsPerDay == Long.SIZE ? -1L : (1L << slotsPerDay) - 1;
+        this.searchDays = searchDays;
+        this.clock = clock;
+    }
+
+    /**
+     * {@code -Dappointment.agents} agents (default 50), with days of 15-minute slots from 9:00 to 17:00,
+     * searched up to {@code -Dappointment.search.days} (default 30) days ahead of the requested date.
+     */
+    public static AppointmentCalendar withConfiguredAgents() {
+        return new AppointmentCalendar(roster(Integer.getInteger("appointment.agents", 50)), LocalTime.of(9, 0),
+                Duration.ofMinutes(15), 32, Integer.getInteger("appointment.search.days", 30),
+                Clock.systemDefaultZone());
+    }
+
+    /** {@code count} agent names, starting with Sarah Johnson. */
+    public static List<String> roster(int count) {
+        List<String> names = new ArrayList<>(count);
+        int combinations = FIRST_NAMES.length * LAST_NAMES.length;
+        for (int i = 0; i < count; i++) {
+            String name = FIRST_NAMES[i % FIRST_NAMES.length] + " " +
+                    LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+            names.add(i < combinations ? name : name + " " + (i / combinations + 1));
+        }
+        return names;
+    }
+
+    /** Slots an appointment of {@code length} takes, rounded up. */
+    public int slotsFor(Duration length) {
+        return (int) Math.max(1, (length.toNanos() + slotLength.toNanos() - 1) / slotLength.toNanos());
+    }
+
+    /**
+     * Books the earliest free {@code slots} at or after {@code earliest} (or now, if that is later), with any
+     * agent, under {@code id}.
+     *
+     * @return the booking, or {@code null} if no agent is free within the search window
+     */
+    public Booking book(String id, LocalDateTime earliest, int slots) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (earliest.isBefore(now)) {
+            earliest = now;
+        }
+        pruneBefore(now.toLocalDate());
+        LocalDate date = earliest.toLocalDate();
+        int firstSlot = firstSlotAtOrAfter(earliest.toLocalTime());
+        for (int day = 0; day < searchDays; day++, date = date.plusDays(1), firstSlot = 0) {
+            if (!isBusinessDay(date)) {
+                continue;
+            }
+            Booking booking = bookOn(id, date, firstSlot, slots);
+            if (booking != null) {
+                bookings.put(id, booking);
+                return booking;
+            }
+        }
+        return null;
+    }
+
+    /** Cancels the booking made under {@code id} and frees its slots; {@code null} if there is none. */
+    public Booking cancel(String id) {
+        Booking booking = bookings.remove(id);
+        AtomicLongArray words = booking == null ? null : days.get(booking.date().toEpochDay());
+        if (words == null) {
+            return booking;
+        }
+        long bits = bits(booking.slot(), booking.slots());
+        long word;
+        do {
+            word = words.get(booking.agent());
+        } while (!words.compareAndSet(booking.agent(), word, word & ~bits));
+        return booking;
+    }
+
+    /** The booking made under {@code id}, or {@code null}. */
+    public Booking booking(String id) {
+        return bookings.get(id);
+    }
+
+    /**
+     * How many agents could start an appointment of {@code slots} at each slot of {@code date}, read in one
+     * pass over the day's words. Slots before {@link #firstOpenSlot(LocalDate)} have no one free.
+     */
+    public int[] availability(LocalDate date, int slots) {
+        int[] free = new int[slotsPerDay];
+        int firstSlot = firstOpenSlot(date);
+        if (!isBusinessDay(date) || firstSlot >= slotsPerDay) {
+            return free;
+        }
+        long fromFirstSlot = -1L << firstSlot;
+        AtomicLongArray words = days.get(date.toEpochDay());
+        for (int agent = 0; agent < agents.size(); agent++) {
+            long starts = starts(words == null ? 0 : words.get(agent), slots) & fromFirstSlot;
+            while (starts != 0) {
+                free[Long.numberOfTrailingZeros(starts)]++;
+                starts &= starts - 1;
+            }
+        }
+        return free;
+    }
+
+    /** The first slot of {@code date} that has not started yet: 0 on a later day, {@code slotsPerDay} on a past one. */
+    public int firstOpenSlot(LocalDate date) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        int order = date.compareTo(now.toLocalDate());
+        return order > 0 ? 0 : order < 0 ? slotsPerDay : firstSlotAtOrAfter(now.toLocalTime());
+    }
+
+    public String agentName(int agent) {
+        return agents.get(agent);
+    }
+
+    public int agents() {
+        return agents.size();
+    }
+
+    public int searchDays() {
+        return searchDays;
+    }
+
+    public int slotsPerDay() {
+        return slotsPerDay;
+    }
+
+    public LocalTime slotTime(int slot) {
+        return opens.plus(slotLength.multipliedBy(slot));
+    }
+
+    public Duration length(Booking booking) {
+        return slotLength.multipliedBy(booking.slots());
+    }
+
+    private Booking bookOn(String id, LocalDate date, int firstSlot, int slots) {
+        long fromFirstSlot = firstSlot >= Long.SIZE ? 0 : -1L << firstSlot;
+        long epochDay = date.toEpochDay();
+        AtomicLongArray words = days.get(epochDay);
+        if (words == null) {
+            if (starts(0, slots) == 0) {
+                return null; // the appointment is longer than a day
+            }
+            words = days.computeIfAbsent(epochDay, ignored -> new AtomicLongArray(agents.size()));
+        }
+        int count = agents.size();
+        while (true) {
+            // the earliest start any agent has, and the first agent (from a random one) that has it
+            int bestSlot = Integer.MAX_VALUE;
+            int bestAgent = -1;
+            long bestWord = 0;
+            int offset = count == 1 ? 0 : ThreadLocalRandom.current().nextInt(count);
+            for (int i = 0; i < count && bestSlot > firstSlot; i++) {
+                int agent = offset + i < count ? offset + i : offset + i - count;
+                long word = words.get(agent);
+                long starts = starts(word, slots) & fromFirstSlot;
+                if (starts != 0 && Long.numberOfTrailingZeros(starts) < bestSlot) {
+                    bestSlot = Long.numberOfTrailingZeros(starts);
+                    bestAgent = agent;
+                    bestWord = word;
+                }
+            }
+            if (bestAgent < 0) {
+                return null;
+            }
+            if (words.compareAndSet(bestAgent, bestWord, bestWord | bits(bestSlot, slots))) {
+                return new Booking(id, bestAgent, date, bestSlot, slots);
+            }
+            // another booking changed that agent's day first; look again
+        }
+    }
+
+    /** The slots where {@code slots} free slots in a row start, given a day's booked slots. */
+    private long starts(long booked, int slots) {
+        long free = ~booked & dayMask;
+        long starts = free;
+        for (int i = 1; i < slots && starts != 0; i++) {
+            starts &= free >>> i;
+        }
+        return starts;
+    }
+
+    private static long bits(int slot, int slots) {
+        return (slots == Long.SIZE ? -1L : (1L << slots) - 1) << slot;
+    }
+
+    private int firstSlotAtOrAfter(LocalTime time) {
+        long sinceOpening = Duration.between(opens, time).toNanos();
+        if (sinceOpening <= 0) {
+            return 0;
+        }
+        long slot = (sinceOpening + slotLength.toNanos() - 1) / slotLength.toNanos();
+        return (int) Math.min(slot, slotsPerDay);
+    }
+
+    private static boolean isBusinessDay(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
+
+    private void pruneBefore(LocalDate today) {
+        long epochDay = today.toEpochDay();
+        if (prunedBefore < epochDay) {
+            prunedBefore = epochDay;
+            days.keySet().removeIf(day -> day < epochDay);
+            bookings.values().removeIf(booking -> booking.date().toEpochDay() < epochDay);
+        }
+    }
+}
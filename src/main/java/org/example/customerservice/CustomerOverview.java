@@ -0,0 +1,233 @@
+package org.example.customerservice;
+
+import lombok.extern.java.Log;
+import org.example.common.ResponseTemplate;
+import org.example.common.tracing.Span;
+import org.example.common.tracing.Tracer;
+import org.example.insuranceclient.ReplicaBalancer;
+import org.example.insuranceclient.ToolTransport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the "what does this customer have" view in one action instead of three chained by a model: the
+ * customer's account, their policies from the policy agent and the claims summary of every policy from the
+ * claims agent.
+ * <p>
+ * The account and the policy list are fetched concurrently; as soon as the policy list arrives the claims
+ * summaries of its policies are fetched concurrently too, so the view takes as long as the slowest branch
+ * rather than the sum of every call. Everything shares one deadline. A lookup that fails or misses the
+ * deadline is reported as unavailable in its section and the rest of the view is returned as usual; one that
+ * misses it is interrupted too, so it does not keep a thread and a connection busy for nobody.
+ * <p>
+ * Lookups run on at most {@code customer.overview.threads} (default 32) threads with up to
+ * {@code customer.overview.queue} (default 64) waiting for one. A lookup that finds both full is not run and
+ * its section is reported as unavailable, so a burst of overviews degrades them instead of piling up threads.
+ */
+@Log
+public final class CustomerOverview {
+
+    public static final String POLICY_URL_PROPERTY = "customer.overview.policy.url";
+    public static final String CLAIMS_URL_PROPERTY = "customer.overview.claims.url";
+    public static final String TIMEOUT_PROPERTY = "customer.overview.timeout.ms";
+    public static final String THREADS_PROPERTY = "customer.overview.threads";
+    public static final String QUEUE_PROPERTY = "customer.overview.queue";
+
+    private static final Pattern POLICY_NUMBER = Pattern.compile("\\bPOL-[A-Z0-9-]+\\b");
+    private static final ResponseTemplate OVERVIEW = ResponseTemplate.compile("Customer 360 for %s\n" +
+            "=================================\n\n" +
+            "%s\n\n" +
+            "%s\n\n" +
+            "%s%s");
+    private static final ResponseTemplate UNAVAILABLE = ResponseTemplate.compile("%s: unavailable (%s)");
+    private static final ResponseTemplate PARTIAL = ResponseTemplate.compile("\n\nPartial view: %d of %d lookups " +
+            "unavailable");
+
+    /** The text of one lookup, or of its unavailability notice. */
+    private record Section(String text, boolean available) {
+    }
+
+    private static final ThreadPoolExecutor LOOKUPS = newLookupExecutor();
+    private static final ScheduledExecutorService TIMEOUTS = newTimeoutScheduler();
+
+    private static volatile CustomerOverview shared;
+
+    private final ToolTransport transport;
+    private final String policyUrl;
+    private final String claimsUrl;
+    private final Duration timeout;
+
+    public CustomerOverview(ToolTransport transport, String policyUrl, String claimsUrl, Duration timeout) {
+        this.transport = transport;
+        this.policyUrl = policyUrl;
+        this.claimsUrl = claimsUrl;
+        this.timeout = timeout;
+    }
+
+    /** Replaces the JVM wide overview, e.g. with an in-process transport in the consolidated server. */
+    public static synchronized void configureShared(ToolTransport transport) {
+        shared = new CustomerOverview(transport, policyUrl(), claimsUrl(), configuredTimeout());
+    }
+
+    /**
+     * The JVM wide overview, calling the policy and claims agents through the shared {@link ReplicaBalancer}
+     * if not configured.
+     */
+    public static CustomerOverview shared() {
+        CustomerOverview overview = shared;
+        if (overview == null) {
+            synchronized (CustomerOverview.class) {
+                if (shared == null) {
+                    shared = new CustomerOverview(ReplicaBalancer.shared(), policyUrl(), claimsUrl(),
+                            configuredTimeout());
+                }
+                overview = shared;
+            }
+        }
+        return overview;
+    }
+
+    public static String policyUrl() {
+        return System.getProperty(POLICY_URL_PROPERTY, "http://localhost:7871/");
+    }
+
+    public static String claimsUrl() {
+        return System.getProperty(CLAIMS_URL_PROPERTY, "http://localhost:7872/");
+    }
+
+    /**
+     * The merged view for {@code customerId}.
+     *
+     * @param account the customer's account reply, looked up alongside the remote calls
+     */
+    public String render(String customerId, Supplier<String> account) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Span parent = Tracer.shared().currentSpan();
+        CompletableFuture<Section> accountLookup = lookup("Customer account", parent, deadline, account);
+        CompletableFuture<Section> policiesLookup = lookup("Policies", parent, deadline,
+                () -> call(policyUrl, "listCustomerPolicies", Map.of("customerId", customerId)));
+        CompletableFuture<List<Section>> claimsLookup = policiesLookup.thenCompose(policies -> {
+            List<CompletableFuture<Section>> summaries = new ArrayList<>();
+            for (String policyNumber : policyNumbers(policies)) {
+                summaries.add(lookup("Claims for " + policyNumber, parent, deadline,
+                        () -> call(claimsUrl, "getClaimsSummary", Map.of("policyNumber", policyNumber))));
+            }
+            return CompletableFuture.allOf(summaries.toArray(new CompletableFuture[0]))
+                    .thenApply(done -> summaries.stream().map(CompletableFuture::join).toList());
+        });
+
+        List<Section> sections = new ArrayList<>();
+        sections.add(accountLookup.join());
+        sections.add(policiesLookup.join());
+        List<Section> claims = claimsLookup.join();
+        sections.addAll(claims);
+        long unavailable = sections.stream().filter(section -> !section.available()).count();
+        String claimsText = claims.isEmpty()
+                ? sections.get(1).available() ? "Claims: no policies" : "Claims: unavailable (no policy list)"
+                : String.join("\n\n", claims.stream().map(Section::text).toList());
+        return OVERVIEW.render(customerId, sections.get(0).text(), sections.get(1).text(), claimsText,
+                unavailable == 0 ? "" : PARTIAL.render(unavailable, sections.size()));
+    }
+
+    /**
+     * One lookup on a pool thread, completed as unavailable if it fails, runs out of time (and is interrupted)
+     * or finds the pool full.
+     */
+    private CompletableFuture<Section> lookup(String title, Span parent, long deadline, Supplier<String> work) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return CompletableFuture.completedFuture(unavailable(title, "no reply within " + timeout.toMillis() +
+                    " ms"));
+        }
+        CompletableFuture<Section> section = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = LOOKUPS.submit(() -> {
+                try (Span.Scope ignored = parent == null ? null : parent.makeCurrent()) {
+                    section.complete(new Section(work.get(), true));
+                } catch (RuntimeException e) {
+                    // after the timeout this is just the interrupt, already reported as no reply
+                    if (section.complete(unavailable(title, String.valueOf(e.getMessage())))) {
+                        log.warning(title + " lookup failed: " + e.getMessage());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warning(title + " lookup not run: every overview thread is busy");
+            return CompletableFuture.completedFuture(unavailable(title, "too many lookups in progress"));
+        }
+        ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> {
+            if (section.complete(unavailable(title, "no reply within " + timeout.toMillis() + " ms"))) {
+                task.cancel(true);
+            }
+        }, remaining, TimeUnit.NANOSECONDS);
+        section.whenComplete((result, error) -> timer.cancel(false));
+        return section;
+    }
+
+    private static Section unavailable(String title, String reason) {
+        return new Section(UNAVAILABLE.render(title, reason), false);
+    }
+
+    private String call(String agentUrl, String action, Map<String, Object> arguments) {
+        return Tracer.shared().inSpan("call " + action, Span.Kind.CLIENT,
+                () -> transport.callTool(agentUrl, action, arguments));
+    }
+
+    private static Set<String> policyNumbers(Section policies) {
+        Set<String> numbers = new LinkedHashSet<>();
+        if (policies.available()) {
+            Matcher matcher = POLICY_NUMBER.matcher(policies.text());
+            while (matcher.find()) {
+                numbers.add(matcher.group());
+            }
+        }
+        return numbers;
+    }
+
+    private static Duration configuredTimeout() {
+        return Duration.ofMillis(Long.getLong(TIMEOUT_PROPERTY, 3000));
+    }
+
+    /** A bounded pool whose threads retire when idle; a full pool and queue reject, see {@link #lookup}. */
+    private static ThreadPoolExecutor newLookupExecutor() {
+        int threads = Integer.getInteger(THREADS_PROPERTY, 32);
+        AtomicInteger created = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger(QUEUE_PROPERTY, 64)), runnable -> {
+                    Thread thread = new Thread(runnable, "customer-overview-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ScheduledExecutorService newTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "customer-overview-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
@@ -2,39 +2,141 @@ package org.example.customerservice;
 
 import com.t4a.annotations.Action;
 import com.t4a.annotations.Agent;
+import org.example.common.IdGenerator;
+import org.example.common.IdempotencyIndex;
+import org.example.common.ResponseCache;
+import org.example.common.ResponseTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
 @Agent(groupName = "customerServiceOperations")
 @Service
 public class CustomerServiceService {
 
+    private static final ResponseTemplate CUSTOMER_ACCOUNT = ResponseTemplate.compile("Customer Account Information\n" +
+            "Customer ID: %s\n" +
+            "=================================\n" +
+            "Name: John Doe\n" +
+            "Email: john.doe@email.com\n" +
+            "Phone: (555) 123-4567\n" +
+            "Address: 123 Main St, Springfield, IL 62701\n" +
+            "Date of Birth: 1984-05-15\n" +
+            "Customer Since: 2020-03-10\n" +
+            "Account Status: ACTIVE\n" +
+            "Preferred Contact: Email\n" +
+            "Active Policies: 3\n" +
+            "Total Premium: $3,500/year");
+    private static final ResponseTemplate CUSTOMER_UPDATED = ResponseTemplate.compile("Customer information updated successfully.\n" +
+            "Customer ID: %s\n" +
+            "Field Updated: %s\n" +
+            "New Value: %s\n" +
+            "Update Date: %s\n" +
+            "Status: CONFIRMED");
+    private static final ResponseTemplate INQUIRY_RESPONSE = ResponseTemplate.compile("Customer Inquiry Response\n" +
+            "Customer ID: %s\n" +
+            "=================================\n" +
+            "Inquiry Type: %s\n" +
+            "Question: %s\n\n" +
+            "Response:\n%s\n\n" +
+            "Ticket Number: %s\n" +
+            "Agent: Virtual Assistant\n" +
+            "Response Time: %s");
+    private static final ResponseTemplate APPOINTMENT_SCHEDULED = ResponseTemplate.compile("Appointment Scheduled Successfully\n" +
+            "=================================\n" +
+            "Customer ID: %s\n" +
+            "Appointment Type: %s\n" +
+            "Date: %s\n" +
+            "Time: %s\n" +
+            "Duration: %d minutes\n" +
+            "Agent: %s\n" +
+            "Location: Virtual Meeting\n" +
+            "Meeting Link: https://insurance.com/meet/%s\n" +
+            "Confirmation Number: %s\n" +
+            "Reminder: You will receive email and SMS reminders 24 hours before");
+    private static final ResponseTemplate APPOINTMENT_UNAVAILABLE = ResponseTemplate.compile("No Appointment Available\n" +
+            "=================================\n" +
+            "Customer ID: %s\n" +
+            "Appointment Type: %s\n" +
+            "Requested Date: %s\n" +
+            "Every agent is booked for the %d days from the requested date.\n" +
+            "Please choose a later date or call 1-800-555-0100");
+    private static final ResponseTemplate APPOINTMENT_CANCELLED = ResponseTemplate.compile("Appointment Cancelled\n" +
+            "=================================\n" +
+            "Confirmation Number: %s\n" +
+            "Date: %s\n" +
+            "Time: %s\n" +
+            "Agent: %s\n" +
+            "Status: CANCELLED");
+    private static final ResponseTemplate DATE_NOT_RECOGNISED = ResponseTemplate.compile("Unrecognised date: %s\n" +
+            "Please give the date as YYYY-MM-DD, optionally with a time (YYYY-MM-DD HH:MM), or say today or tomorrow");
+    private static final ResponseTemplate APPOINTMENT_NOT_FOUND =
+            ResponseTemplate.compile("No scheduled appointment has confirmation number %s");
+    private static final ResponseTemplate APPOINTMENT_AVAILABILITY = ResponseTemplate.compile("Appointment Availability\n" +
+            "=================================\n" +
+            "Date: %s\n" +
+            "%s" +
+            "Duration: %d minutes");
+    private static final ResponseTemplate AVAILABILITY_LINE = ResponseTemplate.compile("%s: %d of %d agents free\n");
+    private static final ResponseTemplate DOCUMENT_GENERATED = ResponseTemplate.compile("Document Generation Request\n" +
+            "=================================\n" +
+            "Policy Number: %s\n" +
+            "Document Type: %s\n" +
+            "Generation Status: COMPLETED\n" +
+            "Document ID: DOC-%d\n" +
+            "Generated Date: %s\n" +
+            "Download Link: https://insurance.com/docs/download/%d\n" +
+            "Valid Until: %s\n" +
+            "Format: PDF\n" +
+            "Note: Document will be sent to your registered email address");
+    private static final ResponseTemplate PAYMENT_PROCESSED = ResponseTemplate.compile("Payment Processed Successfully\n" +
+            "=================================\n" +
+            "Customer ID: %s\n" +
+            "Policy Number: %s\n" +
+            "Payment Amount: $%.2f\n" +
+            "Payment Method: %s\n" +
+            "Confirmation Number: %s\n" +
+            "Transaction Date: %s\n" +
+            "Next Payment Due: %s\n" +
+            "Status: COMPLETED\n" +
+            "Receipt sent to registered email address");
+    private static final ResponseTemplate FEEDBACK_RECEIVED = ResponseTemplate.compile("Thank you for your feedback!\n" +
+            "=================================\n" +
+            "Feedback ID: %s\n" +
+            "Customer ID: %s\n" +
+            "Rating: %d/5 stars\n" +
+            "Comments: %s\n" +
+            "Submission Date: %s\n" +
+            "Status: RECEIVED\n" +
+            "Thank you for helping us improve our service!");
+
+    private static final Duration APPOINTMENT_LENGTH = Duration.ofMinutes(45);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+
+    private final ResponseCache responses = ResponseCache.withConfiguredSize();
+    private final IdempotencyIndex<String> payments = IdempotencyIndex.withConfiguredTtl();
+    private final AppointmentCalendar appointments = AppointmentCalendar.withConfiguredAgents();
+
     @Action(description = "Get customer account information")
     public String getCustomerAccount(String customerId) {
-        return String.format("Customer Account Information\n" +
-               "Customer ID: %s\n" +
-               "=================================\n" +
-               "Name: John Doe\n" +
-               "Email: john.doe@email.com\n" +
-               "Phone: (555) 123-4567\n" +
-               "Address: 123 Main St, Springfield, IL 62701\n" +
-               "Date of Birth: 1984-05-15\n" +
-               "Customer Since: 2020-03-10\n" +
-               "Account Status: ACTIVE\n" +
-               "Preferred Contact: Email\n" +
-               "Active Policies: 3\n" +
-               "Total Premium: $3,500/year", 
-               customerId);
+        return responses.get("getCustomerAccount", customerId, () -> CUSTOMER_ACCOUNT.render(customerId));
+    }
+
+    @Action(description = "Get a complete customer overview: account, all policies and the claims on each policy")
+    public String getCustomerOverview(String customerId) {
+        return CustomerOverview.shared().render(customerId, () -> getCustomerAccount(customerId));
     }
 
     @Action(description = "Update customer information")
     public String updateCustomerInfo(String customerId, String field, String newValue) {
-        return String.format("Customer information updated successfully.\n" +
-               "Customer ID: %s\n" +
-               "Field Updated: %s\n" +
-               "New Value: %s\n" +
-               "Update Date: %s\n" +
-               "Status: CONFIRMED", 
-               customerId, field, newValue, java.time.LocalDateTime.now());
+        String reply = CUSTOMER_UPDATED.render(customerId, field, newValue, java.time.LocalDateTime.now());
+        responses.invalidate(customerId);
+        return reply;
     }
 
     @Action(description = "Handle customer inquiry")
@@ -63,104 +165,89 @@ public class CustomerServiceService {
                           "will review your question and respond within 24 hours.";
         }
         
-        return String.format("Customer Inquiry Response\n" +
-               "Customer ID: %s\n" +
-               "=================================\n" +
-               "Inquiry Type: %s\n" +
-               "Question: %s\n\n" +
-               "Response:\n%s\n\n" +
-               "Ticket Number: TKT-%d\n" +
-               "Agent: Virtual Assistant\n" +
-               "Response Time: %s", 
-               customerId, inquiryType, question, response,
-               System.currentTimeMillis() % 100000,
-               java.time.LocalDateTime.now());
+        return INQUIRY_RESPONSE.render(customerId, inquiryType, question, response,
+                IdGenerator.shared().nextId("TKT-"),
+                java.time.LocalDateTime.now());
     }
 
-    @Action(description = "Schedule appointment with agent")
+    @Action(description = "Schedule appointment with agent at the earliest free time on or after the preferred date")
     public String scheduleAppointment(String customerId, String appointmentType, String preferredDate) {
-        return String.format("Appointment Scheduled Successfully\n" +
-               "=================================\n" +
-               "Customer ID: %s\n" +
-               "Appointment Type: %s\n" +
-               "Date: %s\n" +
-               "Time: 2:00 PM\n" +
-               "Duration: 45 minutes\n" +
-               "Agent: Sarah Johnson\n" +
-               "Location: Virtual Meeting\n" +
-               "Meeting Link: https://insurance.com/meet/abc123\n" +
-               "Confirmation Number: APT-%d\n" +
-               "Reminder: You will receive email and SMS reminders 24 hours before", 
-               customerId, appointmentType, preferredDate,
-               System.currentTimeMillis() % 100000);
+        LocalDateTime requested = requestedTime(preferredDate);
+        if (requested == null) {
+            return DATE_NOT_RECOGNISED.render(preferredDate);
+        }
+        String confirmationNumber = IdGenerator.shared().nextId("APT-");
+        AppointmentCalendar.Booking booking = appointments.book(confirmationNumber, requested,
+                appointments.slotsFor(APPOINTMENT_LENGTH));
+        if (booking == null) {
+            return APPOINTMENT_UNAVAILABLE.render(customerId, appointmentType, preferredDate,
+                    appointments.searchDays());
+        }
+        return APPOINTMENT_SCHEDULED.render(customerId, appointmentType, booking.date(),
+                TIME.format(appointments.slotTime(booking.slot())), appointments.length(booking).toMinutes(),
+                appointments.agentName(booking.agent()), confirmationNumber.toLowerCase(Locale.ROOT),
+                confirmationNumber);
+    }
+
+    @Action(description = "Cancel a scheduled appointment by its confirmation number")
+    public String cancelAppointment(String confirmationNumber) {
+        // the booking reply also prints the number in lower case, in the meeting link
+        confirmationNumber = confirmationNumber == null ? "" : confirmationNumber.trim().toUpperCase(Locale.ROOT);
+        AppointmentCalendar.Booking booking = appointments.cancel(confirmationNumber);
+        if (booking == null) {
+            return APPOINTMENT_NOT_FOUND.render(confirmationNumber);
+        }
+        return APPOINTMENT_CANCELLED.render(confirmationNumber, booking.date(),
+                TIME.format(appointments.slotTime(booking.slot())), appointments.agentName(booking.agent()));
+    }
+
+    @Action(description = "Check how many agents are free for an appointment at each time of a date")
+    public String getAppointmentAvailability(String date) {
+        LocalDateTime requested = requestedTime(date);
+        if (requested == null) {
+            return DATE_NOT_RECOGNISED.render(date);
+        }
+        LocalDate day = requested.toLocalDate();
+        int slots = appointments.slotsFor(APPOINTMENT_LENGTH);
+        int[] free = appointments.availability(day, slots);
+        StringBuilder lines = new StringBuilder();
+        // today's times that have already started are not offered
+        for (int slot = appointments.firstOpenSlot(day); slot + slots <= free.length; slot++) {
+            AVAILABILITY_LINE.appendTo(lines, TIME.format(appointments.slotTime(slot)), free[slot],
+                    appointments.agents());
+        }
+        return APPOINTMENT_AVAILABILITY.render(day, lines, APPOINTMENT_LENGTH.toMinutes());
     }
 
     @Action(description = "Generate policy documents")
     public String generateDocuments(String policyNumber, String documentType) {
-        return String.format("Document Generation Request\n" +
-               "=================================\n" +
-               "Policy Number: %s\n" +
-               "Document Type: %s\n" +
-               "Generation Status: COMPLETED\n" +
-               "Document ID: DOC-%d\n" +
-               "Generated Date: %s\n" +
-               "Download Link: https://insurance.com/docs/download/%d\n" +
-               "Valid Until: %s\n" +
-               "Format: PDF\n" +
-               "Note: Document will be sent to your registered email address", 
-               policyNumber, documentType, System.currentTimeMillis() % 100000,
-               java.time.LocalDateTime.now(), System.currentTimeMillis() % 100000,
-               java.time.LocalDate.now().plusDays(30));
+        long documentId = IdGenerator.shared().nextId();
+        return DOCUMENT_GENERATED.render(policyNumber, documentType, documentId,
+                java.time.LocalDateTime.now(), documentId,
+                java.time.LocalDate.now().plusDays(30));
     }
 
-    @Action(description = "Process customer payment")
-    public String processPayment(String customerId, String policyNumber, double amount, String paymentMethod) {
-        String confirmationNumber = "PAY-" + (System.currentTimeMillis() % 100000);
-        return String.format("Payment Processed Successfully\n" +
-               "=================================\n" +
-               "Customer ID: %s\n" +
-               "Policy Number: %s\n" +
-               "Payment Amount: $%.2f\n" +
-               "Payment Method: %s\n" +
-               "Confirmation Number: %s\n" +
-               "Transaction Date: %s\n" +
-               "Next Payment Due: %s\n" +
-               "Status: COMPLETED\n" +
-               "Receipt sent to registered email address", 
-               customerId, policyNumber, amount, paymentMethod, confirmationNumber,
-               java.time.LocalDateTime.now(),
-               java.time.LocalDate.now().plusMonths(1));
+    @Action(description = "Process customer payment; a retry with the same idempotency key returns the original payment")
+    public String processPayment(String customerId, String policyNumber, double amount, String paymentMethod,
+                                 String idempotencyKey) {
+        return payments.execute(customerId, idempotencyKey, () -> {
+            String confirmationNumber = IdGenerator.shared().nextId("PAY-");
+            return PAYMENT_PROCESSED.render(customerId, policyNumber, amount, paymentMethod, confirmationNumber,
+                    java.time.LocalDateTime.now(),
+                    java.time.LocalDate.now().plusMonths(1));
+        });
     }
 
     @Action(description = "Submit customer feedback")
     public String submitFeedback(String customerId, int rating, String comments) {
-        String feedbackId = "FDB-" + (System.currentTimeMillis() % 100000);
-        return String.format("Thank you for your feedback!\n" +
-               "=================================\n" +
-               "Feedback ID: %s\n" +
-               "Customer ID: %s\n" +
-               "Rating: %d/5 stars\n" +
-               "Comments: %s\n" +
-               "Submission Date: %s\n" +
-               "Status: RECEIVED\n" +
-               "Thank you for helping us improve our service!", 
-               feedbackId, customerId, rating, comments,
-               java.time.LocalDateTime.now());
+        String feedbackId = IdGenerator.shared().nextId("FDB-");
+        return FEEDBACK_RECEIVED.render(feedbackId, customerId, rating, comments,
+                java.time.LocalDateTime.now());
     }
 
-    @Action(description = "Check service availability")
+    @Action(description = "Check service availability, with the live health of the mesh agents")
     public String checkServiceStatus() {
-        return "Insurance Services Status\n" +
-               "=================================\n" +
-               "Policy Management: OPERATIONAL\n" +
-               "Claims Processing: OPERATIONAL\n" +
-               "Underwriting: OPERATIONAL\n" +
-               "Payment Gateway: OPERATIONAL\n" +
-               "Customer Portal: OPERATIONAL\n" +
-               "Phone Support: OPERATIONAL (24/7)\n" +
-               "Email Support: OPERATIONAL (Response within 4 hours)\n" +
-               "Live Chat: OPERATIONAL (9 AM - 6 PM EST)\n" +
-               "Last Update: " + java.time.LocalDateTime.now();
+        return ServiceStatus.render();
     }
 
     @Action(description = "Get customer support options")
@@ -186,4 +273,37 @@ public class CustomerServiceService {
                "5. EMERGENCY SUPPORT\n" +
                "   24/7 Emergency Claims: 1-800-555-9999";
     }
+
+    /**
+     * The time an appointment is asked for: an ISO date or date-time (with a {@code T} or a space before the
+     * time), "today" or "tomorrow"; no date at all means as soon as possible.
+     *
+     * @return {@code null} if the date is not one of those, so nothing is booked for a time no one asked for
+     */
+    static LocalDateTime requestedTime(String preferredDate) {
+        String text = preferredDate == null ? "" : preferredDate.trim();
+        if (text.isEmpty()) {
+            return LocalDateTime.now();
+        }
+        if (text.equalsIgnoreCase("today")) {
+            return LocalDate.now().atStartOfDay();
+        }
+        if (text.equalsIgnoreCase("tomorrow")) {
+            return LocalDate.now().plusDays(1).atStartOfDay();
+        }
+        try {
+            return text.length() > 10 ? LocalDateTime.parse(text.replaceFirst("^(\\d{4}-\\d{2}-\\d{2}) +", "$1T"))
+                    : LocalDate.parse(text).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public ResponseCache.Stats responseCacheStats() {
+        return responses.stats();
+    }
+
+    public IdempotencyIndex.Stats paymentIdempotencyStats() {
+        return payments.stats();
+    }
 }
@@ -0,0 +1,71 @@
+package org.example.customerservice;
+
+import org.example.common.ResponseTemplate;
+import org.example.insuranceclient.ReplicaBalancer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The service status report, with the mesh agents' lines taken from the health the JVM wide
+ * {@link ReplicaBalancer} keeps for them (the same one the customer overview calls through) rather than
+ * assumed. Customer service itself is answering, so its portal is up; the other lines are services outside
+ * the mesh.
+ * <p>
+ * The report never waits for an agent: the balancer's background probes keep the health current, and an
+ * agent they have not reached yet is reported as unknown. {@link #watchAgents()} registers the agents at
+ * startup so that a report rarely finds one unprobed.
+ */
+public final class ServiceStatus {
+
+    public static final String UNDERWRITING_URL_PROPERTY = "customer.status.underwriting.url";
+
+    private static final ResponseTemplate AGENT_LINE = ResponseTemplate.compile("%s: %s (%d of %d replicas up%s)\n");
+    private static final ResponseTemplate LATENCY = ResponseTemplate.compile(", %.0f ms");
+    private static final ResponseTemplate UNKNOWN_LINE = ResponseTemplate.compile("%s: UNKNOWN (not checked yet)\n");
+    private static final ResponseTemplate REPORT = ResponseTemplate.compile("Insurance Services Status\n" +
+            "=================================\n" +
+            "%s" +
+            "Payment Gateway: OPERATIONAL\n" +
+            "Customer Portal: OPERATIONAL\n" +
+            "Phone Support: OPERATIONAL (24/7)\n" +
+            "Email Support: OPERATIONAL (Response within 4 hours)\n" +
+            "Live Chat: OPERATIONAL (9 AM - 6 PM EST)\n" +
+            "Last Update: %s");
+
+    private ServiceStatus() {
+    }
+
+    public static String underwritingUrl() {
+        return System.getProperty(UNDERWRITING_URL_PROPERTY, "http://localhost:7873/");
+    }
+
+    /** Has the shared balancer probe the agents in the report from now on. */
+    public static void watchAgents() {
+        ReplicaBalancer.shared().watch(agents().values());
+    }
+
+    static String render() {
+        StringBuilder lines = new StringBuilder();
+        agents().forEach((name, url) -> {
+            ReplicaBalancer.AgentHealth health = ReplicaBalancer.shared().health(url);
+            if (!health.probed()) {
+                UNKNOWN_LINE.appendTo(lines, name);
+                return;
+            }
+            double latency = health.latencyMillis();
+            AGENT_LINE.appendTo(lines, name, health.status(), health.upCount(), health.replicas().size(),
+                    latency > 0 ? LATENCY.render(latency) : "");
+        });
+        return REPORT.render(lines, java.time.LocalDateTime.now());
+    }
+
+    /** The agents in the report, by name. */
+    private static Map<String, String> agents() {
+        Map<String, String> agents = new LinkedHashMap<>();
+        agents.put("Policy Management", CustomerOverview.policyUrl());
+        agents.put("Claims Processing", CustomerOverview.claimsUrl());
+        agents.put("Underwriting", underwritingUrl());
+        return agents;
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.insuranceclient;
+
+import com.t4a.annotations.Action;
+import com.t4a.annotations.Agent;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BM25 index over the {@code @Agent(groupName)} and {@code @Action(description)} metadata of the agent
+ * services, for routing queries without a model.
+ * <p>
+ * Each action is one document made of its description, its method and parameter names split at case
+ * changes, and its agent's group name. The BM25 weight of every (term, action) pair is computed when the
+ * index is built, so scoring a query is a sum over the postings of its terms.
+ */
+public final class ActionIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "for", "of", "to", "and", "or", "in",
+            "on", "with", "my", "me", "i", "is", "are", "be", "what", "please", "can", "could", "you", "this",
+            "that", "by", "at", "from", "it", "its", "their", "his", "her", "our", "your", "we", "do", "does",
+            "any", "all", "some", "would", "like", "want", "need", "about", "s");
+    /** Folds common wordings onto the vocabulary of the descriptions; id prefixes name their entity. */
+    private static final Map<String, String> SYNONYMS = Map.ofEntries(
+            Map.entry("file", "submit"), Map.entry("lodge", "submit"), Map.entry("show", "get"),
+            Map.entry("view", "get"), Map.entry("fetch", "get"), Map.entry("retrieve", "get"),
+            Map.entry("quote", "premium"), Map.entry("pay", "payment"), Map.entry("pol", "policy"),
+            Map.entry("clm", "claim"), Map.entry("cust", "customer"), Map.entry("app", "application"));
+
+    /** One {@code @Action} method and the agent that serves it. */
+    public record Entry(String agentUrl, String groupName, Method method, String description) {
+    }
+
+    /** A scored action; {@code score} is the BM25 score of the query against the action's document. */
+    public record Match(Entry entry, double score) {
+    }
+
+    private final Entry[] entries;
+    private final Map<String, int[]> postingDocs = new HashMap<>();
+    private final Map<String, double[]> postingWeights = new HashMap<>();
+
+    private ActionIndex(List<Entry> actions) {
+        entries = actions.toArray(new Entry[0]);
+        List<List<String>> documents = new ArrayList<>();
+        double totalLength = 0;
+        for (Entry entry : entries) {
+            StringBuilder text = new StringBuilder(entry.description()).append(' ')
+                    .append(splitCamelCase(entry.method().getName())).append(' ')
+                    .append(splitCamelCase(entry.groupName()));
+            for (Parameter parameter : entry.method().getParameters()) {
+                text.append(' ').append(splitCamelCase(parameter.getName()));
+            }
+            List<String> terms = terms(text.toString());
+            documents.add(terms);
+            totalLength += terms.size();
+        }
+        double averageLength = entries.length == 0 ? 1 : totalLength / entries.length;
+
+        Map<String, Map<Integer, Integer>> frequencies = new HashMap<>();
+        for (int doc = 0; doc < documents.size(); doc++) {
+            for (String term : documents.get(doc)) {
+                frequencies.computeIfAbsent(term, t -> new HashMap<>()).merge(doc, 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<String, Map<Integer, Integer>> term : frequencies.entrySet()) {
+            int documentCount = term.getValue().size();
+            double idf = Math.log(1 + (entries.length - documentCount + 0.5) / (documentCount + 0.5));
+            int[] docs = new int[documentCount];
+            double[] weights = new double[documentCount];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> posting : term.getValue().entrySet()) {
+                int doc = posting.getKey();
+                double tf = posting.getValue();
+                double norm = K1 * (1 - B + B * documents.get(doc).size() / averageLength);
+                docs[i] = doc;
+                weights[i++] = idf * tf * (K1 + 1) / (tf + norm);
+            }
+            postingDocs.put(term.getKey(), docs);
+            postingWeights.put(term.getKey(), weights);
+        }
+    }
+
+    /**
+     * Indexes the {@code @Action} methods of each {@code @Agent} service class.
+     *
+     * @param agents service class and the URL of the agent that hosts it
+     */
+    public static ActionIndex of(Map<Class<?>, String> agents) {
+        List<Entry> actions = new ArrayList<>();
+        for (Map.Entry<Class<?>, String> agent : agents.entrySet()) {
+            Agent group = agent.getKey().getAnnotation(Agent.class);
+            String groupName = group != null ? group.groupName() : agent.getKey().getSimpleName();
+            Method[] methods = agent.getKey().getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                Action action = method.getAnnotation(Action.class);
+                if (action != null) {
+                    actions.add(new Entry(agent.getValue(), groupName, method, action.description()));
+                }
+            }
+        }
+        return new ActionIndex(actions);
+    }
+
+    /** The best {@code limit} actions for {@code query}, highest score first; actions scoring zero are left out. */
+    public List<Match> search(String query, int limit) {
+        double[] scores = new double[entries.length];
+        for (String term : terms(query)) {
+            int[] docs = postingDocs.get(term);
+            if (docs != null) {
+                double[] weights = postingWeights.get(term);
+                for (int i = 0; i < docs.length; i++) {
+                    scores[docs[i]] += weights[i];
+                }
+            }
+        }
+        List<Match> matches = new ArrayList<>(limit);
+        for (int n = 0; n < limit; n++) {
+            int best = -1;
+            for (int doc = 0; doc < scores.length; doc++) {
+                if (scores[doc] > 0 && (best < 0 || scores[doc] > scores[best])) {
+                    best = doc;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            matches.add(new Match(entries[best], scores[best]));
+            scores[best] = 0;
+        }
+        return matches;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /** Lower-cased, stop-word free and lightly stemmed words of {@code text}. */
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (word.isEmpty() || STOP_WORDS.contains(word) || Character.isDigit(word.charAt(0))) {
+                continue;
+            }
+            String term = stem(word);
+            terms.add(SYNONYMS.getOrDefault(term, term));
+        }
+        return terms;
+    }
+
+    static String stem(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us")
+                && !word.endsWith("is")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    static String splitCamelCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1 $2");
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.insuranceclient;
+
+/**
+ * An agent turned a call away because it is at its concurrency limit (HTTP 503). The agent is healthy, so the
+ * call can go to another replica, or be retried after {@link #retryAfterMillis()}; falling back to a slower
+ * path would only add load where there is none to spare.
+ */
+public final class AgentBusyException extends IllegalStateException {
+
+    private final long retryAfterMillis;
+
+    public AgentBusyException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long retryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.insuranceclient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.java.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The actions of every mesh agent, as the agents list them, for routing decisions that need the whole
+ * catalog (the LLM's tool list).
+ * <p>
+ * Agents are listed concurrently, so discovery takes as long as the slowest agent rather than the sum of
+ * all of them. With a snapshot file, each successful discovery is written to it and a restart
+ * {@link #warmStart() warm starts} from it: the catalog is usable as soon as the file is read, and the agents
+ * are listed again in the background, replacing the catalog (and the file) when they answer. An agent that
+ * cannot be listed keeps its snapshot entry until it can.
+ */
+@Log
+public final class AgentDirectory {
+
+    public static final String SNAPSHOT_PROPERTY = "mesh.catalog.snapshot";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int VERSION = 1;
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ExecutorService DISCOVERY = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "agent-discovery-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<String> agentUrls;
+    private final ToolTransport transport;
+    private final Path snapshot;
+    private volatile Map<String, List<MeshTool>> agents = Map.of();
+    private volatile CompletableFuture<Void> refresh;
+
+    /**
+     * @param snapshot the file discoveries are kept in between runs, or {@code null} to list the agents on
+     *                 every start
+     */
+    public AgentDirectory(List<String> agentUrls, ToolTransport transport, Path snapshot) {
+        this.agentUrls = List.copyOf(agentUrls);
+        this.transport = transport;
+        this.snapshot = snapshot;
+    }
+
+    /** A directory kept in {@code -Dmesh.catalog.snapshot} (default {@code data/mesh-catalog.json}). */
+    public static AgentDirectory withConfiguredSnapshot(List<String> agentUrls, ToolTransport transport) {
+        String file = System.getProperty(SNAPSHOT_PROPERTY, "data/mesh-catalog.json");
+        return new AgentDirectory(agentUrls, transport, file.isBlank() ? null : Path.of(file));
+    }
+
+    /**
+     * Loads the snapshot, if there is one, and starts listing the agents in the background either way.
+     *
+     * @return the number of agents loaded from the snapshot
+     */
+    public int warmStart() {
+        int loaded = 0;
+        if (snapshot != null && Files.exists(snapshot)) {
+            try {
+                Map<String, List<MeshTool>> read = read(snapshot);
+                read.keySet().retainAll(agentUrls);
+                agents = Collections.unmodifiableMap(read);
+                loaded = read.size();
+            } catch (IOException | RuntimeException e) {
+                log.warning("Could not read the agent snapshot " + snapshot + ", discovering the agents: " +
+                        e.getMessage());
+            }
+        }
+        refresh();
+        return loaded;
+    }
+
+    /**
+     * The actions of every agent known so far. Before any agent is known this waits for a discovery, started
+     * if none is running, so the first query sees the catalog; it is retried while no agent could be listed.
+     */
+    public List<MeshTool> tools() {
+        Map<String, List<MeshTool>> known = agents;
+        if (known.isEmpty()) {
+            refresh().join();
+            known = agents;
+        }
+        List<MeshTool> tools = new ArrayList<>();
+        known.values().forEach(tools::addAll);
+        return tools;
+    }
+
+    /** Lists every agent concurrently, unless a listing is already running; completes when it is done. */
+    public synchronized CompletableFuture<Void> refresh() {
+        if (refresh == null || refresh.isDone()) {
+            refresh = discover();
+        }
+        return refresh;
+    }
+
+    private CompletableFuture<Void> discover() {
+        Map<String, CompletableFuture<List<MeshTool>>> listings = new LinkedHashMap<>();
+        for (String agentUrl : agentUrls) {
+            listings.put(agentUrl, CompletableFuture.supplyAsync(() -> transport.listTools(agentUrl), DISCOVERY)
+                    .exceptionally(e -> {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        log.warning("Could not list the actions of " + agentUrl + ": " + cause.getMessage());
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(listings.values().toArray(new CompletableFuture[0])).thenRun(() -> {
+            Map<String, List<MeshTool>> discovered = new LinkedHashMap<>();
+            Map<String, List<MeshTool>> previous = agents;
+            boolean changed = false;
+            for (Map.Entry<String, CompletableFuture<List<MeshTool>>> listing : listings.entrySet()) {
+                List<MeshTool> tools = listing.getValue().join();
+                if (tools != null) {
+                    discovered.put(listing.getKey(), List.copyOf(tools));
+                    changed |= !tools.equals(previous.get(listing.getKey()));
+                } else if (previous.containsKey(listing.getKey())) {
+                    discovered.put(listing.getKey(), previous.get(listing.getKey()));
+                }
+            }
+            agents = Collections.unmodifiableMap(discovered);
+            if (changed && snapshot != null) {
+                try {
+                    write(discovered, snapshot);
+                } catch (IOException e) {
+                    log.warning("Could not write the agent snapshot " + snapshot + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    static Map<String, List<MeshTool>> read(Path file) throws IOException {
+        JsonNode root = JSON.readTree(file.toFile());
+        if (root.path("version").asInt() != VERSION) {
+            throw new IOException("Unsupported snapshot version " + root.path("version"));
+        }
+        Map<String, List<MeshTool>> agents = new LinkedHashMap<>();
+        root.path("agents").fields().forEachRemaining(agent -> {
+            List<MeshTool> tools = new ArrayList<>();
+            for (JsonNode tool : agent.getValue()) {
+                List<String> parameters = new ArrayList<>();
+                tool.path("parameters").forEach(parameter -> parameters.add(parameter.asText()));
+                tools.add(new MeshTool(agent.getKey(), tool.path("name").asText(),
+                        tool.path("description").asText(), List.copyOf(parameters)));
+            }
+            agents.put(agent.getKey(), List.copyOf(tools));
+        });
+        return agents;
+    }
+
+    /** Writes the snapshot atomically, so a crash leaves the previous one. */
+    static void write(Map<String, List<MeshTool>> agents, Path file) throws IOException {
+        ObjectNode root = JSON.createObjectNode().put("version", VERSION);
+        ObjectNode agentsNode = root.putObject("agents");
+        agents.forEach((agentUrl, tools) -> {
+            ArrayNode toolsNode = agentsNode.putArray(agentUrl);
+            for (MeshTool tool : tools) {
+                ObjectNode toolNode = toolsNode.addObject()
+                        .put("name", tool.name())
+                        .put("description", tool.description());
+                tool.parameters().forEach(toolNode.putArray("parameters")::add);
+            }
+        });
+        Path absolute = file.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        JSON.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), root);
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.insuranceclient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Measures the client's time to first query against the agent catalog it needs: listing every agent one
+ * after another (as the client used to), listing them concurrently with an empty {@link AgentDirectory}
+ * snapshot (cold start), and reading the snapshot with the listing left to the background (warm start).
+ * <p>
+ * The query is routed the way the LLM resolver routes one, with the whole catalog in hand, and answered in
+ * process. Agents are simulated, 4 and 100 of them, each serving the actions of one of the four services
+ * and taking {@code fetchMillis} to list them, standing in for fetching and parsing an agent card over
+ * HTTP; every run starts from a fresh directory, so nothing is cached between runs other than the file.
+ * <p>
+ * Usage: {@code CatalogStartupProbe [fetchMillis] [runs]} (default 40 ms per listing, median of 5 runs).
+ */
+public final class CatalogStartupProbe {
+
+    private static final String QUERY = "Get customer account information for customer ID CUST-12345";
+
+    private CatalogStartupProbe() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long fetchMillis = args.length > 0 ? Long.parseLong(args[0]) : 40;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        InProcessToolTransport services = new InProcessToolTransport(
+                MeshAgents.instances(CatalogStartupProbe::newInstance));
+
+        System.out.printf("Time to first query, listing each agent takes %d ms (median of %d runs)%n", fetchMillis,
+                runs);
+        System.out.printf("%-8s %16s %16s %12s%n", "Agents", "Sequential cold", "Concurrent cold", "Warm");
+        for (int agentCount : List.of(4, 100)) {
+            SimulatedAgents agents = new SimulatedAgents(services, agentCount, fetchMillis);
+            Path snapshot = Files.createTempFile("mesh-catalog", ".json");
+            try {
+                double sequential = median(runs, () -> firstQuery(agents, () -> listSequentially(agents)));
+                double cold = median(runs, () -> {
+                    delete(snapshot);
+                    AgentDirectory directory = new AgentDirectory(agents.urls(), agents, snapshot);
+                    return firstQuery(agents, () -> {
+                        directory.warmStart();
+                        return directory.tools();
+                    });
+                });
+                double warm = median(runs, () -> {
+                    AgentDirectory directory = new AgentDirectory(agents.urls(), agents, snapshot);
+                    return firstQuery(agents, () -> {
+                        directory.warmStart();
+                        return directory.tools();
+                    });
+                });
+                System.out.printf("%-8d %13.1f ms %13.1f ms %9.1f ms%n", agentCount, sequential, cold, warm);
+            } finally {
+                delete(snapshot);
+            }
+        }
+    }
+
+    /** Milliseconds from an empty catalog to the first query's reply. */
+    private static double firstQuery(SimulatedAgents agents, Supplier<List<MeshTool>> catalog) {
+        long start = System.nanoTime();
+        List<MeshTool> tools = catalog.get();
+        MeshTool account = tools.stream().filter(tool -> tool.name().equals("getCustomerAccount")).findFirst()
+                .orElseThrow(() -> new IllegalStateException("The catalog has no getCustomerAccount action"));
+        RoutingMeshClient mesh = new RoutingMeshClient(agents.urls(), agents,
+                (query, ignored) -> new RouteResolver.Resolution(account.agentUrl(), account.name(),
+                        Map.of("customerId", "CUST-12345")),
+                new RoutingCache(1, 1), query -> {
+                    throw new IllegalStateException("No route for: " + query);
+                });
+        mesh.apply(QUERY);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static List<MeshTool> listSequentially(SimulatedAgents agents) {
+        List<MeshTool> tools = new ArrayList<>();
+        for (String url : agents.urls()) {
+            tools.addAll(agents.listTools(url));
+        }
+        return tools;
+    }
+
+    private static double median(int runs, Supplier<Double> run) {
+        double[] millis = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = run.get();
+        }
+        Arrays.sort(millis);
+        return millis[runs / 2];
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + type.getName(), e);
+        }
+    }
+
+    /** {@code count} agents, each answering for one of the four services after a listing delay. */
+    private static final class SimulatedAgents implements ToolTransport {
+        private final InProcessToolTransport services;
+        private final Map<String, String> serviceUrls = new LinkedHashMap<>();
+        private final long fetchMillis;
+
+        SimulatedAgents(InProcessToolTransport services, int count, long fetchMillis) {
+            this.services = services;
+            this.fetchMillis = fetchMillis;
+            for (int i = 0; i < count; i++) {
+                serviceUrls.put(String.format("http://agent-%03d.mesh/", i), MeshAgents.URLS.get(i % 4));
+            }
+        }
+
+        List<String> urls() {
+            return List.copyOf(serviceUrls.keySet());
+        }
+
+        @Override
+        public List<MeshTool> listTools(String agentUrl) {
+            try {
+                Thread.sleep(fetchMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Listing " + agentUrl + " was interrupted", e);
+            }
+            List<MeshTool> tools = new ArrayList<>();
+            for (MeshTool tool : services.listTools(serviceUrls.get(agentUrl))) {
+                tools.add(new MeshTool(agentUrl, tool.name(), tool.description(), tool.parameters()));
+            }
+            return tools;
+        }
+
+        @Override
+        public String callTool(String agentUrl, String action, Map<String, Object> arguments) {
+            return services.callTool(serviceUrls.get(agentUrl), action, arguments);
+        }
+    }
+}
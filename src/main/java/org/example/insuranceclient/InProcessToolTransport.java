@@ -0,0 +1,96 @@
+package org.example.insuranceclient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.t4a.annotations.Action;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calls agent services living in the same JVM through their {@code @Action} methods, for the consolidated
+ * mesh. Arguments are converted to the parameter types the way the JSON-RPC endpoint would convert them,
+ * so a route works the same over either transport, but there is no HTTP request, JSON body or thread hop.
+ */
+public final class InProcessToolTransport implements ToolTransport {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private record Target(Object service, Method method) {
+    }
+
+    private final Map<String, List<MeshTool>> tools = new HashMap<>();
+    private final Map<String, Target> targets = new HashMap<>();
+
+    /**
+     * @param services agent URL (as in the four-server layout) and the service instance that answers for it
+     */
+    public InProcessToolTransport(Map<String, Object> services) {
+        for (Map.Entry<String, Object> agent : services.entrySet()) {
+            List<MeshTool> agentTools = new ArrayList<>();
+            for (Method method : userClass(agent.getValue()).getMethods()) {
+                Action action = method.getAnnotation(Action.class);
+                if (action == null) {
+                    continue;
+                }
+                List<String> parameters = new ArrayList<>();
+                for (Parameter parameter : method.getParameters()) {
+                    parameters.add(parameter.getName());
+                }
+                agentTools.add(new MeshTool(agent.getKey(), method.getName(), action.description(), parameters));
+                targets.put(key(agent.getKey(), method.getName()), new Target(agent.getValue(), method));
+            }
+            tools.put(agent.getKey(), List.copyOf(agentTools));
+        }
+    }
+
+    @Override
+    public List<MeshTool> listTools(String agentUrl) {
+        List<MeshTool> agentTools = tools.get(agentUrl);
+        if (agentTools == null) {
+            throw new IllegalStateException("No agent is hosted in process for " + agentUrl);
+        }
+        return agentTools;
+    }
+
+    @Override
+    public String callTool(String agentUrl, String action, Map<String, Object> arguments) {
+        Target target = targets.get(key(agentUrl, action));
+        if (target == null) {
+            throw new IllegalStateException("Action " + action + " is not hosted in process for " + agentUrl);
+        }
+        Parameter[] parameters = target.method().getParameters();
+        Object[] values = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Object value = arguments.get(parameters[i].getName());
+            if (value == null && parameters[i].getType().isPrimitive()) {
+                throw new IllegalStateException("Action " + action + " is missing " + parameters[i].getName());
+            }
+            values[i] = JSON.convertValue(value, parameters[i].getType());
+        }
+        try {
+            return String.valueOf(target.method().invoke(target.service(), values));
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Action " + action + " failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Action " + action + " is not accessible", e);
+        }
+    }
+
+    private static String key(String agentUrl, String action) {
+        return agentUrl + '#' + action;
+    }
+
+    /** The service's own class, looking through subclasses generated for Spring proxies. */
+    private static Class<?> userClass(Object service) {
+        Class<?> type = service.getClass();
+        while (type.getName().contains("$$") && type.getSuperclass() != null) {
+            type = type.getSuperclass();
+        }
+        return type;
+    }
+}
@@ -4,73 +4,169 @@ package org.example.insuranceclient;
 import io.github.vishalmysore.mesh.AgentCatalog;
 import io.github.vishalmysore.mesh.AgenticMesh;
 import lombok.extern.java.Log;
+import org.example.common.CompactReply;
+import org.example.common.tracing.Span;
+import org.example.common.tracing.Tracer;
+import org.example.consolidated.ConsolidatedMeshServer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * Insurance Mesh Client demonstrating integration of multiple insurance domain agents
+ * Insurance Mesh Client demonstrating integration of multiple insurance domain agents.
+ * <p>
+ * The first argument selects how the demo queries run: {@code parallel} (default) sends independent
+ * queries concurrently through a {@link ScatterGatherClient}, {@code sequential} sends them one after
+ * another, and {@code compare} runs both plus {@code pipeLineMesh} and prints a {@link MeshTimingReport}.
+ * {@code stream} prints each reply the moment it arrives rather than in plan order, and {@code serve}
+ * serves queries as Server-Sent Events through a {@link MeshStreamServer} until the process is stopped.
+ * With {@code -Dmesh.routing.cache=true} queries go through a {@link RoutingMeshClient}, which skips the
+ * LLM routing step for queries shaped like one it has already routed. {@code -Dmesh.router=local} routes
+ * with a {@link LocalActionRouter} instead, asking the LLM only about queries it finds ambiguous (and only
+ * when an API key is configured). With {@code -Dmesh.consolidated=true} the client starts the
+ * {@link ConsolidatedMeshServer} in its own JVM and routed actions are called on its services directly
+ * through an {@link InProcessToolTransport} rather than over HTTP. Otherwise routed actions go through a
+ * {@link ReplicaBalancer}, which spreads them over the replicas given with {@code -Dmesh.replicas}; queries
+ * answered by {@code AgentCatalog} itself still go to the one URL each agent is registered with.
+ * <p>
+ * Agents are registered with {@code AgentCatalog} in the background, and only the queries it answers wait for
+ * that. Routed queries use an {@link AgentDirectory} instead, which lists the agents concurrently and warm
+ * starts from the snapshot in {@code -Dmesh.catalog.snapshot}.
+ * <p>
+ * Every query is a trace root when tracing is configured (see {@link Tracer}). Queries answered by
+ * {@code processQuery} and {@code pipeLineMesh} are recorded as one span each, since tools4ai makes their
+ * agent calls without the trace context; queries sent by the {@link RoutingMeshClient} carry it into the
+ * agents, whose request, routing and action spans join the query's trace.
+ * <p>
+ * With {@code -Dmesh.reply.format=compact} the agents are asked for {@link CompactReply} JSON, which is what
+ * a dependent step quotes into its query; replies are laid out as text again when they are printed.
  */
 @Log
 public class InsuranceMeshClient {
-    public static void main(String[] args) {
+
+    private static final Duration QUERY_TIMEOUT = Duration.ofSeconds(
+            Long.getLong("mesh.query.timeout.seconds", 120));
+    private static final String COMPLEX_QUERY =
+            "For customer CUST-12345, check their active policies, assess if they need additional coverage, " +
+            "and show any pending claims";
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "parallel";
         log.info("Initializing Insurance Agentic Mesh...");
-        
+        Tracer tracer = Tracer.configureShared("InsuranceMeshClient");
+
+        boolean consolidated = Boolean.getBoolean("mesh.consolidated");
+        ConfigurableApplicationContext agents = consolidated ? ConsolidatedMeshServer.start() : null;
+
         AgentCatalog agentCatalog = new AgentCatalog();
-        
-        // Add all insurance domain agents to the mesh
-        agentCatalog.addAgent("http://localhost:7871/"); // Policy Management Server
-        agentCatalog.addAgent("http://localhost:7872/"); // Claims Processing Server
-        agentCatalog.addAgent("http://localhost:7873/"); // Underwriting Server
-        agentCatalog.addAgent("http://localhost:7874/"); // Customer Service Server
-        
-        log.info("Insurance Mesh initialized with 4 specialized agents");
-        
-        // Example: Complex insurance workflow
-        System.out.println("\n=== Insurance Mesh Demo ===\n");
-        
-        // 1. Get customer information
-        String customerInfo = agentCatalog.processQuery("Get customer account information for customer ID CUST-12345")
-            .getTextResult();
-        System.out.println("Customer Information:\n" + customerInfo);
-        
-        // 2. Assess risk for new policy
-        String riskAssessment = agentCatalog.processQuery(
-            "Assess risk for John Doe, 42 years old, good health, software engineer, non-smoker")
-            .getTextResult();
-        System.out.println("\nRisk Assessment:\n" + riskAssessment);
-        
-        // 3. Create a policy
-        String policyResult = agentCatalog.processQuery(
-            "Create a life insurance policy for John Doe with $500,000 coverage")
-            .getTextResult();
-        System.out.println("\nPolicy Creation:\n" + policyResult);
-        
-        // 4. Submit a claim
-        String claimResult = agentCatalog.processQuery(
-            "Submit a medical claim for policy POL-12345, claim amount $5000, for emergency surgery")
-            .getTextResult();
-        System.out.println("\nClaim Submission:\n" + claimResult);
-        
-        // Complex cross-domain query
-        String complexQuery = agentCatalog.processQuery(
-            "For customer CUST-12345, check their active policies, assess if they need additional coverage, " +
-            "and show any pending claims")
-            .getTextResult();
-        System.out.println("\nComplex Query Result:\n" + complexQuery);
-        
-        log.info("Insurance Mesh demo completed");
 
-        AgenticMesh agenticMesh = new AgenticMesh(agentCatalog);
+        // Add all insurance domain agents to the mesh, off the main thread: routed queries don't need the
+        // catalog, and those that do wait for it
+        CompletableFuture<Void> registration = CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            if (consolidated) {
+                agentCatalog.addAgent(MeshAgents.CONSOLIDATED_URL);
+            } else {
+                MeshAgents.URLS.forEach(agentCatalog::addAgent);
+            }
+            log.info((consolidated ? "Insurance Mesh initialized with 4 specialized agents in process"
+                    : "Insurance Mesh initialized with 4 specialized agents") + " in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+        });
 
+        // Example: Complex insurance workflow. None of these depend on each other, so in parallel mode
+        // the total latency is that of the slowest query rather than the sum of all of them.
+        QueryPlan demo = new QueryPlan()
+                .add("Customer Information", "Get customer account information for customer ID CUST-12345")
+                .add("Risk Assessment",
+                        "Assess risk for John Doe, 42 years old, good health, software engineer, non-smoker")
+                .add("Policy Creation", "Create a life insurance policy for John Doe with $500,000 coverage")
+                .add("Claim Submission",
+                        "Submit a medical claim for policy POL-12345, claim amount $5000, for emergency surgery")
+                .add("Complex Query Result", COMPLEX_QUERY);
 
-         complexQuery = agentCatalog.processQuery(
-                        "For customer CUST-12345, check their active policies, assess if they need additional coverage, " +
-                                "and show any pending claims")
-                .getTextResult();
-        System.out.println("\nComplex Query Result:\n" + complexQuery);
-        complexQuery= agenticMesh.pipeLineMesh("For customer CUST-12345, check their active policies, assess if they need additional coverage, " +
-                "and show any pending claims").getTextResult();
-        System.out.println("\nComplex Query Result:\n" + complexQuery);
+        AgenticMesh agenticMesh = new AgenticMesh(agentCatalog);
+        Function<String, String> processQuery = query -> tracer.inSpan("processQuery", Span.Kind.CLIENT, () -> {
+            registration.join();
+            return agentCatalog.processQuery(query).getTextResult();
+        });
+        Supplier<String> pipeline = () -> tracer.inSpan("pipeLineMesh", Span.Kind.CLIENT, () -> {
+            registration.join();
+            return agenticMesh.pipeLineMesh(COMPLEX_QUERY).getTextResult();
+        });
+        RoutingMeshClient routing = null;
+        ReplicaBalancer balancer = null;
+        String router = System.getProperty("mesh.router", "llm");
+        if (consolidated || Boolean.getBoolean("mesh.routing.cache") || router.equalsIgnoreCase("local")) {
+            LlmRouteResolver llm = LlmRouteResolver.fromToolsProperties(QUERY_TIMEOUT);
+            RouteResolver resolver = router.equalsIgnoreCase("local")
+                    ? new LocalActionRouter(ActionIndex.of(MeshAgents.SERVICES), llm.isConfigured() ? llm : null)
+                    : llm;
+            ToolTransport transport;
+            if (consolidated) {
+                transport = new InProcessToolTransport(MeshAgents.instances(agents::getBean));
+            } else {
+                balancer = ReplicaBalancer.withConfiguredReplicas(new MeshToolClient(QUERY_TIMEOUT), MeshAgents.URLS)
+                        .start();
+                transport = balancer;
+            }
+            AgentDirectory directory = consolidated
+                    ? new AgentDirectory(MeshAgents.URLS, transport, null)
+                    : AgentDirectory.withConfiguredSnapshot(MeshAgents.URLS, transport);
+            log.info("Agent catalog: " + directory.warmStart() + " agents loaded from the snapshot");
+            routing = new RoutingMeshClient(directory, transport, resolver,
+                    new RoutingCache(Integer.getInteger("mesh.routing.cache.size", 1024),
+                            TimeUnit.MINUTES.toNanos(Long.getLong("mesh.routing.cache.ttl.minutes", 60))),
+                    processQuery);
+        }
+        // routed queries pass each step's idempotency key on to the actions
+        BiFunction<String, String, String> mesh = routing != null ? routing::apply
+                : (query, idempotencyKey) -> processQuery.apply(query);
+        try (ScatterGatherClient client = new ScatterGatherClient(mesh, QUERY_TIMEOUT)) {
+            System.out.println("\n=== Insurance Mesh Demo (" + mode + ") ===\n");
+            if (mode.equalsIgnoreCase("serve")) {
+                MeshStreamServer server = new MeshStreamServer(
+                        Integer.getInteger("mesh.stream.port", MeshStreamServer.DEFAULT_PORT), client).start();
+                System.out.println("Streaming mesh queries at " + server.url() + "?q=...");
+                Thread.currentThread().join();
+            } else if (mode.equalsIgnoreCase("stream")) {
+                client.execute(demo, outcome -> print(Map.of(outcome.name(), outcome)));
+            } else if (mode.equalsIgnoreCase("compare")) {
+                MeshTimingReport report = MeshTimingReport.measure(client, demo, pipeline);
+                print(report.scatterGather());
+                System.out.println("\nPipeline Mesh Result:\n" + CompactReply.expand(report.pipelineResult()));
+                System.out.println("\n" + report.render());
+            } else {
+                print(mode.equalsIgnoreCase("sequential") ? client.executeSequentially(demo) : client.execute(demo));
+                String complexQuery = pipeline.get();
+                System.out.println("\nComplex Query Result:\n" + CompactReply.expand(complexQuery));
+            }
+        }
 
+        if (routing != null) {
+            log.info(routing.stats().toString());
+        }
+        if (balancer != null) {
+            balancer.health().forEach(health -> log.info(health.toString()));
+            balancer.close();
+        }
+        if (agents != null) {
+            agents.close();
+        }
+        tracer.flush();
         log.info("Insurance Mesh demo completed");
+    }
 
+    private static void print(Map<String, QueryOutcome> outcomes) {
+        for (QueryOutcome outcome : outcomes.values()) {
+            System.out.println("\n" + outcome.name() + (outcome.succeeded() ? "" : " (" + outcome.status() + ")") +
+                    ":\n" + CompactReply.expand(outcome.text()));
+        }
     }
 }
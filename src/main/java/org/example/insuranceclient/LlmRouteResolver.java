@@ -0,0 +1,198 @@
+package org.example.insuranceclient;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.common.ConcurrencyLimiter;
+import org.example.common.ModelMetrics;
+import org.example.common.tracing.Span;
+import org.example.common.tracing.Tracer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Routes a query with one chat completion against the OpenAI-compatible endpoint the agents use
+ * ({@code openAiBaseURL}, {@code openAiModelName} and {@code openAiKey} from {@code tools4ai.properties}).
+ * The model is shown every action with its agent and parameters and answers with the call as JSON.
+ * <p>
+ * Completions in flight are bounded by a {@link ConcurrencyLimiter} (configured like the agents' admission
+ * control, {@code mesh.limit.*}), so a burst of queries waits for the model or is turned away with an
+ * {@link AgentBusyException} instead of piling up behind a slow endpoint.
+ */
+public final class LlmRouteResolver implements RouteResolver {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String INSTRUCTIONS = "You route insurance requests to exactly one action. " +
+            "Answer with JSON only, in the form {\"agent\": \"<agent url>\", \"action\": \"<action name>\", " +
+            "\"arguments\": {\"<parameter>\": <value>}}. Copy identifiers, names and text from the request " +
+            "unchanged, give amounts and ages as plain numbers, and answer {} if no action fits. Leave " +
+            MeshTool.IDEMPOTENCY_KEY + " null unless the request names a key; the client fills it in.";
+
+    private final HttpClient http;
+    private final URI completionsUri;
+    private final String model;
+    private final String apiKey;
+    private final Duration timeout;
+    private final ConcurrencyLimiter limiter = ConcurrencyLimiter.withConfiguredLimits("model");
+    /** The prompt tokens of an empty completion, measured on first use. */
+    private volatile long framingTokens = -1;
+
+    public LlmRouteResolver(String baseUrl, String model, String apiKey, Duration timeout) {
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.completionsUri = URI.create(baseUrl.replaceAll("/+$", "") + "/chat/completions");
+        this.model = model;
+        this.apiKey = apiKey;
+        this.timeout = timeout;
+    }
+
+    /** Uses the OpenAI settings from {@code tools4ai.properties} on the classpath. */
+    public static LlmRouteResolver fromToolsProperties(Duration timeout) {
+        Properties properties = new Properties();
+        try (InputStream in = LlmRouteResolver.class.getClassLoader().getResourceAsStream("tools4ai.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read tools4ai.properties", e);
+        }
+        return new LlmRouteResolver(properties.getProperty("openAiBaseURL", "https://api.openai.com/v1"),
+                properties.getProperty("openAiModelName", "gpt-4o-mini"),
+                System.getProperty("openAiKey", properties.getProperty("openAiKey", "")), timeout);
+    }
+
+    /** Whether an API key is set; without one the endpoint would refuse every request. */
+    public boolean isConfigured() {
+        return !apiKey.isBlank();
+    }
+
+    @Override
+    public Resolution resolve(String query, Supplier<List<MeshTool>> toolList) {
+        List<MeshTool> tools = toolList.get();
+        if (tools.isEmpty()) {
+            return null;
+        }
+        JsonNode call = parseCall(complete(prompt(tools), query));
+        String agentUrl = call.path("agent").asText(null);
+        String action = call.path("action").asText(null);
+        boolean known = tools.stream().anyMatch(tool -> tool.agentUrl().equals(agentUrl) && tool.name().equals(action));
+        if (!known) {
+            return null;
+        }
+        Map<String, Object> arguments = JSON.convertValue(call.path("arguments"), new TypeReference<Map<String, Object>>() { });
+        return new Resolution(agentUrl, action, arguments == null ? Map.of() : arguments);
+    }
+
+    private static String prompt(List<MeshTool> tools) {
+        StringBuilder prompt = new StringBuilder(INSTRUCTIONS).append("\n\nActions:\n");
+        for (MeshTool tool : tools) {
+            prompt.append("- agent ").append(tool.agentUrl()).append(", action ").append(tool.name())
+                    .append(tool.parameters()).append(": ").append(tool.description()).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * The tokens {@code text} takes in a prompt, as the endpoint's tokenizer counts them: the prompt tokens of
+     * a one-token completion of {@code text}, less those of a completion of nothing, which are the framing
+     * every message pays.
+     */
+    public long promptTokens(String text) {
+        if (framingTokens < 0) {
+            framingTokens = completion("", "", "token count", 1).path("usage").path("prompt_tokens").asLong();
+        }
+        return completion("", text, "token count", 1).path("usage").path("prompt_tokens").asLong() - framingTokens;
+    }
+
+    private String complete(String system, String user) {
+        return completion(system, user, "routing", 0)
+                .path("choices").path(0).path("message").path("content").asText("");
+    }
+
+    /** One chat completion, with at most {@code maxTokens} in the answer if that is positive. */
+    private JsonNode completion(String system, String user, String purpose, int maxTokens) {
+        ObjectNode request = JSON.createObjectNode();
+        request.put("model", model);
+        request.put("temperature", 0);
+        if (maxTokens > 0) {
+            request.put("max_tokens", maxTokens);
+        }
+        ArrayNode messages = request.putArray("messages");
+        messages.addObject().put("role", "system").put("content", system);
+        messages.addObject().put("role", "user").put("content", user);
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(completionsUri)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(request)));
+            if (!apiKey.isBlank()) {
+                builder.header("Authorization", "Bearer " + apiKey);
+            }
+            Span span = Tracer.shared().startSpan("model inference", Span.Kind.CLIENT)
+                    .attribute("gen_ai.request.model", model);
+            ConcurrencyLimiter.Permit permit = null;
+            try {
+                permit = limiter.acquire(ConcurrencyLimiter.Priority.NORMAL);
+                long start = System.nanoTime();
+                HttpResponse<String> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+                long nanos = System.nanoTime() - start;
+                permit.release(response.statusCode() == 200);
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Model completion for " + purpose + " returned HTTP " +
+                            response.statusCode());
+                }
+                JsonNode completion = JSON.readTree(response.body());
+                JsonNode usage = completion.path("usage");
+                long promptTokens = usage.path("prompt_tokens").asLong();
+                long completionTokens = usage.path("completion_tokens").asLong();
+                ModelMetrics.shared().record(model, purpose, nanos, promptTokens, completionTokens);
+                span.attribute("gen_ai.usage.input_tokens", promptTokens)
+                        .attribute("gen_ai.usage.output_tokens", completionTokens);
+                return completion;
+            } catch (ConcurrencyLimiter.RejectedException e) {
+                span.error(e);
+                throw new AgentBusyException("Model completion was turned away: " + e.getMessage(),
+                        e.retryAfterMillis());
+            } catch (IOException | RuntimeException e) {
+                span.error(e);
+                throw e;
+            } finally {
+                if (permit != null) {
+                    permit.release(false); // no-op once released after the reply
+                }
+                span.end();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Model completion for " + purpose + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Model completion for " + purpose + " was interrupted", e);
+        }
+    }
+
+    /** The JSON object in the model's answer, ignoring any code fence or text around it. */
+    private static JsonNode parseCall(String answer) {
+        int start = answer.indexOf('{');
+        int end = answer.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            return JSON.createObjectNode();
+        }
+        try {
+            return JSON.readTree(answer.substring(start, end + 1));
+        } catch (IOException e) {
+            return JSON.createObjectNode();
+        }
+    }
+}
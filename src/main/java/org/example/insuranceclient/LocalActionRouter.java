@@ -0,0 +1,71 @@
+package org.example.insuranceclient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Routes queries without a model: the {@link ActionIndex} picks the action and the {@link ParameterExtractor}
+ * fills in its arguments, in microseconds and with the same answer for the same query every time.
+ * <p>
+ * A query is answered locally only when every argument of the chosen action can be read off the query, and
+ * that action either clearly outscores the runner-up or explains more of the query than it does. Anything
+ * else is handed to the fallback resolver (normally an {@link LlmRouteResolver}), or left unresolved when
+ * there is none.
+ */
+public final class LocalActionRouter implements RouteResolver {
+
+    /** Below this BM25 score the query shares too little with any description to be routed locally. */
+    static final double MIN_SCORE = 2.0;
+    /** The best action must score at least this much higher than the second best. */
+    static final double MIN_LEAD = 1.25;
+
+    private final ActionIndex index;
+    private final RouteResolver fallback;
+
+    /**
+     * @param fallback resolver for ambiguous queries, or {@code null} to leave them unresolved
+     */
+    public LocalActionRouter(ActionIndex index, RouteResolver fallback) {
+        this.index = index;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Resolution resolve(String query, Supplier<List<MeshTool>> tools) {
+        Resolution resolution = route(query);
+        if (resolution != null || fallback == null) {
+            return resolution;
+        }
+        return fallback.resolve(query, tools);
+    }
+
+    /** The local routing decision for {@code query}, or {@code null} if it is ambiguous. */
+    public Resolution route(String query) {
+        List<ActionIndex.Match> matches = index.search(query, 2);
+        if (matches.isEmpty() || matches.get(0).score() < MIN_SCORE) {
+            return null;
+        }
+        ActionIndex.Match best = matches.get(0);
+        Map<String, Object> arguments = ParameterExtractor.extract(query, best.entry().method());
+        if (matches.size() > 1 && best.score() < matches.get(1).score() * MIN_LEAD) {
+            // too close to call on wording alone: take the one whose arguments account for more of the query.
+            // An action without parameters fits any query, so being close to one stays ambiguous.
+            ActionIndex.Match second = matches.get(1);
+            Map<String, Object> secondArguments = ParameterExtractor.extract(query, second.entry().method());
+            int filled = arguments == null ? -1 : arguments.size();
+            int secondFilled = secondArguments == null ? -1 : secondArguments.size();
+            if (filled == secondFilled || filled == 0 || secondFilled == 0) {
+                return null;
+            }
+            if (secondFilled > filled) {
+                best = second;
+                arguments = secondArguments;
+            }
+        }
+        if (arguments == null) {
+            return null;
+        }
+        return new Resolution(best.entry().agentUrl(), best.entry().method().getName(), arguments);
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.insuranceclient;
+
+import org.example.claimsprocessing.ClaimsProcessingService;
+import org.example.customerservice.CustomerServiceService;
+import org.example.policymanagement.PolicyManagementService;
+import org.example.underwriting.UnderwritingService;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/** Where the mesh agents live: one server per agent group, or all of them in the consolidated server. */
+final class MeshAgents {
+
+    static final String POLICY_URL = "http://localhost:7871/";
+    static final String CLAIMS_URL = "http://localhost:7872/";
+    static final String UNDERWRITING_URL = "http://localhost:7873/";
+    static final String CUSTOMER_SERVICE_URL = "http://localhost:7874/";
+    static final String CONSOLIDATED_URL = "http://localhost:7870/";
+
+    static final List<String> URLS = List.of(POLICY_URL, CLAIMS_URL, UNDERWRITING_URL, CUSTOMER_SERVICE_URL);
+
+    /** The service class behind each agent URL. */
+    static final Map<Class<?>, String> SERVICES = Map.of(
+            PolicyManagementService.class, POLICY_URL,
+            ClaimsProcessingService.class, CLAIMS_URL,
+            UnderwritingService.class, UNDERWRITING_URL,
+            CustomerServiceService.class, CUSTOMER_SERVICE_URL);
+
+    private MeshAgents() {
+    }
+
+    /** Agent URL to service instance, with each instance obtained from {@code instances}. */
+    static Map<String, Object> instances(Function<Class<?>, Object> instances) {
+        Map<String, Object> services = new LinkedHashMap<>();
+        SERVICES.forEach((type, url) -> services.put(url, instances.apply(type)));
+        return services;
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.insuranceclient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares the four-server layout with the consolidated one: what a single agent hop costs over each
+ * transport, and how much memory the running servers hold.
+ * <p>
+ * The same actions are called repeatedly in process (an {@link InProcessToolTransport} over plain service
+ * instances), over JSON-RPC to the four servers on 7871-7874 and over JSON-RPC to the consolidated server on
+ * 7870, skipping whichever servers are not running, and mean, p50 and p99 latency are printed per action.
+ * Then the resident set size of every running mesh server JVM is listed (Linux only, read from
+ * {@code /proc}), so that the four processes can be added up against the consolidated one.
+ * <p>
+ * Usage: {@code MeshHopProbe [iterations]} (default 2,000 calls per action, after as many for warm-up).
+ */
+public final class MeshHopProbe {
+
+    private record Hop(String agentUrl, String action, Map<String, Object> arguments) {
+    }
+
+    private static final List<Hop> HOPS = List.of(
+            new Hop(MeshAgents.POLICY_URL, "getPolicyDetails", Map.of("policyNumber", "POL-12345")),
+            new Hop(MeshAgents.POLICY_URL, "calculatePremium", Map.of("policyType", "Life", "age", 42,
+                    "coverageAmount", 500000, "riskCategory", "LOW")),
+            new Hop(MeshAgents.CLAIMS_URL, "getClaimsSummary", Map.of("policyNumber", "POL-12345")),
+            new Hop(MeshAgents.UNDERWRITING_URL, "assessRisk", Map.of("applicantName", "John Doe", "age", 42,
+                    "healthStatus", "good", "occupation", "software engineer", "smoker", false)),
+            new Hop(MeshAgents.CUSTOMER_SERVICE_URL, "getCustomerAccount", Map.of("customerId", "CUST-12345")));
+    private static final List<String> SERVER_CLASSES = List.of("PolicyManagementServer", "ClaimsProcessingServer",
+            "UnderwritingServer", "CustomerServiceServer", "ConsolidatedMeshServer");
+
+    private MeshHopProbe() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+
+        measure("in-process", new InProcessToolTransport(MeshAgents.instances(MeshHopProbe::newInstance)),
+                UnaryOperator.identity(), iterations);
+        MeshToolClient http = new MeshToolClient(Duration.ofSeconds(10));
+        if (reachable(http, MeshAgents.POLICY_URL)) {
+            measure("four servers", http, UnaryOperator.identity(), iterations);
+        }
+        if (reachable(http, MeshAgents.CONSOLIDATED_URL)) {
+            measure("consolidated", http, url -> MeshAgents.CONSOLIDATED_URL, iterations);
+        }
+        printResidentMemory();
+    }
+
+    /** Calls every hop {@code iterations} times to warm up, then as many times again measured. */
+    private static void measure(String transportName, ToolTransport transport, UnaryOperator<String> agentUrl,
+                                int iterations) {
+        for (Hop hop : HOPS) {
+            String url = agentUrl.apply(hop.agentUrl());
+            long[] nanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                transport.callTool(url, hop.action(), hop.arguments());
+            }
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                transport.callTool(url, hop.action(), hop.arguments());
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%-13s %-20s mean %9.1f us   p50 %9.1f us   p99 %9.1f us%n", transportName,
+                    hop.action(), Arrays.stream(nanos).average().orElse(0) / 1e3, nanos[iterations / 2] / 1e3,
+                    nanos[Math.min(iterations - 1, (int) (iterations * 0.99))] / 1e3);
+        }
+    }
+
+    private static boolean reachable(MeshToolClient http, String agentUrl) {
+        try {
+            http.listTools(agentUrl);
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Skipping " + agentUrl + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void printResidentMemory() {
+        long fourServersKb = 0;
+        long consolidatedKb = 0;
+        for (ProcessHandle process : ProcessHandle.allProcesses().toList()) {
+            String commandLine = process.info().commandLine().orElse("");
+            Optional<String> server = SERVER_CLASSES.stream().filter(commandLine::contains).findFirst();
+            Long rssKb = server.isPresent() ? residentKb(process.pid()) : null;
+            if (rssKb == null) {
+                continue;
+            }
+            System.out.printf("%-23s pid %-8d RSS %,9d KB%n", server.get(), process.pid(), rssKb);
+            if (server.get().equals("ConsolidatedMeshServer")) {
+                consolidatedKb += rssKb;
+            } else {
+                fourServersKb += rssKb;
+            }
+        }
+        System.out.printf("Total RSS: four servers %,d KB, consolidated %,d KB%n", fourServersKb, consolidatedKb);
+    }
+
+    /** {@code VmRSS} of a process in KB, or {@code null} where {@code /proc} is not available. */
+    static Long residentKb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.insuranceclient;
+
+import io.github.vishalmysore.mesh.AgentCatalog;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Drives demo-style queries against the four agent servers at a fixed rate, raising the rate stage by stage
+ * until the mesh saturates, and prints throughput and per-agent p50/p99 latency for every stage.
+ * <p>
+ * Queries are sent open loop: each has a scheduled send time, and its latency is measured from that time,
+ * so queueing in the generator or the mesh shows up in the numbers instead of silently lowering the rate.
+ * A stage counts as saturated when less than 90% of the target rate completes, more than 1% of the queries
+ * fail, are shed by the agents' admission control ({@link AgentBusyException}) or are dropped (more than
+ * {@code load.concurrency} in flight), or the overall p99 exceeds {@code load.slo.ms}; the last rate before it
+ * is reported as the sustainable one. Every stage also reports its goodput, the queries a second that
+ * completed within {@code load.slo.ms}. With {@code -Dload.past.saturation=N} the ramp goes on for N stages
+ * after saturation, to show whether goodput holds there or collapses.
+ * <p>
+ * By default queries go through a {@link RoutingMeshClient} routed by a {@link StubModelServer} started in
+ * this JVM (configured as for {@link StubModelServer#main}), so no model quota is spent. With
+ * {@code -Dload.stub=false} the model from {@code tools4ai.properties} routes instead, and with
+ * {@code -Dload.client=catalog} queries go through {@code AgentCatalog.processQuery}, which always uses
+ * {@code tools4ai.properties} (point {@code openAiBaseURL} at a standalone stub to keep it local). Routes
+ * are only cached with {@code -Dmesh.routing.cache=true}, so that by default every query reaches the model.
+ * <p>
+ * Usage: {@code MeshLoadGenerator [startRps] [maxRps] [stepRps] [stageSeconds]} (default 5, 50, 5, 10).
+ */
+public final class MeshLoadGenerator {
+
+    private record Workload(String agent, String query) {
+    }
+
+    /** One stage of the ramp; latencies are per agent, in nanoseconds, sorted. */
+    private record Stage(int targetRps, int sent, int failed, int shed, int dropped, double throughput,
+                         double goodput, Map<String, long[]> latencies) {
+
+        long[] all() {
+            return latencies.values().stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        }
+
+        boolean saturated(long sloNanos) {
+            long[] all = all();
+            return throughput < targetRps * 0.9 || failed + shed + dropped > sent * 0.01
+                    || (all.length > 0 && percentile(all, 0.99) > sloNanos);
+        }
+    }
+
+    private static final List<Workload> WORKLOAD = List.of(
+            new Workload("policy", "Get policy details for policy POL-12345"),
+            new Workload("policy", "Calculate premium for a Life policy, age 42, coverage $500,000, risk category LOW"),
+            new Workload("claims", "Get the claims summary for policy POL-12345"),
+            new Workload("claims",
+                    "Submit a medical claim for policy POL-12345, claim amount $5000, for emergency surgery"),
+            new Workload("underwriting",
+                    "Assess risk for John Doe, 42 years old, good health, software engineer, non-smoker"),
+            new Workload("customer", "Get customer account information for customer ID CUST-12345"),
+            new Workload("payment", "Process a payment of $150 from customer CUST-12345 for policy POL-12345 by card"),
+            new Workload("feedback", "Submit feedback from customer CUST-12345: rating 5, quick and friendly service"));
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("mesh.query.timeout.seconds", 30));
+
+    private MeshLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int startRps = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int maxRps = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int stepRps = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int stageSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int concurrency = Integer.getInteger("load.concurrency", 128);
+        long sloNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("load.slo.ms", 2_000));
+        int pastSaturation = Integer.getInteger("load.past.saturation", 0);
+
+        boolean catalog = System.getProperty("load.client", "routing").equalsIgnoreCase("catalog");
+        StubModelServer stub = !catalog && Boolean.parseBoolean(System.getProperty("load.stub", "true"))
+                ? new StubModelServer(StubModelServer.DEFAULT_PORT, MeshAgents.SERVICES,
+                StubModelServer.Simulation.fromSystemProperties()).start()
+                : null;
+        Function<String, String> mesh = client(catalog, stub);
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            // Warm up connections and JIT so that the first stage is not penalised for them.
+            for (int i = 0; i < WORKLOAD.size() * 5; i++) {
+                mesh.apply(WORKLOAD.get(i % WORKLOAD.size()).query());
+            }
+            Stage sustained = null;
+            Stage saturated = null;
+            double worstGoodputPast = Double.NaN;
+            for (int rps = startRps, past = 0; rps <= maxRps && past <= pastSaturation; rps += stepRps) {
+                Stage stage = run(mesh, workers, concurrency, rps, stageSeconds, sloNanos);
+                System.out.println(render(stage));
+                if (saturated != null) {
+                    past++;
+                    worstGoodputPast = Double.isNaN(worstGoodputPast) ? stage.goodput()
+                            : Math.min(worstGoodputPast, stage.goodput());
+                } else if (stage.saturated(sloNanos)) {
+                    saturated = stage;
+                    past = 1;
+                    worstGoodputPast = stage.goodput();
+                } else {
+                    sustained = stage;
+                }
+            }
+            System.out.println(sustained == null ? "No stage was sustainable"
+                    : String.format("Sustained %d rps (%.1f completed/s, p99 %.1f ms)", sustained.targetRps(),
+                    sustained.throughput(), percentile(sustained.all(), 0.99) / 1e6));
+            System.out.println(saturated == null ? "Did not saturate up to " + maxRps + " rps"
+                    : "Saturated at " + saturated.targetRps() + " rps");
+            if (saturated != null && sustained != null && pastSaturation > 0) {
+                System.out.printf("Goodput past saturation: at least %.1f/s, %.0f%% of the %.1f/s sustained%n",
+                        worstGoodputPast, 100 * worstGoodputPast / sustained.goodput(), sustained.goodput());
+            }
+        } finally {
+            workers.shutdownNow();
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    private static Function<String, String> client(boolean catalog, StubModelServer stub) {
+        AgentCatalog agentCatalog = new AgentCatalog();
+        MeshAgents.URLS.forEach(agentCatalog::addAgent);
+        Function<String, String> processQuery = query -> agentCatalog.processQuery(query).getTextResult();
+        if (catalog) {
+            return processQuery;
+        }
+        RouteResolver resolver = stub != null
+                ? new LlmRouteResolver(stub.baseUrl(), "stub", "stub", TIMEOUT)
+                : LlmRouteResolver.fromToolsProperties(TIMEOUT);
+        // A cache that holds nothing makes every query a routing miss.
+        int cacheSize = Boolean.getBoolean("mesh.routing.cache") ? Integer.getInteger("mesh.routing.cache.size", 1024) : 0;
+        return new RoutingMeshClient(MeshAgents.URLS, new MeshToolClient(TIMEOUT), resolver,
+                new RoutingCache(cacheSize, TimeUnit.HOURS.toNanos(1)), processQuery);
+    }
+
+    /** Sends {@code rps} queries a second for {@code seconds}, cycling through the workload, and waits for them. */
+    private static Stage run(Function<String, String> mesh, ExecutorService workers, int concurrency, int rps,
+                             int seconds, long sloNanos) throws InterruptedException {
+        int total = rps * seconds;
+        long interval = TimeUnit.SECONDS.toNanos(1) / rps;
+        Map<String, List<Long>> latencies = new LinkedHashMap<>();
+        WORKLOAD.forEach(workload -> latencies.put(workload.agent(), new ArrayList<>()));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger shed = new AtomicInteger();
+        AtomicLong lastCompletion = new AtomicLong();
+        int dropped = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduled = start + i * interval;
+            LockSupport.parkNanos(scheduled - System.nanoTime());
+            if (inFlight.get() >= concurrency) {
+                dropped++;
+                continue;
+            }
+            Workload workload = WORKLOAD.get(i % WORKLOAD.size());
+            inFlight.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    mesh.apply(workload.query());
+                    long now = System.nanoTime();
+                    List<Long> agentLatencies = latencies.get(workload.agent());
+                    synchronized (agentLatencies) {
+                        agentLatencies.add(now - scheduled);
+                    }
+                    lastCompletion.accumulateAndGet(now, Math::max);
+                } catch (AgentBusyException e) {
+                    shed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Map<String, long[]> sorted = new LinkedHashMap<>();
+        int completed = 0;
+        int withinSlo = 0;
+        for (Map.Entry<String, List<Long>> agent : latencies.entrySet()) {
+            synchronized (agent.getValue()) {
+                long[] nanos = agent.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+                sorted.put(agent.getKey(), nanos);
+                completed += nanos.length;
+                withinSlo += (int) Arrays.stream(nanos).filter(latency -> latency <= sloNanos).count();
+            }
+        }
+        long elapsed = Math.max(lastCompletion.get(), start + (long) total * interval) - start;
+        // Queries still running after the timeout are counted as failed.
+        return new Stage(rps, total, failed.get() + inFlight.get(), shed.get(), dropped, completed / (elapsed / 1e9),
+                withinSlo / (elapsed / 1e9), sorted);
+    }
+
+    private static String render(Stage stage) {
+        StringBuilder report = new StringBuilder(String.format(
+                "Stage %d rps: %d sent, %.1f completed/s, %.1f goodput/s, %d failed, %d shed, %d dropped%n",
+                stage.targetRps(), stage.sent(), stage.throughput(), stage.goodput(), stage.failed(), stage.shed(),
+                stage.dropped()));
+        for (Map.Entry<String, long[]> agent : stage.latencies().entrySet()) {
+            long[] nanos = agent.getValue();
+            report.append(String.format("  %-14s %6d queries   p50 %9.1f ms   p99 %9.1f ms%n", agent.getKey(),
+                    nanos.length, percentile(nanos, 0.5) / 1e6, percentile(nanos, 0.99) / 1e6));
+        }
+        return report.toString().stripTrailing();
+    }
+
+    private static long percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        return sortedNanos[Math.min(sortedNanos.length - 1, (int) (sortedNanos.length * quantile))];
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.insuranceclient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A cached routing decision for one {@link QueryShape}: the agent and action to call and, for every
+ * parameter, either the slot of the query it is taken from or a constant.
+ * <p>
+ * Routes are learned from a {@link RouteResolver.Resolution}: an argument becomes a slot binding when its
+ * value equals one of the query's slots, and a constant when it is a boolean or a word that is part of
+ * the shape's fixed text (e.g. {@code claimType = "medical"} for "submit a medical claim ..."). If any
+ * argument is neither, the decision depends on something the shape does not capture and is not cached.
+ */
+public record MeshRoute(String agentUrl, String action, Map<String, Binding> bindings) {
+
+    /** Where a parameter value comes from: {@code slot >= 0} for a query slot, otherwise {@code constant}. */
+    public record Binding(int slot, boolean numeric, Object constant) {
+    }
+
+    /** Learns a route from a resolved call, or returns {@code null} if the call cannot be reused for the shape. */
+    public static MeshRoute learn(QueryShape shape, RouteResolver.Resolution resolution) {
+        Map<String, Binding> bindings = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> argument : resolution.arguments().entrySet()) {
+            Binding binding = bind(shape, argument.getValue());
+            if (binding == null) {
+                return null;
+            }
+            bindings.put(argument.getKey(), binding);
+        }
+        return new MeshRoute(resolution.agentUrl(), resolution.action(), bindings);
+    }
+
+    /** The arguments for a query of this route's shape. */
+    public Map<String, Object> arguments(List<String> slots) {
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        for (Map.Entry<String, Binding> parameter : bindings.entrySet()) {
+            Binding binding = parameter.getValue();
+            Object value = binding.constant();
+            if (binding.slot() >= 0) {
+                String slot = slots.get(binding.slot());
+                value = binding.numeric() ? numeric(QueryShape.numericValue(slot)) : slot;
+            }
+            arguments.put(parameter.getKey(), value);
+        }
+        return arguments;
+    }
+
+    private static Binding bind(QueryShape shape, Object value) {
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            for (int slot = 0; slot < shape.slots().size(); slot++) {
+                Double slotValue = QueryShape.numericValue(shape.slots().get(slot));
+                if (slotValue != null && slotValue == number) {
+                    return new Binding(slot, true, null);
+                }
+            }
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return new Binding(-1, false, value);
+        }
+        if (value == null) {
+            return new Binding(-1, false, null);
+        }
+        String text = value.toString().trim();
+        for (int slot = 0; slot < shape.slots().size(); slot++) {
+            if (shape.slots().get(slot).trim().equalsIgnoreCase(text)) {
+                return new Binding(slot, false, null);
+            }
+        }
+        return containsWords(shape.key(), text.toLowerCase(Locale.ROOT)) ? new Binding(-1, false, value) : null;
+    }
+
+    private static boolean containsWords(String key, String words) {
+        int index = key.indexOf(words);
+        while (index >= 0) {
+            int end = index + words.length();
+            boolean startsWord = index == 0 || !Character.isLetterOrDigit(key.charAt(index - 1));
+            boolean endsWord = end == key.length() || !Character.isLetterOrDigit(key.charAt(end));
+            if (startsWord && endsWord) {
+                return true;
+            }
+            index = key.indexOf(words, index + 1);
+        }
+        return false;
+    }
+
+    private static Object numeric(Double value) {
+        if (value == null) {
+            return null;
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? (Object) value.longValue() : value;
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.insuranceclient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.java.Log;
+import org.example.common.CompactReply;
+import org.example.common.EventStreamWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves mesh queries as Server-Sent Events, so a chat front end can show each agent hop's reply as soon
+ * as it arrives instead of waiting for the whole pipeline.
+ * <p>
+ * {@code GET /mesh/stream?q=<query>&q=<query>...} runs the queries as a {@link QueryPlan} through a
+ * {@link ScatterGatherClient}. Steps are named by position ({@code 1}, {@code 2}, ...) and a query that quotes
+ * an earlier one with {@code {1}} waits for it, which is how a pipeline is written; queries that quote
+ * nothing run concurrently. Every outcome is sent as an {@code outcome} event the moment it is known, with
+ * the step name, status, elapsed time and text as JSON, followed by a {@code done} event. Time to first
+ * byte is the latency of the fastest step, not of the whole plan. Compact replies are sent as text, since
+ * the stream is read by people.
+ */
+@Log
+public final class MeshStreamServer implements AutoCloseable {
+
+    /** Default port, next to the stub model. */
+    public static final int DEFAULT_PORT = 7878;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Pattern STEP_REFERENCE = Pattern.compile("\\{(\\d+)}");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScatterGatherClient client;
+
+    public MeshStreamServer(int port, ScatterGatherClient client) {
+        this.client = client;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on port " + port, e);
+        }
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mesh-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/mesh/stream", this::stream);
+    }
+
+    public MeshStreamServer start() {
+        server.start();
+        return this;
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/mesh/stream";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** The plan for the {@code q} parameters of a query string, each depending on the steps it quotes. */
+    static QueryPlan plan(String queryString) {
+        List<String> queries = new ArrayList<>();
+        if (queryString != null) {
+            for (String parameter : queryString.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0 && parameter.substring(0, equals).equals("q")) {
+                    queries.add(URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        QueryPlan plan = new QueryPlan();
+        for (int i = 0; i < queries.size(); i++) {
+            List<String> dependsOn = new ArrayList<>();
+            Matcher reference = STEP_REFERENCE.matcher(queries.get(i));
+            while (reference.find()) {
+                int step = Integer.parseInt(reference.group(1));
+                if (step < 1 || step > i) {
+                    throw new IllegalArgumentException("Query " + (i + 1) + " can only quote earlier queries: {" +
+                            step + "}");
+                }
+                if (!dependsOn.contains(reference.group(1))) {
+                    dependsOn.add(reference.group(1));
+                }
+            }
+            plan.add(Integer.toString(i + 1), queries.get(i), dependsOn.toArray(new String[0]));
+        }
+        return plan;
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            QueryPlan plan;
+            try {
+                plan = plan(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(400, message.length);
+                exchange.getResponseBody().write(message);
+                return;
+            }
+            if (plan.size() == 0) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", EventStreamWriter.CONTENT_TYPE + ";charset=UTF-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer body = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                EventStreamWriter events = new EventStreamWriter(body);
+                long start = System.nanoTime();
+                Map<String, QueryOutcome> outcomes = client.execute(plan,
+                        outcome -> send(events, "outcome", json(outcome)));
+                ObjectNode done = JSON.createObjectNode()
+                        .put("steps", outcomes.size())
+                        .put("succeeded", outcomes.values().stream().filter(QueryOutcome::succeeded).count())
+                        .put("elapsedMillis", (System.nanoTime() - start) / 1_000_000.0);
+                events.event("done", done.toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (UncheckedIOException e) {
+                // the client went away; the steps still running finish on their own
+                log.fine("Mesh stream closed by client: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String json(QueryOutcome outcome) {
+        return JSON.createObjectNode()
+                .put("name", outcome.name())
+                .put("status", outcome.status().name())
+                .put("elapsedMillis", outcome.elapsedMillis())
+                .put("text", CompactReply.expand(outcome.text()))
+                .toString();
+    }
+
+    private static void send(EventStreamWriter events, String name, String data) {
+        try {
+            events.event(name, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
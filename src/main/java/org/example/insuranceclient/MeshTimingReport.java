@@ -0,0 +1,64 @@
+package org.example.insuranceclient;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Wall-clock comparison of one {@link QueryPlan} run sequentially, run by the
+ * {@link ScatterGatherClient}, and answered as a single {@code AgenticMesh.pipeLineMesh} query.
+ */
+public record MeshTimingReport(Map<String, QueryOutcome> sequential,
+                               long sequentialNanos,
+                               Map<String, QueryOutcome> scatterGather,
+                               long scatterGatherNanos,
+                               String pipelineResult,
+                               long pipelineNanos) {
+
+    /**
+     * Runs the three modes one after another.
+     *
+     * @param pipeline runs the equivalent pipeline query, e.g. {@code () -> mesh.pipeLineMesh(query).getTextResult()}
+     */
+    public static MeshTimingReport measure(ScatterGatherClient client, QueryPlan plan, Supplier<String> pipeline)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        Map<String, QueryOutcome> sequential = client.executeSequentially(plan);
+        long sequentialNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Map<String, QueryOutcome> scatterGather = client.execute(plan);
+        long scatterGatherNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        String pipelineResult = pipeline.get();
+        long pipelineNanos = System.nanoTime() - start;
+
+        return new MeshTimingReport(sequential, sequentialNanos, scatterGather, scatterGatherNanos,
+                pipelineResult, pipelineNanos);
+    }
+
+    public double speedup() {
+        return scatterGatherNanos == 0 ? 0 : (double) sequentialNanos / scatterGatherNanos;
+    }
+
+    /** A plain-text table with the total of each mode and the per-step latencies of the two plan runs. */
+    public String render() {
+        StringBuilder report = new StringBuilder();
+        report.append("Mesh Timing Report\n")
+                .append("=================================\n")
+                .append(String.format("%-16s %12s %8s%n", "Mode", "Wall time", "Queries"))
+                .append(String.format("%-16s %9.1f ms %8d%n", "sequential", sequentialNanos / 1e6, sequential.size()))
+                .append(String.format("%-16s %9.1f ms %8d   (%.2fx)%n", "scatter-gather", scatterGatherNanos / 1e6,
+                        scatterGather.size(), speedup()))
+                .append(String.format("%-16s %9.1f ms %8d%n", "pipeLineMesh", pipelineNanos / 1e6, 1))
+                .append('\n')
+                .append(String.format("%-28s %14s %22s%n", "Step", "Sequential", "Scatter-gather (start)"));
+        for (Map.Entry<String, QueryOutcome> step : sequential.entrySet()) {
+            QueryOutcome parallel = scatterGather.get(step.getKey());
+            report.append(String.format("%-28s %11.1f ms %9.1f ms (+%.1f ms)%s%n", step.getKey(),
+                    step.getValue().elapsedMillis(), parallel.elapsedMillis(), parallel.startedNanos() / 1e6,
+                    parallel.succeeded() ? "" : " " + parallel.status()));
+        }
+        return report.toString();
+    }
+}
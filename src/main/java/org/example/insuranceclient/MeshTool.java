@@ -0,0 +1,10 @@
+package org.example.insuranceclient;
+
+import java.util.List;
+
+/** One {@code @Action} exposed by a mesh agent, as listed by its {@code tools/list} endpoint. */
+public record MeshTool(String agentUrl, String name, String description, List<String> parameters) {
+
+    /** The parameter through which an action that must not run twice (a payment) takes its idempotency key. */
+    public static final String IDEMPOTENCY_KEY = "idempotencyKey";
+}
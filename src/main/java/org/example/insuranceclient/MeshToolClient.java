@@ -0,0 +1,186 @@
+package org.example.insuranceclient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.common.CompactReply;
+import org.example.common.tracing.Span;
+import org.example.common.tracing.TraceContext;
+import org.example.common.tracing.Tracer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calls mesh agents directly over their JSON-RPC endpoint ({@code tools/list} and {@code tools/call}),
+ * without going through {@code AgentCatalog} and its LLM routing. The current span, if any, is passed on
+ * in a {@code traceparent} header, and a reply format other than the server's default is asked for with the
+ * {@value CompactReply#FORMAT_HEADER} header.
+ */
+public final class MeshToolClient implements ToolTransport {
+
+    /** The single argument the agents' {@code tools/call} takes, holding the real arguments as JSON. */
+    static final String PLAIN_ENGLISH_ARGUMENT = "provideAllValuesInPlainEnglish";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient http;
+    private final Duration timeout;
+    private final String replyFormat;
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /** A client asking for the reply format set with {@code -Dmesh.reply.format}, if any. */
+    public MeshToolClient(Duration timeout) {
+        this(timeout, System.getProperty(CompactReply.FORMAT_PROPERTY));
+    }
+
+    /**
+     * @param replyFormat {@link CompactReply#COMPACT}, {@link CompactReply#TEXT}, or {@code null} for the
+     *                    server's default
+     */
+    public MeshToolClient(Duration timeout, String replyFormat) {
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.timeout = timeout;
+        this.replyFormat = replyFormat;
+    }
+
+    @Override
+    public List<MeshTool> listTools(String agentUrl) {
+        JsonNode result = call(agentUrl, "tools/list", JSON.createObjectNode());
+        List<MeshTool> tools = new ArrayList<>();
+        for (JsonNode tool : result.path("tools")) {
+            List<String> parameters = new ArrayList<>();
+            Iterator<String> names = tool.path("inputSchema").path("properties").fieldNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!name.equals(PLAIN_ENGLISH_ARGUMENT)) {
+                    parameters.add(name);
+                }
+            }
+            tools.add(new MeshTool(agentUrl, tool.path("name").asText(), tool.path("description").asText(), parameters));
+        }
+        return tools;
+    }
+
+    @Override
+    public String callTool(String agentUrl, String action, Map<String, Object> arguments) {
+        JsonNode result = call(agentUrl, "tools/call", toolCallParams(action, arguments));
+        return replyText(action, result);
+    }
+
+    private JsonNode call(String agentUrl, String method, ObjectNode params) {
+        try {
+            String body = requestBody(requestIds.incrementAndGet(), method, params);
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(agentUrl))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+            Span span = Tracer.shared().currentSpan();
+            if (span != null) {
+                request.header(TraceContext.TRACEPARENT, span.context().traceparent());
+            }
+            if (replyFormat != null) {
+                request.header(CompactReply.FORMAT_HEADER, replyFormat);
+            }
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 503) {
+                throw new AgentBusyException(method + " on " + agentUrl + " was turned away: the agent is busy",
+                        retryAfterMillis(response));
+            }
+            if (response.statusCode() >= 500) {
+                // the server could not answer, as if it were unreachable
+                throw new UncheckedIOException(method + " on " + agentUrl + " failed",
+                        new IOException("HTTP " + response.statusCode()));
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(method + " on " + agentUrl + " returned HTTP " + response.statusCode());
+            }
+            return result(response.body(), method + " on " + agentUrl);
+        } catch (IOException e) {
+            throw new UncheckedIOException(method + " on " + agentUrl + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(method + " on " + agentUrl + " was interrupted", e);
+        }
+    }
+
+    /** The {@code params} of a {@code tools/call} request, with the arguments packed the way the agents expect. */
+    static ObjectNode toolCallParams(String action, Map<String, Object> arguments) {
+        ObjectNode params = JSON.createObjectNode();
+        params.put("name", action);
+        try {
+            params.putObject("arguments").put(PLAIN_ENGLISH_ARGUMENT, JSON.writeValueAsString(arguments));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return params;
+    }
+
+    static String requestBody(long id, String method, ObjectNode params) throws IOException {
+        ObjectNode request = JSON.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        request.put("method", method);
+        request.set("params", params);
+        request.put("id", id);
+        return JSON.writeValueAsString(request);
+    }
+
+    /**
+     * How long a busy agent asked to be left alone: the exact hint in the JSON-RPC error if there is one,
+     * else the {@code Retry-After} seconds, else a second.
+     */
+    static long retryAfterMillis(HttpResponse<String> response) {
+        try {
+            JsonNode hint = JSON.readTree(response.body()).path("error").path("data").path("retryAfterMillis");
+            if (hint.canConvertToLong()) {
+                return hint.asLong();
+            }
+        } catch (IOException e) {
+            // not a JSON-RPC reply, e.g. from a proxy
+        }
+        return response.headers().firstValue("Retry-After").map(seconds -> {
+            try {
+                return Long.parseLong(seconds.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                return null; // an HTTP date, which the agents don't send
+            }
+        }).orElse(1000L);
+    }
+
+    /** The {@code result} of a JSON-RPC reply; an {@code error} reply is thrown as an exception. */
+    static JsonNode result(String body, String call) throws IOException {
+        JsonNode reply = JSON.readTree(body);
+        if (reply.hasNonNull("error")) {
+            throw new IllegalStateException(call + " failed: " + reply.path("error").path("message").asText());
+        }
+        return reply.path("result");
+    }
+
+    /** The text of a {@code tools/call} result; an {@code isError} result is thrown as an exception. */
+    static String replyText(String action, JsonNode result) {
+        if (result.path("isError").asBoolean(false)) {
+            throw new IllegalStateException("Action " + action + " failed: " + text(result));
+        }
+        return text(result);
+    }
+
+    private static String text(JsonNode result) {
+        StringBuilder text = new StringBuilder();
+        for (JsonNode content : result.path("content")) {
+            if (content.path("type").asText("text").equals("text")) {
+                text.append(content.path("text").asText());
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,399 @@
+package org.example.insuranceclient;
+
+import org.example.common.PolicyType;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rule-based extraction of {@code @Action} arguments from a query, keyed on parameter names and types.
+ * <p>
+ * Identifiers are matched by prefix ({@code policyNumber} takes a {@code POL-} id, {@code claimNumber} a
+ * {@code CLM-} id, {@code customerId} a {@code CUST-} id), ages and terms by their unit ("42 years old",
+ * "for 5 years"), percentages by their sign, and other amounts by the words around them ("claim amount
+ * $5,000", "$500,000 coverage"). Free-text parameters are only filled from an explicit cue (quotes,
+ * "because ...", "for ...", "via ..."), and an idempotency key from "key ...". When any parameter but the
+ * optional idempotency key cannot be determined the whole extraction fails, so the query can be handed to a
+ * model instead of being answered with a guess.
+ * <p>
+ * Relies on the services being compiled with {@code -parameters} (as Spring Boot builds are), since the
+ * rules key on parameter names.
+ */
+final class ParameterExtractor {
+
+    private static final int QUOTED = 0, ID = 1, NUMBER = 2, WORD = 3;
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|\\b([A-Z]{2,6}-\\d[A-Z0-9-]*)\\b" +
+            "|(\\$)?(\\d(?:[\\d,]*\\d)?(?:\\.\\d+)?)(%)?|([A-Za-z]+(?:'[a-z]+)?)");
+    private static final Pattern PERSON_NAME = Pattern.compile("(?<=\\s)[A-Z][a-z]+(?:\\s+[A-Z][a-z]+)+");
+    private static final Pattern DATE = Pattern.compile("\\b\\d{4}-\\d{2}-\\d{2}\\b|\\b(?:tomorrow|today|next \\w+)\\b" +
+            "|\\b(?:jan|feb|mar|apr|may|jun|jul|aug|sep|oct|nov|dec)[a-z]*\\.? \\d{1,2}(?:st|nd|rd|th)?" +
+            "(?:,? \\d{4})?\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern NO_CONDITIONS = Pattern.compile(
+            "\\bno (?:pre-?existing )?(?:medical )?conditions\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<String, String> ID_PREFIXES = Map.of(
+            "policy", "POL-", "claim", "CLM-", "customer", "CUST-", "application", "APP-");
+    private static final Set<String> NEGATIONS = Set.of("non", "not", "no", "never", "doesn't", "isn't");
+    private static final Set<String> HEALTH_STATUSES = Set.of("excellent", "good", "fair", "poor", "average");
+    private static final Set<String> RISK_CATEGORIES = Set.of("low", "medium", "high");
+    /** Words that can precede "claim", "document" etc. without being their type. */
+    private static final Set<String> NOT_A_TYPE = Set.of("a", "an", "the", "new", "my", "our", "their", "this",
+            "that", "submit", "file", "create", "get", "request", "schedule", "generate", "handle", "make",
+            "process", "for", "of", "to", "and", "insurance");
+    private static final Set<String> FREE_TEXT_CUES = Set.of("because", "reason", "due", "for");
+    private static final Set<String> FILLERS = Set.of("to", "of", "is", "a", "an", "the");
+
+    private record Token(int kind, String text, double number, boolean money, boolean percent, int start, int end) {
+
+        String lower() {
+            return text.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final String query;
+    private final List<Token> tokens = new ArrayList<>();
+    private final boolean[] used;
+
+    private ParameterExtractor(String query) {
+        this.query = query;
+        Matcher matcher = TOKEN.matcher(query);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                tokens.add(new Token(QUOTED, matcher.group(1), 0, false, false, matcher.start(), matcher.end()));
+            } else if (matcher.group(2) != null) {
+                tokens.add(new Token(ID, matcher.group(2), 0, false, false, matcher.start(), matcher.end()));
+            } else if (matcher.group(4) != null) {
+                tokens.add(new Token(NUMBER, matcher.group(4), Double.parseDouble(matcher.group(4).replace(",", "")),
+                        matcher.group(3) != null, matcher.group(5) != null, matcher.start(), matcher.end()));
+            } else {
+                tokens.add(new Token(WORD, matcher.group(6), 0, false, false, matcher.start(), matcher.end()));
+            }
+        }
+        used = new boolean[tokens.size()];
+    }
+
+    /** The arguments of {@code method} for {@code query}, in declaration order, or {@code null} if any is missing. */
+    static Map<String, Object> extract(String query, Method method) {
+        ParameterExtractor extractor = new ParameterExtractor(query);
+        Parameter[] parameters = method.getParameters();
+        Object[] values = new Object[parameters.length];
+        // identifiers and numbers with a unit first, so that looser rules only see what is left
+        for (int pass = 0; pass < 3; pass++) {
+            for (int i = 0; i < parameters.length; i++) {
+                if (pass(parameters[i]) == pass) {
+                    values[i] = extractor.value(parameters[i]);
+                    if (values[i] == null) {
+                        return null;
+                    }
+                }
+            }
+        }
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        for (int i = 0; i < parameters.length; i++) {
+            arguments.put(parameters[i].getName(), values[i]);
+        }
+        return arguments;
+    }
+
+    private static int pass(Parameter parameter) {
+        Class<?> type = parameter.getType();
+        if (type == String.class && isIdentifier(parameter.getName())) {
+            return 0;
+        }
+        if (type == int.class || type == Integer.class || type == long.class || type == Long.class) {
+            return 1;
+        }
+        return type == double.class || type == Double.class || type == boolean.class || type == Boolean.class ? 1 : 2;
+    }
+
+    private static boolean isIdentifier(String name) {
+        return name.endsWith("Number") || name.endsWith("Id");
+    }
+
+    private Object value(Parameter parameter) {
+        String name = parameter.getName();
+        String lower = name.toLowerCase(Locale.ROOT);
+        Class<?> type = parameter.getType();
+        if (type == String.class) {
+            return isIdentifier(name) ? identifier(lower.replaceAll("(number|id)$", "")) : text(name, lower);
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return flag(lower);
+        }
+        Token number;
+        if (lower.equals("age")) {
+            number = numberWithUnit(List.of("year", "years", "yr", "yrs"), "old", Set.of("age", "aged"));
+        } else if (lower.contains("year") || lower.contains("term")) {
+            number = numberWithUnit(List.of("year", "years", "yr", "yrs"), null, Set.of());
+        } else if (lower.contains("rating")) {
+            number = numberWithUnit(List.of("star", "stars", "out"), null, Set.of("rating", "rated", "rate"));
+        } else if (lower.contains("percent")) {
+            number = percentage();
+        } else {
+            number = amount(ActionIndex.terms(ActionIndex.splitCamelCase(name)));
+        }
+        if (number == null) {
+            return null;
+        }
+        if (type == double.class || type == Double.class) {
+            return number.number();
+        }
+        return type == int.class || type == Integer.class ? (Object) (int) number.number() : (Object) (long) number.number();
+    }
+
+    private String identifier(String entity) {
+        String prefix = ID_PREFIXES.get(entity);
+        Token fallback = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.kind() != ID || used[i]) {
+                continue;
+            }
+            if (prefix != null && token.text().startsWith(prefix)) {
+                used[i] = true;
+                return token.text();
+            }
+            if (fallback == null && ID_PREFIXES.values().stream().noneMatch(token.text()::startsWith)) {
+                fallback = token;
+            }
+        }
+        if (fallback != null) {
+            used[tokens.indexOf(fallback)] = true;
+            return fallback.text();
+        }
+        return null;
+    }
+
+    /** A number followed by one of {@code units} (and then {@code suffix}, if given), or preceded by a cue word. */
+    private Token numberWithUnit(List<String> units, String suffix, Set<String> cues) {
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.kind() != NUMBER || used[i] || token.money() || token.percent()) {
+                continue;
+            }
+            boolean unit = units.contains(word(i + 1))
+                    && (suffix == null || suffix.equals(word(i + 2)));
+            boolean cue = cues.contains(word(i - 1));
+            if (unit || cue) {
+                used[i] = true;
+                return token;
+            }
+        }
+        return null;
+    }
+
+    private Token percentage() {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).kind() == NUMBER && tokens.get(i).percent() && !used[i]) {
+                used[i] = true;
+                return tokens.get(i);
+            }
+        }
+        return null;
+    }
+
+    /** The unused number whose neighbouring words share most with the parameter name; a lone number wins outright. */
+    private Token amount(List<String> parameterWords) {
+        int best = -1;
+        int bestScore = -1;
+        int candidates = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.kind() != NUMBER || used[i] || token.percent()) {
+                continue;
+            }
+            candidates++;
+            int score = 0;
+            for (int j = Math.max(0, i - 3); j <= Math.min(tokens.size() - 1, i + 1); j++) {
+                if (j != i && tokens.get(j).kind() == WORD
+                        && parameterWords.contains(ActionIndex.stem(tokens.get(j).lower()))) {
+                    score += 2;
+                }
+            }
+            if (token.money()) {
+                score++;
+            }
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        if (best < 0 || (bestScore < 2 && candidates > 1)) {
+            return null;
+        }
+        used[best] = true;
+        return tokens.get(best);
+    }
+
+    private Boolean flag(String name) {
+        String root = name.length() > 5 ? name.substring(0, name.length() - 2) : name;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).kind() == WORD && tokens.get(i).lower().startsWith(root)) {
+                String previous = word(i - 1);
+                String beforePrevious = word(i - 2);
+                return !(NEGATIONS.contains(previous) || NEGATIONS.contains(beforePrevious));
+            }
+        }
+        return null;
+    }
+
+    private String text(String name, String lower) {
+        if (lower.equals("policytype")) {
+            for (Token token : tokens) {
+                if (token.kind() == WORD && PolicyType.parse(token.text()) != PolicyType.OTHER) {
+                    return capitalize(token.lower());
+                }
+            }
+            return null;
+        }
+        if (lower.equals("riskcategory")) {
+            return firstWord(RISK_CATEGORIES, true);
+        }
+        if (lower.equals("healthstatus")) {
+            for (int i = 1; i < tokens.size(); i++) {
+                if ("health".equals(word(i)) && HEALTH_STATUSES.contains(word(i - 1))) {
+                    return word(i - 1);
+                }
+            }
+            return null;
+        }
+        if (lower.endsWith("name")) {
+            Matcher matcher = PERSON_NAME.matcher(query);
+            while (matcher.find()) {
+                if (!matcher.group().contains("Insurance")) {
+                    return matcher.group();
+                }
+            }
+            return null;
+        }
+        if (lower.endsWith("type")) {
+            return typeOf(ActionIndex.stem(lower.substring(0, lower.length() - 4)));
+        }
+        if (lower.equals("occupation")) {
+            return occupation();
+        }
+        if (lower.endsWith("date")) {
+            Matcher matcher = DATE.matcher(query);
+            return matcher.find() ? matcher.group() : null;
+        }
+        if (lower.endsWith("conditions") && NO_CONDITIONS.matcher(query).find()) {
+            return "None";
+        }
+        if (lower.equals("idempotencykey")) {
+            // optional: without an explicit "key ..." the mesh client passes the query's own key
+            return tokenAfter("key");
+        }
+        if (lower.endsWith("method")) {
+            return phraseAfter(Set.of("by", "via", "using"), 3);
+        }
+        if (lower.equals("decision")) {
+            String decision = firstWord(Set.of("approve", "approved", "decline", "declined", "reject", "rejected"), false);
+            return decision == null ? null : decision.startsWith("approve") ? "APPROVED" : "DECLINED";
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).kind() == QUOTED && !used[i]) {
+                used[i] = true;
+                return tokens.get(i).text();
+            }
+        }
+        if (lower.equals("reason") || lower.equals("description")) {
+            return phraseAfter(FREE_TEXT_CUES, Integer.MAX_VALUE);
+        }
+        return null;
+    }
+
+    /** The unused token right after {@code cue} ("key" in "idempotency key K-17"), or an empty string. */
+    private String tokenAfter(String cue) {
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            if (tokens.get(i).kind() == WORD && tokens.get(i).lower().equals(cue) && !used[i + 1]) {
+                used[i + 1] = true;
+                return tokens.get(i + 1).text();
+            }
+        }
+        return "";
+    }
+
+    /** The word right before the entity ("medical" in "submit a medical claim"), unless it is not a type. */
+    private String typeOf(String entity) {
+        for (int i = 1; i < tokens.size(); i++) {
+            if (ActionIndex.stem(word(i)).equals(entity)) {
+                String previous = word(i - 1);
+                return previous.isEmpty() || NOT_A_TYPE.contains(previous) ? null : previous;
+            }
+        }
+        return null;
+    }
+
+    /** The comma-separated part of the query that no other rule explains ("software engineer"). */
+    private String occupation() {
+        String[] parts = query.split(",");
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].trim();
+            String lower = part.toLowerCase(Locale.ROOT);
+            if (!part.isEmpty() && !part.matches(".*\\d.*") && !lower.contains("health") && !lower.contains("smok")
+                    && !lower.startsWith("and ")) {
+                return part;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The text after a cue word, up to {@code maxWords} words and the end of the sentence; phrases with
+     * numbers or identifiers in them ("for policy POL-1") belong to other parameters and are skipped.
+     */
+    private String phraseAfter(Set<String> cues, int maxWords) {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).kind() == WORD && cues.contains(tokens.get(i).lower())) {
+                int from = i + 1;
+                while (from < tokens.size() && FILLERS.contains(word(from))) {
+                    from++;
+                }
+                if (from >= tokens.size()) {
+                    break;
+                }
+                int to = from;
+                while (to + 1 < tokens.size() && to + 1 - from < maxWords
+                        && !query.substring(tokens.get(to).end(), tokens.get(to + 1).start()).matches(".*[.;,!?].*")) {
+                    to++;
+                }
+                boolean plain = true;
+                for (int j = from; j <= to; j++) {
+                    plain &= tokens.get(j).kind() == WORD;
+                }
+                if (plain) {
+                    return query.substring(tokens.get(from).start(), tokens.get(to).end());
+                }
+            }
+        }
+        return null;
+    }
+
+    private String firstWord(Set<String> words, boolean upperCase) {
+        for (Token token : tokens) {
+            if (token.kind() == WORD && words.contains(token.lower())) {
+                return upperCase ? token.text().toUpperCase(Locale.ROOT) : token.lower();
+            }
+        }
+        return null;
+    }
+
+    /** The lower-cased word at {@code index}, or an empty string if there is no word token there. */
+    private String word(int index) {
+        return index >= 0 && index < tokens.size() && tokens.get(index).kind() == WORD ? tokens.get(index).lower() : "";
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.insuranceclient;
+
+/**
+ * Result of one {@link QueryPlan} step. {@code text} is the agent's reply for {@link Status#SUCCEEDED}
+ * and a short explanation otherwise; times are {@link System#nanoTime()} based and relative to the start
+ * of the plan.
+ */
+public record QueryOutcome(String name,
+                           String query,
+                           Status status,
+                           String text,
+                           long startedNanos,
+                           long elapsedNanos) {
+
+    public enum Status { SUCCEEDED, FAILED, TIMED_OUT, SKIPPED }
+
+    public boolean succeeded() {
+        return status == Status.SUCCEEDED;
+    }
+
+    public double elapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+}
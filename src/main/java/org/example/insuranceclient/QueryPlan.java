@@ -0,0 +1,63 @@
+package org.example.insuranceclient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named mesh queries and the queries each one depends on.
+ * <p>
+ * A step can only depend on steps added before it, so the plan is acyclic and its insertion order is a
+ * valid execution order. A query may quote the text result of a dependency with a {@code {stepName}}
+ * placeholder, e.g. {@code "Calculate a premium for this risk assessment: {Risk Assessment}"}.
+ * <p>
+ * Every step gets an idempotency key when it is added, so running the same plan again (after a timeout,
+ * say) replays the steps' payments rather than making them twice.
+ */
+public final class QueryPlan {
+
+    public record Step(String name, String query, List<String> dependsOn, Duration timeout, String idempotencyKey) {
+
+        /** The query with every {@code {dependency}} placeholder replaced by that dependency's result. */
+        public String resolve(Map<String, QueryOutcome> results) {
+            String resolved = query;
+            for (String dependency : dependsOn) {
+                resolved = resolved.replace("{" + dependency + "}", results.get(dependency).text());
+            }
+            return resolved;
+        }
+    }
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    /** Adds a step that uses the client's default timeout. */
+    public QueryPlan add(String name, String query, String... dependsOn) {
+        return add(name, query, null, dependsOn);
+    }
+
+    public QueryPlan add(String name, String query, Duration timeout, String... dependsOn) {
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate query step: " + name);
+        }
+        for (String dependency : dependsOn) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Step " + name + " depends on unknown step " + dependency);
+            }
+        }
+        steps.put(name, new Step(name, query, List.of(dependsOn), timeout,
+                RoutingMeshClient.newIdempotencyKey()));
+        return this;
+    }
+
+    /** Steps in insertion order, which is also a topological order. */
+    public List<Step> steps() {
+        return Collections.unmodifiableList(new ArrayList<>(steps.values()));
+    }
+
+    public int size() {
+        return steps.size();
+    }
+}
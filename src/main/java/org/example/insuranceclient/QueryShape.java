@@ -0,0 +1,70 @@
+package org.example.insuranceclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A query with its variable parts masked, so that "Get policy details for POL-12345" and "Get policy
+ * details for POL-98765" share the key {@code "get policy details for {id}"}.
+ * <p>
+ * Quoted text, business identifiers ({@code POL-12345}), names (two or more capitalised words after the
+ * first word) and numbers (including amounts such as {@code $5,000} and percentages) become slots; the
+ * slot values are kept in query order so a cached route can bind them to action parameters.
+ */
+public record QueryShape(String key, List<String> slots) {
+
+    private static final Pattern SLOT = Pattern.compile(
+            "(?<text>\"[^\"]*\"|'[^']*')" +
+            "|(?<id>\\b[A-Z]{2,6}-\\d[A-Z0-9-]*\\b)" +
+            "|(?<name>(?<=\\s)[A-Z][a-z]+(?:\\s+[A-Z][a-z]+)+\\b)" +
+            "|(?<num>\\$?\\d(?:[\\d,]*\\d)?(?:\\.\\d+)?%?)");
+    private static final String[] KINDS = {"text", "id", "name", "num"};
+
+    public static QueryShape of(String query) {
+        String input = query.trim();
+        StringBuilder key = new StringBuilder(input.length());
+        List<String> slots = new ArrayList<>();
+        Matcher matcher = SLOT.matcher(input);
+        int last = 0;
+        while (matcher.find()) {
+            appendText(key, input, last, matcher.start());
+            for (String kind : KINDS) {
+                String value = matcher.group(kind);
+                if (value != null) {
+                    key.append('{').append(kind).append('}');
+                    slots.add(kind.equals("text") ? value.substring(1, value.length() - 1) : value);
+                    break;
+                }
+            }
+            last = matcher.end();
+        }
+        appendText(key, input, last, input.length());
+        return new QueryShape(key.toString().trim(), List.copyOf(slots));
+    }
+
+    /** The numeric value of a slot ({@code "$5,000"} is 5000), or {@code null} if it is not a number. */
+    public static Double numericValue(String slot) {
+        String digits = slot.replace("$", "").replace(",", "").replace("%", "").trim();
+        try {
+            return digits.isEmpty() ? null : Double.valueOf(digits);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Lower-cased text between slots, with runs of whitespace collapsed to one space. */
+    private static void appendText(StringBuilder key, String input, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (key.length() > 0 && key.charAt(key.length() - 1) != ' ') {
+                    key.append(' ');
+                }
+            } else {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package org.example.insuranceclient;
+
+import lombok.extern.java.Log;
+import org.example.common.IdGenerator;
+
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Spreads an agent's calls over its replicas, so one slow or crashed server doesn't stall every query that
+ * needs its agent.
+ * <p>
+ * Agents keep their URL in the four-server layout; {@code -Dmesh.replicas} adds more servers answering for
+ * it, e.g. {@code http://localhost:7872/=http://localhost:7882/,http://localhost:7892/} (agents separated by
+ * {@code ;}). Each call goes to the replica with the lowest latency EWMA times its calls in flight, so a
+ * replica that slows down or piles up work gets less until it recovers. Every replica has a circuit
+ * breaker: after {@code mesh.breaker.failures} (default 3) transport failures in a row it is skipped for
+ * {@code mesh.breaker.open.ms} (default 5000), then gets a single trial call that closes the breaker again
+ * or re-opens it. A call that could not connect is retried on another replica; anything else that fails
+ * after the request was sent is not, since the action may have run. Replies reporting a failed action count
+ * as a healthy replica, and so does a replica that turns a call away as busy ({@link AgentBusyException}):
+ * the call goes to another replica, and only if all of them are busy is it thrown.
+ * <p>
+ * Once {@link #start() started}, every replica is probed with {@code tools/list} each
+ * {@code mesh.health.interval.ms} (default 5000): a failed probe opens its breaker at once and a probe that
+ * succeeds closes it, so a crashed replica stops taking calls before a query finds out and a restarted one
+ * is back without waiting for the breaker. Probe times feed the EWMA too, which lets an idle replica's
+ * latency recover. {@link #health()} reports all of it, as last seen: it never calls an agent itself, and an
+ * agent no probe has reached yet is reported as unknown. {@link #watch} has agents probed before any call
+ * needs them.
+ * <p>
+ * Replicas do not share state, so a call about a record one replica created has to go to that replica. A
+ * replica may be listed with its {@code mesh.node.id} ({@code http://localhost:7882/@12}); a call whose
+ * arguments carry an id minted by {@link IdGenerator} on one of the agent's listed nodes ({@code CLM-...})
+ * goes only to that replica, and fails as unavailable rather than reaching one that does not know the id.
+ */
+@Log
+public final class ReplicaBalancer implements ToolTransport, AutoCloseable {
+
+    public static final String REPLICAS_PROPERTY = "mesh.replicas";
+
+    /** Weight of the newest sample in the latency EWMA. */
+    private static final double DECAY = 0.2;
+    /** A replica URL with its node id, {@code http://localhost:7882/@12}. */
+    private static final Pattern NODE_SUFFIX = Pattern.compile("(.*)@(\\d{1,4})");
+    /** An id minted by {@link IdGenerator} behind its prefix, {@code CLM-104715770470072320}. */
+    private static final Pattern MINTED_ID = Pattern.compile("\\s*[A-Za-z]+-(\\d{1,19})\\s*");
+
+    public enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    /** One replica: its breaker, calls in flight, latency EWMA and transport failures so far. */
+    public record ReplicaHealth(String url, BreakerState state, int inFlight, double latencyMillis, long failures) {
+
+        public boolean up() {
+            return state == BreakerState.CLOSED;
+        }
+    }
+
+    /** An agent and its replicas, as last seen by calls and probes. */
+    public record AgentHealth(String agentUrl, boolean probed, List<ReplicaHealth> replicas) {
+
+        public long upCount() {
+            return replicas.stream().filter(ReplicaHealth::up).count();
+        }
+
+        /** {@code OPERATIONAL}, {@code DEGRADED} (some replicas down), {@code DOWN} or {@code UNKNOWN}. */
+        public String status() {
+            long up = upCount();
+            return !probed ? "UNKNOWN" : up == replicas.size() ? "OPERATIONAL" : up > 0 ? "DEGRADED" : "DOWN";
+        }
+
+        /** Mean latency EWMA of the replicas that are up, 0 if none has a sample yet. */
+        public double latencyMillis() {
+            return replicas.stream().filter(ReplicaHealth::up).mapToDouble(ReplicaHealth::latencyMillis)
+                    .filter(latency -> latency > 0).average().orElse(0);
+        }
+    }
+
+    private static final class Replica {
+        final String url;
+        /** The replica's {@code mesh.node.id}, -1 if not listed. */
+        final int nodeId;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicBoolean trialInFlight = new AtomicBoolean();
+        volatile BreakerState state = BreakerState.CLOSED;
+        volatile long openUntil;
+        volatile double latencyNanos;
+
+        Replica(String spec) {
+            Matcher node = NODE_SUFFIX.matcher(spec);
+            this.url = node.matches() ? node.group(1) : spec;
+            this.nodeId = node.matches() ? Integer.parseInt(node.group(2)) : -1;
+        }
+
+        /** Whether a call may go here now; an open breaker whose time is up lets exactly one caller through. */
+        boolean admits(long now) {
+            BreakerState current = state;
+            if (current == BreakerState.CLOSED) {
+                return true;
+            }
+            if (current == BreakerState.OPEN && now - openUntil >= 0 && trialInFlight.compareAndSet(false, true)) {
+                state = BreakerState.HALF_OPEN;
+                return true;
+            }
+            return false;
+        }
+
+        double score() {
+            return latencyNanos * (inFlight.get() + 1);
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + DECAY * (nanos - latencyNanos);
+        }
+
+        void succeeded() {
+            consecutiveFailures.set(0);
+            if (state != BreakerState.CLOSED) {
+                state = BreakerState.CLOSED;
+                trialInFlight.set(false);
+            }
+        }
+
+        void failed(int threshold, long openNanos) {
+            failures.incrementAndGet();
+            if (state == BreakerState.HALF_OPEN || consecutiveFailures.incrementAndGet() >= threshold) {
+                open(openNanos);
+            }
+        }
+
+        void open(long openNanos) {
+            openUntil = System.nanoTime() + openNanos;
+            state = BreakerState.OPEN;
+            trialInFlight.set(false);
+        }
+
+        ReplicaHealth health() {
+            return new ReplicaHealth(url, state, inFlight.get(), latencyNanos / 1e6, failures.get());
+        }
+    }
+
+    private static final class Agent {
+        final List<Replica> replicas;
+        volatile boolean probed;
+
+        Agent(List<String> urls) {
+            this.replicas = urls.stream().map(Replica::new).toList();
+        }
+    }
+
+    private static volatile ReplicaBalancer shared;
+
+    private final ToolTransport transport;
+    private final Map<String, Agent> agents = new ConcurrentHashMap<>();
+    private final List<String> agentOrder = new CopyOnWriteArrayList<>();
+    private final Map<String, List<String>> configured;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Duration probeInterval;
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mesh-health");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param replicas agent URL and the servers answering for it, the agent's own URL included; agents not
+     *                 listed are called at their own URL only
+     */
+    public ReplicaBalancer(ToolTransport transport, Map<String, List<String>> replicas, int failureThreshold,
+                           Duration openDuration, Duration probeInterval) {
+        this.transport = transport;
+        this.configured = Map.copyOf(replicas);
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.probeInterval = probeInterval;
+        replicas.keySet().forEach(this::agent);
+    }
+
+    /** A balancer over {@code agentUrls} and the replicas given with {@code -Dmesh.replicas}. */
+    public static ReplicaBalancer withConfiguredReplicas(ToolTransport transport, List<String> agentUrls) {
+        Map<String, List<String>> replicas = new LinkedHashMap<>();
+        agentUrls.forEach(url -> replicas.put(url, List.of(url)));
+        replicas.putAll(parseReplicas(System.getProperty(REPLICAS_PROPERTY, "")));
+        return new ReplicaBalancer(transport, replicas, Integer.getInteger("mesh.breaker.failures", 3),
+                Duration.ofMillis(Long.getLong("mesh.breaker.open.ms", 5000)),
+                Duration.ofMillis(Long.getLong("mesh.health.interval.ms", 5000)));
+    }
+
+    /** Replaces the JVM wide balancer, e.g. with an in-process transport in the consolidated server. */
+    public static synchronized void configureShared(ToolTransport transport) {
+        if (shared != null) {
+            shared.close();
+        }
+        shared = withConfiguredReplicas(transport, List.of()).start();
+    }
+
+    /** The JVM wide balancer, calling agents over JSON-RPC if not configured. */
+    public static ReplicaBalancer shared() {
+        ReplicaBalancer balancer = shared;
+        if (balancer == null) {
+            synchronized (ReplicaBalancer.class) {
+                if (shared == null) {
+                    shared = withConfiguredReplicas(new MeshToolClient(Duration.ofMillis(
+                            Long.getLong("mesh.call.timeout.ms", 3000))), List.of()).start();
+                }
+                balancer = shared;
+            }
+        }
+        return balancer;
+    }
+
+    /**
+     * Agent URL to its replicas, the agent's own URL first, from {@code agent=replica,replica;agent=...}; any
+     * of them may end in {@code @nodeId}.
+     */
+    static Map<String, List<String>> parseReplicas(String spec) {
+        Map<String, List<String>> replicas = new LinkedHashMap<>();
+        for (String entry : spec.split(";")) {
+            int equals = entry.indexOf('=');
+            if (entry.isBlank()) {
+                continue;
+            }
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected agentUrl=replicaUrl,...: " + entry);
+            }
+            String agentSpec = entry.substring(0, equals).strip();
+            Matcher node = NODE_SUFFIX.matcher(agentSpec);
+            String agentUrl = node.matches() ? node.group(1) : agentSpec;
+            List<String> urls = new ArrayList<>(List.of(agentSpec));
+            for (String replica : entry.substring(equals + 1).split(",")) {
+                if (!replica.isBlank() && !urls.contains(replica.strip())) {
+                    urls.add(replica.strip());
+                }
+            }
+            replicas.put(agentUrl, List.copyOf(urls));
+        }
+        return replicas;
+    }
+
+    /** Starts the health probes. */
+    public ReplicaBalancer start() {
+        long interval = probeInterval.toMillis();
+        prober.scheduleWithFixedDelay(this::probeAll, 0, interval, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    @Override
+    public void close() {
+        prober.shutdownNow();
+    }
+
+    /** Lists the tools of the first replica that answers, named by the agent URL. */
+    @Override
+    public List<MeshTool> listTools(String agentUrl) {
+        return send(agentUrl, replica -> {
+            List<MeshTool> tools = new ArrayList<>();
+            for (MeshTool tool : transport.listTools(replica)) {
+                tools.add(new MeshTool(agentUrl, tool.name(), tool.description(), tool.parameters()));
+            }
+            return tools;
+        });
+    }
+
+    @Override
+    public String callTool(String agentUrl, String action, Map<String, Object> arguments) {
+        Agent agent = agent(agentUrl);
+        Replica owner = owner(agent, arguments);
+        if (owner == null) {
+            return send(agentUrl, replica -> transport.callTool(replica, action, arguments));
+        }
+        if (!owner.admits(System.nanoTime())) {
+            throw new UncheckedIOException("Replica " + owner.url + " of " + agentUrl + ", which holds the record, " +
+                    "is not available", new ConnectException("circuit breaker is open"));
+        }
+        return call(owner, () -> transport.callTool(owner.url, action, arguments));
+    }
+
+    /** Every agent the balancer has seen, in the order it first saw them. */
+    public List<AgentHealth> health() {
+        List<AgentHealth> health = new ArrayList<>();
+        for (String agentUrl : agentOrder) {
+            health.add(health(agentUrl));
+        }
+        return health;
+    }
+
+    /**
+     * Adds agents to the health probes without calling them, so their health is known by the time it is asked
+     * for; the next round of probes reaches them.
+     */
+    public ReplicaBalancer watch(Collection<String> agentUrls) {
+        agentUrls.forEach(this::agent);
+        return this;
+    }
+
+    /**
+     * The health of one agent as last seen, {@linkplain AgentHealth#probed() unprobed} until the background
+     * probes reach it; an agent the balancer did not know is added to them.
+     */
+    public AgentHealth health(String agentUrl) {
+        Agent agent = agent(agentUrl);
+        return new AgentHealth(agentUrl, agent.probed, agent.replicas.stream().map(Replica::health).toList());
+    }
+
+    private Agent agent(String agentUrl) {
+        return agents.computeIfAbsent(agentUrl, url -> {
+            agentOrder.add(url);
+            return new Agent(configured.getOrDefault(url, List.of(url)));
+        });
+    }
+
+    private <T> T send(String agentUrl, Function<String, T> call) {
+        Agent agent = agent(agentUrl);
+        Set<Replica> tried = new HashSet<>();
+        RuntimeException failure = null;
+        while (tried.size() < agent.replicas.size()) {
+            Replica replica = pick(agent, tried);
+            if (replica == null) {
+                break;
+            }
+            tried.add(replica);
+            try {
+                return call(replica, () -> call.apply(replica.url));
+            } catch (UncheckedIOException e) {
+                if (!(e.getCause() instanceof ConnectException)) {
+                    throw e;
+                }
+                log.fine("Replica " + replica.url + " of " + agentUrl + " refused the connection, trying another");
+                if (!(failure instanceof AgentBusyException)) {
+                    failure = e;
+                }
+            } catch (AgentBusyException e) {
+                // the replica is up but shedding load; another one may have room
+                log.fine("Replica " + replica.url + " of " + agentUrl + " is busy, trying another");
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        // as good as a refused connection: the call was not sent anywhere
+        throw new UncheckedIOException("No replica of " + agentUrl + " is available",
+                new ConnectException("all circuit breakers are open"));
+    }
+
+    /**
+     * Makes one call to {@code replica}, feeding its breaker and latency: a transport failure counts against the
+     * replica, a busy reply does not, and any other failure means the replica answered.
+     */
+    private <T> T call(Replica replica, Supplier<T> call) {
+        replica.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            replica.recordLatency(System.nanoTime() - start);
+            replica.succeeded();
+            return result;
+        } catch (UncheckedIOException e) {
+            replica.failed(failureThreshold, openNanos);
+            throw e;
+        } catch (AgentBusyException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // the replica answered; it is the action that failed
+            replica.recordLatency(System.nanoTime() - start);
+            replica.succeeded();
+            throw e;
+        } finally {
+            replica.inFlight.decrementAndGet();
+        }
+    }
+
+    /** The replica that minted an id among {@code arguments}, if it is one of the agent's listed nodes. */
+    private static Replica owner(Agent agent, Map<String, Object> arguments) {
+        if (agent.replicas.size() < 2 || arguments == null) {
+            return null;
+        }
+        for (Object value : arguments.values()) {
+            Matcher id = value instanceof CharSequence text ? MINTED_ID.matcher(text) : null;
+            if (id == null || !id.matches()) {
+                continue;
+            }
+            int node;
+            try {
+                node = IdGenerator.nodeOf(Long.parseLong(id.group(1)));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            for (Replica replica : agent.replicas) {
+                if (replica.nodeId == node) {
+                    return replica;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** The admitted replica with the lowest score, starting the scan at a random one to break ties. */
+    private static Replica pick(Agent agent, Set<Replica> tried) {
+        List<Replica> replicas = agent.replicas;
+        int offset = replicas.size() == 1 ? 0 : ThreadLocalRandom.current().nextInt(replicas.size());
+        long now = System.nanoTime();
+        Replica best = null;
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((offset + i) % replicas.size());
+            if (tried.contains(replica) || replica.state != BreakerState.CLOSED) {
+                continue;
+            }
+            if (best == null || replica.score() < best.score()) {
+                best = replica;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        // no closed breaker: let one replica whose open time is up have its trial call
+        for (Replica replica : replicas) {
+            if (!tried.contains(replica) && replica.admits(now)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void probeAll() {
+        for (String agentUrl : agentOrder) {
+            probe(agent(agentUrl));
+        }
+    }
+
+    private void probe(Agent agent) {
+        for (Replica replica : agent.replicas) {
+            long start = System.nanoTime();
+            try {
+                transport.listTools(replica.url);
+                replica.recordLatency(System.nanoTime() - start);
+                if (replica.state != BreakerState.CLOSED) {
+                    log.info("Replica " + replica.url + " is answering again");
+                }
+                replica.succeeded();
+            } catch (AgentBusyException e) {
+                // admission control turned the probe away: the replica is up, just full
+                replica.succeeded();
+            } catch (RuntimeException e) {
+                if (replica.state == BreakerState.CLOSED) {
+                    log.warning("Replica " + replica.url + " failed its health probe: " + e.getMessage());
+                }
+                replica.failures.incrementAndGet();
+                replica.open(openNanos);
+            }
+        }
+        agent.probed = true;
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.insuranceclient;
+
+import org.example.common.CompactReply;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures what {@link CompactReply} saves on the demo flows: tokens per reply, and the wall time and prompt
+ * size of a pipeline whose later steps quote earlier replies.
+ * <p>
+ * First every action the {@link InsuranceMeshClient} demo reaches is called in process and its text and
+ * compact replies are compared. Tokens are counted by the model configured in {@code tools4ai.properties}
+ * ({@link LlmRouteResolver#promptTokens(String)}), since how far JSON shrinks in tokens depends on its
+ * tokenizer; without a model only the characters are compared. Then, when the four servers are running too, a
+ * dependent {@link QueryPlan} is run through a {@link RoutingMeshClient} with each reply format, asked for per
+ * request, and the mean wall time and the tokens quoted into the dependent queries are printed for both.
+ * <p>
+ * Usage: {@code ReplyFormatProbe [iterations]} (default 5 pipeline runs per format, after one for warm-up).
+ */
+public final class ReplyFormatProbe {
+
+    private record Hop(String agentUrl, String action, Map<String, Object> arguments) {
+    }
+
+    private static final List<Hop> DEMO_HOPS = List.of(
+            new Hop(MeshAgents.CUSTOMER_SERVICE_URL, "getCustomerAccount", Map.of("customerId", "CUST-12345")),
+            new Hop(MeshAgents.UNDERWRITING_URL, "assessRisk", Map.of("applicantName", "John Doe", "age", 42,
+                    "healthStatus", "good", "occupation", "software engineer", "smoker", false)),
+            new Hop(MeshAgents.POLICY_URL, "createPolicy", Map.of("policyType", "Life", "customerName", "John Doe",
+                    "coverageAmount", 500000)),
+            new Hop(MeshAgents.CLAIMS_URL, "submitClaim", Map.of("policyNumber", "POL-12345", "claimType", "medical",
+                    "claimAmount", 5000, "description", "emergency surgery")),
+            new Hop(MeshAgents.POLICY_URL, "listCustomerPolicies", Map.of("customerId", "CUST-12345")),
+            new Hop(MeshAgents.CLAIMS_URL, "getClaimsSummary", Map.of("policyNumber", "POL-12345")),
+            new Hop(MeshAgents.UNDERWRITING_URL, "generateRiskReport", Map.of("applicationId", "APP-12345")),
+            new Hop(MeshAgents.UNDERWRITING_URL, "calculatePremiumRate", Map.of("policyType", "Life",
+                    "riskCategory", "LOW", "coverageAmount", 500000)));
+
+    private static final QueryPlan PIPELINE = new QueryPlan()
+            .add("Risk Assessment",
+                    "Assess risk for John Doe, 42 years old, good health, software engineer, non-smoker")
+            .add("Risk Report", "Generate risk report for application APP-12345")
+            .add("Premium", "Calculate the premium rate for a Life policy with $500,000 coverage for this applicant: " +
+                    "{Risk Assessment}", "Risk Assessment")
+            .add("Decision", "Approve or decline application APP-12345 based on this report: {Risk Report}",
+                    "Risk Report");
+
+    private ReplyFormatProbe() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        LlmRouteResolver llm = LlmRouteResolver.fromToolsProperties(Duration.ofSeconds(120));
+        if (!llm.isConfigured()) {
+            printReplySizes("characters", String::length);
+            System.out.println("\nSkipping token counts and the pipeline: no model configured in tools4ai.properties");
+            return;
+        }
+        printReplySizes("tokens", llm::promptTokens);
+
+        MeshToolClient probe = new MeshToolClient(Duration.ofSeconds(10));
+        try {
+            probe.listTools(MeshAgents.POLICY_URL);
+        } catch (RuntimeException e) {
+            System.out.println("\nSkipping the pipeline: " + e.getMessage());
+            return;
+        }
+        System.out.println();
+        for (String format : List.of(CompactReply.TEXT, CompactReply.COMPACT)) {
+            runPipeline(format, llm, iterations);
+        }
+    }
+
+    private static void printReplySizes(String unit, ToLongFunction<String> size) {
+        InProcessToolTransport transport =
+                new InProcessToolTransport(MeshAgents.instances(ReplyFormatProbe::newInstance));
+        long textTotal = 0;
+        long compactTotal = 0;
+        System.out.printf("%-22s %12s %15s %10s%n", "Action", "Text", "Compact", "Saved");
+        for (Hop hop : DEMO_HOPS) {
+            String text = transport.callTool(hop.agentUrl(), hop.action(), hop.arguments());
+            long textSize = size.applyAsLong(text);
+            long compactSize = size.applyAsLong(CompactReply.compact(text));
+            textTotal += textSize;
+            compactTotal += compactSize;
+            System.out.printf("%-22s %12d %15d %9.1f%%%n", hop.action(), textSize, compactSize,
+                    saved(textSize, compactSize));
+        }
+        System.out.printf("%-22s %12d %15d %9.1f%%   (%s)%n", "Total", textTotal, compactTotal,
+                saved(textTotal, compactTotal), unit);
+    }
+
+    private static void runPipeline(String format, LlmRouteResolver llm, int iterations) throws InterruptedException {
+        RoutingMeshClient mesh = new RoutingMeshClient(MeshAgents.URLS,
+                new MeshToolClient(Duration.ofSeconds(120), format),
+                new LocalActionRouter(ActionIndex.of(MeshAgents.SERVICES), llm),
+                new RoutingCache(1, 1), query -> {
+                    throw new IllegalStateException("No route for: " + query);
+                });
+        try (ScatterGatherClient client = new ScatterGatherClient(mesh, Duration.ofSeconds(120))) {
+            Map<String, QueryOutcome> outcomes = client.execute(PIPELINE);
+            long[] nanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                outcomes = client.execute(PIPELINE);
+                nanos[i] = System.nanoTime() - start;
+            }
+            long quotedTokens = 0;
+            for (QueryPlan.Step step : PIPELINE.steps()) {
+                if (!step.dependsOn().isEmpty()) {
+                    quotedTokens += llm.promptTokens(outcomes.get(step.name()).query()) -
+                            llm.promptTokens(step.query());
+                }
+            }
+            System.out.printf("%-8s pipeline mean %8.1f ms   quoted into dependent queries: %d tokens%n", format,
+                    Arrays.stream(nanos).average().orElse(0) / 1e6,
+                    quotedTokens);
+        }
+    }
+
+    private static double saved(long text, long compact) {
+        return text == 0 ? 0 : 100.0 * (text - compact) / text;
+    }
+
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + type.getName(), e);
+        }
+    }
+}
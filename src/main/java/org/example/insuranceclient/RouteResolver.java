@@ -0,0 +1,22 @@
+package org.example.insuranceclient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Chooses the agent, action and arguments for a natural-language query, e.g. by asking an LLM or by
+ * scoring the query against the action descriptions.
+ */
+public interface RouteResolver {
+
+    /** A resolved call: the arguments are the concrete values for this query. */
+    record Resolution(String agentUrl, String action, Map<String, Object> arguments) {
+    }
+
+    /**
+     * Returns the call for {@code query}, or {@code null} if none of the tools fits it. The tools are listed
+     * from the agents on first use, so resolvers that do not need them cause no network traffic.
+     */
+    Resolution resolve(String query, Supplier<List<MeshTool>> tools);
+}
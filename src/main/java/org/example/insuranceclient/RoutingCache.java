@@ -0,0 +1,135 @@
+package org.example.insuranceclient;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU cache of {@link MeshRoute}s by {@link QueryShape} key, with a time to live per entry.
+ * <p>
+ * The cache holds a few hundred templates at most and is read once per query, so a synchronized
+ * access-ordered {@link LinkedHashMap} is enough; the counters are {@link LongAdder}s so that reading the
+ * statistics never contends with lookups.
+ */
+public final class RoutingCache {
+
+    /**
+     * Counters since the cache was created; latencies are the average end-to-end query time per path, over the
+     * queries that completed. A cached route that failed and was resolved again counts as a miss.
+     */
+    public record Stats(long hits, long misses, long uncacheable, long evictions, long expirations, int size,
+                        double averageHitMillis, double averageMissMillis) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Routing cache: %d hits, %d misses (%.1f%% hit rate), %d uncacheable, " +
+                            "%d evicted, %d expired, %d routes; avg %.1f ms on hit vs %.1f ms on miss",
+                    hits, misses, hitRate() * 100, uncacheable, evictions, expirations, size,
+                    averageHitMillis, averageMissMillis);
+        }
+    }
+
+    private record Entry(MeshRoute route, long expiresAtNanos) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> routes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder uncacheable = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder hitNanos = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+    private final LongAdder hitSamples = new LongAdder();
+    private final LongAdder missSamples = new LongAdder();
+
+    public RoutingCache(int maxSize, long ttlNanos) {
+        this(maxSize, ttlNanos, System::nanoTime);
+    }
+
+    RoutingCache(int maxSize, long ttlNanos, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.routes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > RoutingCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** The route for {@code shapeKey}, or {@code null} (counted as a miss) if there is none or it expired. */
+    public MeshRoute get(String shapeKey) {
+        long now = clock.getAsLong();
+        synchronized (routes) {
+            Entry entry = routes.get(shapeKey);
+            if (entry != null && now - entry.expiresAtNanos() < 0) {
+                hits.increment();
+                return entry.route();
+            }
+            if (entry != null) {
+                routes.remove(shapeKey);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String shapeKey, MeshRoute route) {
+        Entry entry = new Entry(route, clock.getAsLong() + ttlNanos);
+        synchronized (routes) {
+            routes.put(shapeKey, entry);
+        }
+    }
+
+    /** Drops a route, e.g. after calling it failed. */
+    public void invalidate(String shapeKey) {
+        synchronized (routes) {
+            routes.remove(shapeKey);
+        }
+    }
+
+    void recordUncacheable() {
+        uncacheable.increment();
+    }
+
+    /** Moves a lookup from hits to misses: the route it returned failed and the query was resolved again. */
+    void recordFailedHit() {
+        hits.decrement();
+        misses.increment();
+    }
+
+    void recordLatency(boolean hit, long nanos) {
+        (hit ? hitNanos : missNanos).add(nanos);
+        (hit ? hitSamples : missSamples).increment();
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (routes) {
+            size = routes.size();
+        }
+        // averaged over the queries that recorded a latency, not over lookups: a query that threw recorded none
+        long hitCount = hitSamples.sum();
+        long missCount = missSamples.sum();
+        return new Stats(hits.sum(), misses.sum(), uncacheable.sum(), evictions.sum(), expirations.sum(), size,
+                hitCount == 0 ? 0 : hitNanos.sum() / 1e6 / hitCount,
+                missCount == 0 ? 0 : missNanos.sum() / 1e6 / missCount);
+    }
+}
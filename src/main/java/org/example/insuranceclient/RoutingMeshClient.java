@@ -0,0 +1,220 @@
+package org.example.insuranceclient;
+
+import lombok.extern.java.Log;
+import org.example.common.tracing.Span;
+import org.example.common.tracing.Tracer;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Sends mesh queries with a {@link RoutingCache} in front of the LLM routing step.
+ * <p>
+ * On a hit the cached route's action is called directly with arguments taken from the query's slots, so
+ * the query costs one action call and no LLM round trip. On a miss the {@link RouteResolver} picks the
+ * call, the action is invoked and, if the decision can be expressed in terms of the query's shape, it is
+ * cached for the next query of that shape. Queries the resolver cannot route go to the fallback (normally
+ * {@code agentCatalog.processQuery}).
+ * <p>
+ * A call that fails is only made again, by re-routing a cached route and then by the fallback, when doing so
+ * cannot repeat its effect: the request never reached the agent (the connection was refused, or no replica
+ * was available), or the action only reads ({@code get...}, {@code list...}, {@code calculate...} and the
+ * like). Any other failure of an action that changes something is thrown, since the action may have run
+ * before the reply was lost, and a caller that retries does so with the query's idempotency key. Calls an
+ * agent turned away as busy ({@link AgentBusyException}) are thrown too: the fallback would call the same
+ * agent, after a model call.
+ * <p>
+ * Each query carries one idempotency key, minted for it unless the caller passes one, and every call made
+ * for it passes that key on: as the {@value MeshTool#IDEMPOTENCY_KEY} argument of an action that takes one
+ * (unless the query names its own key), and in the text of the query handed to the fallback. So an agent
+ * runs a payment at most once however often the query is re-routed. A caller that retries a query after an
+ * error or a timeout must pass the key of the first attempt to {@link #apply(String, String)}; a fresh key
+ * is a new payment.
+ * <p>
+ * Every query is traced as a {@code mesh query} span, with a client span per action call whose context the
+ * transport passes on to the agent.
+ */
+@Log
+public final class RoutingMeshClient implements Function<String, String> {
+
+    /** Name prefixes of the actions that only read, so calling one twice does no harm. */
+    private static final Set<String> READ_ONLY_PREFIXES = Set.of("get", "list", "check", "calculate", "assess",
+            "evaluate");
+
+    private final AgentDirectory directory;
+    private final ToolTransport toolClient;
+    private final RouteResolver resolver;
+    private final RoutingCache cache;
+    private final Function<String, String> fallback;
+
+    /** A client listing the agents' actions when the first query needs them, with no snapshot. */
+    public RoutingMeshClient(List<String> agentUrls, ToolTransport toolClient, RouteResolver resolver,
+                             RoutingCache cache, Function<String, String> fallback) {
+        this(new AgentDirectory(agentUrls, toolClient, null), toolClient, resolver, cache, fallback);
+    }
+
+    public RoutingMeshClient(AgentDirectory directory, ToolTransport toolClient, RouteResolver resolver,
+                             RoutingCache cache, Function<String, String> fallback) {
+        this.directory = directory;
+        this.toolClient = toolClient;
+        this.resolver = resolver;
+        this.cache = cache;
+        this.fallback = fallback;
+    }
+
+    /** Sends {@code query} under a new idempotency key, so it is never taken for a retry. */
+    @Override
+    public String apply(String query) {
+        return apply(query, newIdempotencyKey());
+    }
+
+    /**
+     * Sends {@code query} under {@code idempotencyKey}; a retry of the same query must reuse the key, so an
+     * action the first attempt already ran returns its original result instead of running again.
+     */
+    public String apply(String query, String idempotencyKey) {
+        Span span = Tracer.shared().startSpan("mesh query", Span.Kind.INTERNAL);
+        try (Span.Scope ignored = span.makeCurrent()) {
+            return route(query, idempotencyKey, span);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    public RoutingCache.Stats stats() {
+        return cache.stats();
+    }
+
+    /** A key for one logical query, unique across clients without any coordination between them. */
+    public static String newIdempotencyKey() {
+        return "IDK-" + UUID.randomUUID();
+    }
+
+    private String route(String query, String idempotencyKey, Span span) {
+        long start = System.nanoTime();
+        QueryShape shape = QueryShape.of(query);
+        span.attribute("mesh.query.shape", shape.key());
+        MeshRoute route = cache.get(shape.key());
+        span.attribute("mesh.route.cached", route != null);
+        if (route != null) {
+            try {
+                String text = callTool(route.agentUrl(), route.action(),
+                        withIdempotencyKey(route.arguments(shape.slots()), idempotencyKey));
+                cache.recordLatency(true, System.nanoTime() - start);
+                return text;
+            } catch (AgentBusyException e) {
+                throw e; // the route is fine, the agent has no room for it
+            } catch (RuntimeException e) {
+                cache.invalidate(shape.key());
+                if (!canCallAgain(route.action(), e)) {
+                    throw e; // the action may have run
+                }
+                cache.recordFailedHit(); // re-routed below, so its time is a miss's
+                log.warning("Cached route " + route.action() + " for \"" + shape.key() + "\" failed, re-routing: " +
+                        e.getMessage());
+            }
+        }
+        String text = resolveAndCall(query, shape, idempotencyKey);
+        cache.recordLatency(false, System.nanoTime() - start);
+        return text;
+    }
+
+    private String resolveAndCall(String query, QueryShape shape, String idempotencyKey) {
+        RouteResolver.Resolution resolution;
+        try {
+            resolution = resolver.resolve(query, directory::tools);
+        } catch (AgentBusyException e) {
+            throw e; // the fallback would ask the same model
+        } catch (RuntimeException e) {
+            log.warning("Could not route \"" + query + "\": " + e.getMessage());
+            resolution = null;
+        }
+        if (resolution == null) {
+            return fallback.apply(fallbackQuery(query, idempotencyKey));
+        }
+
+        String text;
+        try {
+            text = callTool(resolution.agentUrl(), resolution.action(),
+                    withIdempotencyKey(resolution.arguments(), idempotencyKey));
+        } catch (AgentBusyException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (!canCallAgain(resolution.action(), e)) {
+                throw e;
+            }
+            log.warning("Action " + resolution.action() + " failed for \"" + query + "\": " + e.getMessage());
+            return fallback.apply(fallbackQuery(query, idempotencyKey));
+        }
+        MeshRoute learned = MeshRoute.learn(shape, resolution);
+        if (learned != null) {
+            cache.put(shape.key(), learned);
+        } else {
+            cache.recordUncacheable();
+        }
+        return text;
+    }
+
+    /**
+     * Whether a call of {@code action} that failed with {@code failure} can be made again without the risk of
+     * running the action twice: it was never sent, or the action only reads.
+     */
+    static boolean canCallAgain(String action, RuntimeException failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        for (String prefix : READ_ONLY_PREFIXES) {
+            if (action.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The arguments with the query's key as the idempotency key, if the action takes one and the query did not
+     * name its own. The resolved arguments are left as they are, so a route is learned without the key.
+     */
+    static Map<String, Object> withIdempotencyKey(Map<String, Object> arguments, String idempotencyKey) {
+        if (!arguments.containsKey(MeshTool.IDEMPOTENCY_KEY)) {
+            return arguments;
+        }
+        Object named = arguments.get(MeshTool.IDEMPOTENCY_KEY);
+        if (named != null && !named.toString().isBlank()) {
+            return arguments;
+        }
+        Map<String, Object> keyed = new LinkedHashMap<>(arguments);
+        keyed.put(MeshTool.IDEMPOTENCY_KEY, idempotencyKey);
+        return keyed;
+    }
+
+    /** The query for the fallback, naming the key for the model to pass on as the action's idempotency key. */
+    static String fallbackQuery(String query, String idempotencyKey) {
+        return query + "\nUse idempotency key " + idempotencyKey + ".";
+    }
+
+    private String callTool(String agentUrl, String action, Map<String, Object> arguments) {
+        Span span = Tracer.shared().startSpan("call " + action, Span.Kind.CLIENT)
+                .attribute("mesh.agent.url", agentUrl)
+                .attribute("mesh.action", action);
+        try (Span.Scope ignored = span.makeCurrent()) {
+            return toolClient.callTool(agentUrl, action, arguments);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
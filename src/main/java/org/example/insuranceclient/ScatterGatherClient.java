@@ -0,0 +1,216 @@
+package org.example.insuranceclient;
+
+import lombok.extern.java.Log;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a {@link QueryPlan} against the mesh, starting every step as soon as the steps it depends on have
+ * finished, so independent queries wait on their LLM round trips concurrently.
+ * <p>
+ * Each step runs on its own thread: a virtual thread when the runtime has them (Java 21+), otherwise a
+ * daemon platform thread from a cached pool. A step that exceeds its timeout is recorded as
+ * {@link QueryOutcome.Status#TIMED_OUT} and its thread is interrupted; steps that depend on a step that
+ * did not succeed are {@link QueryOutcome.Status#SKIPPED}. Interrupting the caller of
+ * {@link #execute(QueryPlan)} cancels every step still running.
+ * <p>
+ * Each query is sent with its step's {@linkplain QueryPlan.Step#idempotencyKey() idempotency key}, so executing
+ * a plan again after a step failed or timed out does not repeat the payments the first run made.
+ */
+@Log
+public final class ScatterGatherClient implements AutoCloseable {
+
+    private static final ScheduledExecutorService TIMEOUTS = newTimeoutScheduler();
+
+    private final BiFunction<String, String, String> mesh;
+    private final Duration defaultTimeout;
+    private final ExecutorService executor;
+
+    /**
+     * @param mesh sends one query and returns its text result, e.g.
+     *             {@code query -> agentCatalog.processQuery(query).getTextResult()}, with no idempotency key
+     */
+    public ScatterGatherClient(Function<String, String> mesh, Duration defaultTimeout) {
+        this((query, idempotencyKey) -> mesh.apply(query), defaultTimeout);
+    }
+
+    /**
+     * @param mesh sends one query under an idempotency key and returns its text result, e.g.
+     *             {@link RoutingMeshClient#apply(String, String)}
+     */
+    public ScatterGatherClient(BiFunction<String, String, String> mesh, Duration defaultTimeout) {
+        this.mesh = mesh;
+        this.defaultTimeout = defaultTimeout;
+        this.executor = newQueryExecutor();
+    }
+
+    /** Runs the plan concurrently and returns every outcome in plan order. */
+    public Map<String, QueryOutcome> execute(QueryPlan plan) throws InterruptedException {
+        return execute(plan, outcome -> { });
+    }
+
+    /**
+     * Runs the plan concurrently, handing each outcome to {@code onOutcome} on the calling thread as soon as
+     * it is known (in completion order, so a slow consumer only delays delivery, never the steps), and
+     * returns every outcome in plan order.
+     */
+    public Map<String, QueryOutcome> execute(QueryPlan plan, Consumer<QueryOutcome> onOutcome)
+            throws InterruptedException {
+        long planStart = System.nanoTime();
+        Map<String, CompletableFuture<QueryOutcome>> outcomes = new LinkedHashMap<>();
+        List<Future<?>> running = new ArrayList<>();
+        BlockingQueue<CompletableFuture<QueryOutcome>> completed = new LinkedBlockingQueue<>();
+        for (QueryPlan.Step step : plan.steps()) {
+            Map<String, CompletableFuture<QueryOutcome>> dependencies = new LinkedHashMap<>();
+            step.dependsOn().forEach(dependency -> dependencies.put(dependency, outcomes.get(dependency)));
+            CompletableFuture<QueryOutcome> outcome = CompletableFuture
+                    .allOf(dependencies.values().toArray(new CompletableFuture[0]))
+                    .thenCompose(ready -> {
+                        Map<String, QueryOutcome> inputs = new LinkedHashMap<>();
+                        for (Map.Entry<String, CompletableFuture<QueryOutcome>> dependency : dependencies.entrySet()) {
+                            QueryOutcome input = dependency.getValue().join();
+                            if (!input.succeeded()) {
+                                return CompletableFuture.completedFuture(skipped(step, input, System.nanoTime() - planStart));
+                            }
+                            inputs.put(dependency.getKey(), input);
+                        }
+                        return start(step, step.resolve(inputs), planStart, running);
+                    });
+            outcome.whenComplete((result, error) -> completed.add(outcome));
+            outcomes.put(step.name(), outcome);
+        }
+
+        try {
+            for (int i = 0; i < outcomes.size(); i++) {
+                onOutcome.accept(completed.take().get());
+            }
+        } catch (InterruptedException e) {
+            // stops steps that have not started yet, then interrupts the ones waiting on the mesh
+            outcomes.values().forEach(outcome -> outcome.cancel(false));
+            synchronized (running) {
+                running.forEach(task -> task.cancel(true));
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            // steps record their own failures, so this only happens on a bug in the plan wiring
+            throw new IllegalStateException("Query plan failed", e.getCause());
+        }
+
+        Map<String, QueryOutcome> results = new LinkedHashMap<>();
+        outcomes.forEach((name, outcome) -> results.put(name, outcome.join()));
+        return results;
+    }
+
+    /** Runs the plan one step at a time on the calling thread, as the mesh client used to. */
+    public Map<String, QueryOutcome> executeSequentially(QueryPlan plan) {
+        long planStart = System.nanoTime();
+        Map<String, QueryOutcome> results = new LinkedHashMap<>();
+        for (QueryPlan.Step step : plan.steps()) {
+            long started = System.nanoTime();
+            QueryOutcome outcome = null;
+            for (String dependency : step.dependsOn()) {
+                if (!results.get(dependency).succeeded()) {
+                    outcome = skipped(step, results.get(dependency), started - planStart);
+                    break;
+                }
+            }
+            if (outcome == null) {
+                String query = step.resolve(results);
+                try {
+                    outcome = new QueryOutcome(step.name(), query, QueryOutcome.Status.SUCCEEDED,
+                            mesh.apply(query, step.idempotencyKey()),
+                            started - planStart, System.nanoTime() - started);
+                } catch (RuntimeException e) {
+                    outcome = new QueryOutcome(step.name(), query, QueryOutcome.Status.FAILED, String.valueOf(e.getMessage()),
+                            started - planStart, System.nanoTime() - started);
+                }
+            }
+            results.put(step.name(), outcome);
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<QueryOutcome> start(QueryPlan.Step step, String query, long planStart,
+                                                  List<Future<?>> running) {
+        CompletableFuture<QueryOutcome> outcome = new CompletableFuture<>();
+        long started = System.nanoTime();
+        Future<?> task = executor.submit(() -> {
+            try {
+                String text = mesh.apply(query, step.idempotencyKey());
+                outcome.complete(new QueryOutcome(step.name(), query, QueryOutcome.Status.SUCCEEDED, text,
+                        started - planStart, System.nanoTime() - started));
+            } catch (RuntimeException e) {
+                outcome.complete(new QueryOutcome(step.name(), query, QueryOutcome.Status.FAILED,
+                        String.valueOf(e.getMessage()), started - planStart, System.nanoTime() - started));
+            }
+        });
+        synchronized (running) {
+            running.add(task);
+        }
+
+        Duration timeout = step.timeout() != null ? step.timeout() : defaultTimeout;
+        ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> {
+            if (outcome.complete(new QueryOutcome(step.name(), query, QueryOutcome.Status.TIMED_OUT,
+                    "No reply within " + timeout.toMillis() + " ms", started - planStart, System.nanoTime() - started))) {
+                log.warning("Mesh query " + step.name() + " timed out after " + timeout.toMillis() + " ms");
+                task.cancel(true);
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        outcome.whenComplete((result, error) -> timer.cancel(false));
+        return outcome;
+    }
+
+    private static QueryOutcome skipped(QueryPlan.Step step, QueryOutcome dependency, long startedNanos) {
+        return new QueryOutcome(step.name(), step.query(), QueryOutcome.Status.SKIPPED, "Dependency " +
+                dependency.name() + " " + dependency.status().name().toLowerCase(Locale.ROOT), startedNanos, 0);
+    }
+
+    /** Virtual threads when available, so a blocked LLM call does not hold a platform thread. */
+    private static ExecutorService newQueryExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "mesh-query-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static ScheduledExecutorService newTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "mesh-query-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
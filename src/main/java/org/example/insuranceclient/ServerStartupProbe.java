@@ -0,0 +1,177 @@
+package org.example.insuranceclient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.jar.JarFile;
+
+/**
+ * Starts each agent server as a new JVM, as an autoscaler would, and reports its time to ready (process
+ * start until {@code /actuator/health} answers 200) and its RSS at that moment, for a plain start and for the
+ * {@code fast-start} profile.
+ * <p>
+ * The fast start adds the server's CDS archive from {@code mvn -Pfast-start package} (in {@code cds} next
+ * to the jar), the AOT-generated context ({@code -Dspring.aot.enabled=true}) and lazy initialization; a
+ * part that was not built is left out and said so. Both starts run the same jar, since a CDS archive only
+ * applies to the class path it was recorded with. Each server gets a free port and a scratch claims
+ * journal, so running servers are not disturbed.
+ * <p>
+ * Usage: {@code ServerStartupProbe <jar> [runs]} (default median of 3 starts), e.g.
+ * {@code java -cp target/insurance-agentic-mesh-1.0.0.jar org.example.insuranceclient.ServerStartupProbe
+ * target/insurance-agentic-mesh-1.0.0.jar}.
+ */
+public final class ServerStartupProbe {
+
+    private static final List<String> SERVERS = List.of(
+            "org.example.policymanagement.PolicyManagementServer",
+            "org.example.claimsprocessing.ClaimsProcessingServer",
+            "org.example.underwriting.UnderwritingServer",
+            "org.example.customerservice.CustomerServiceServer");
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(120);
+
+    private record Start(double readyMillis, long rssKb) {
+    }
+
+    private ServerStartupProbe() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ServerStartupProbe <jar> [runs]");
+            System.exit(2);
+        }
+        Path jar = Path.of(args[0]).toAbsolutePath();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path cds = jar.resolveSibling("cds");
+        String java = ProcessHandle.current().info().command().orElse("java");
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        System.out.printf("%-24s %-11s %12s %12s%n", "Server", "Start", "Ready", "RSS");
+        for (String server : SERVERS) {
+            String name = server.substring(server.lastIndexOf('.') + 1);
+            List<String> plain = List.of();
+            List<String> fast = new ArrayList<>();
+            Path archive = cds.resolve(name + ".jsa");
+            if (Files.exists(archive)) {
+                fast.add("-XX:SharedArchiveFile=" + archive);
+            } else {
+                System.out.println("No CDS archive for " + name + " at " + archive + "; build with -Pfast-start");
+            }
+            if (hasAotContext(jar, server)) {
+                fast.add("-Dspring.aot.enabled=true");
+            } else {
+                System.out.println("No AOT context for " + name + " in " + jar + "; build with -Pfast-start");
+            }
+            print(name, "plain", median(runs, () -> start(java, jar, server, plain, List.of(), http)));
+            print(name, "fast-start", median(runs, () -> start(java, jar, server, fast,
+                    List.of("--spring.profiles.active=fast-start"), http)));
+        }
+    }
+
+    private static Start start(String java, Path jar, String server, List<String> jvmOptions,
+                               List<String> arguments, HttpClient http) {
+        int port = freePort();
+        Path journal;
+        try {
+            journal = Files.createTempDirectory("startup-claims");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> command = new ArrayList<>(List.of(java));
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-Dclaims.journal.dir=" + journal, "-cp", jar.toString(), server,
+                "--server.port=" + port));
+        command.addAll(arguments);
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1)).build();
+
+        long started = System.nanoTime();
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start " + server, e);
+        }
+        try {
+            while (System.nanoTime() - started < READY_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(server + " exited with status " + process.exitValue());
+                }
+                try {
+                    if (http.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        double readyMillis = (System.nanoTime() - started) / 1e6;
+                        Long rssKb = MeshHopProbe.residentKb(process.pid());
+                        return new Start(readyMillis, rssKb == null ? -1 : rssKb);
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(server + " was not ready within " + READY_TIMEOUT.toSeconds() + " s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting " + server, e);
+        } finally {
+            process.destroy();
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            deleteQuietly(journal.toFile());
+        }
+    }
+
+    /** Whether the jar holds the context {@code process-aot} generates for {@code server}. */
+    private static boolean hasAotContext(Path jar, String server) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            return file.getEntry(server.replace('.', '/') + "__ApplicationContextInitializer.class") != null;
+        }
+    }
+
+    private static Start median(int runs, Supplier<Start> start) {
+        Start[] starts = new Start[runs];
+        for (int i = 0; i < runs; i++) {
+            starts[i] = start.get();
+        }
+        Arrays.sort(starts, (a, b) -> Double.compare(a.readyMillis(), b.readyMillis()));
+        return starts[runs / 2];
+    }
+
+    private static void print(String server, String mode, Start start) {
+        System.out.printf("%-24s %-11s %9.0f ms %9.1f MB%n", server, mode, start.readyMillis(),
+                start.rssKb() / 1024.0);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteQuietly(child);
+            }
+        }
+        file.delete();
+    }
+}
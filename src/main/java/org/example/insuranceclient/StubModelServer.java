@@ -0,0 +1,242 @@
+package org.example.insuranceclient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OpenAI-compatible {@code /v1/chat/completions} endpoint that answers without a model, so the mesh can be
+ * benchmarked and load tested without spending quota or inheriting a provider's latency.
+ * <p>
+ * The last user message is routed with a {@link LocalActionRouter} over the {@code @Action} methods of the
+ * agent services, and the decision is returned the way the request asks for it: as a tool call when the
+ * request lists {@code tools} and the chosen action is one of them, otherwise as a JSON object
+ * {@code {"agent", "action", "arguments"}} in the message content (what {@link LlmRouteResolver} reads).
+ * Queries the router finds ambiguous get {@code {}}. The same request always gets the same answer.
+ * <p>
+ * A {@link Simulation} makes the stub behave more like a hosted model: each answer is held back for a fixed
+ * time plus a time per completion token, and the completion can be reported as longer than it is. Run
+ * {@link #main} to serve a stub on its own, e.g. for the agent servers or the {@link MeshLoadGenerator}.
+ */
+public final class StubModelServer implements AutoCloseable {
+
+    /** Default port of a standalone stub, next to the mesh servers. */
+    public static final int DEFAULT_PORT = 7879;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * How a hosted model is imitated.
+     *
+     * @param latency          time to first byte of every answer
+     * @param perToken         additional time per completion token, as a model takes to generate it
+     * @param completionTokens completion tokens to report (and wait for) at least, 0 for the actual count
+     */
+    public record Simulation(Duration latency, Duration perToken, int completionTokens) {
+
+        /** Answers immediately with the actual token counts. */
+        public static final Simulation NONE = new Simulation(Duration.ZERO, Duration.ZERO, 0);
+
+        /**
+         * From the system properties {@code stub.latency.ms}, {@code stub.latency.per.token.ms} and
+         * {@code stub.completion.tokens}, each 0 unless set.
+         */
+        public static Simulation fromSystemProperties() {
+            return new Simulation(Duration.ofMillis(Long.getLong("stub.latency.ms", 0)),
+                    Duration.ofMillis(Long.getLong("stub.latency.per.token.ms", 0)),
+                    Integer.getInteger("stub.completion.tokens", 0));
+        }
+
+        Duration delay(int tokens) {
+            return latency.plus(perToken.multipliedBy(tokens));
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LocalActionRouter router;
+    private final Simulation simulation;
+    private final AtomicLong completions = new AtomicLong();
+
+    /**
+     * @param port   port to listen on, or 0 for any free port
+     * @param agents service classes and the agent URL of each, as for {@link ActionIndex#of}
+     */
+    public StubModelServer(int port, Map<Class<?>, String> agents) {
+        this(port, agents, Simulation.NONE);
+    }
+
+    public StubModelServer(int port, Map<Class<?>, String> agents, Simulation simulation) {
+        this.router = new LocalActionRouter(ActionIndex.of(agents), null);
+        this.simulation = simulation;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on port " + port, e);
+        }
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-model");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", this::complete);
+    }
+
+    /** A stub answering for the four mesh agents at their usual URLs. */
+    public static StubModelServer forMesh(int port) {
+        return new StubModelServer(port, MeshAgents.SERVICES);
+    }
+
+    /**
+     * Serves a stub for the four mesh agents until the process is stopped, imitating a hosted model as
+     * configured by {@link Simulation#fromSystemProperties()}.
+     * <p>
+     * Usage: {@code StubModelServer [port]} (default {@value #DEFAULT_PORT}). Point {@code openAiBaseURL} in
+     * {@code tools4ai.properties} at the printed URL, with any non-empty {@code openAiKey}.
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Simulation simulation = Simulation.fromSystemProperties();
+        StubModelServer stub = new StubModelServer(port, MeshAgents.SERVICES, simulation).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        System.out.println("Stub model serving " + stub.baseUrl() + " with " + simulation);
+    }
+
+    public StubModelServer start() {
+        server.start();
+        return this;
+    }
+
+    /** The value to use as {@code openAiBaseURL}. */
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public long completions() {
+        return completions.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = JSON.readTree(body);
+            }
+            ObjectNode completion = completion(request);
+            if (!pause(simulation.delay(completion.path("usage").path("completion_tokens").asInt()))) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            byte[] reply = JSON.writeValueAsBytes(completion);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, reply.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(reply);
+            }
+        }
+    }
+
+    ObjectNode completion(JsonNode request) {
+        long id = completions.incrementAndGet();
+        RouteResolver.Resolution resolution = router.route(lastUserMessage(request));
+
+        ObjectNode message = JSON.createObjectNode().put("role", "assistant");
+        String answer;
+        String finishReason = "stop";
+        if (resolution != null && offersTool(request, resolution.action())) {
+            answer = JSON.valueToTree(resolution.arguments()).toString();
+            message.putNull("content");
+            ObjectNode call = message.putArray("tool_calls").addObject()
+                    .put("id", "call_stub_" + id)
+                    .put("type", "function");
+            call.putObject("function").put("name", resolution.action()).put("arguments", answer);
+            finishReason = "tool_calls";
+        } else {
+            ObjectNode decision = JSON.createObjectNode();
+            if (resolution != null) {
+                decision.put("agent", resolution.agentUrl()).put("action", resolution.action());
+                decision.set("arguments", JSON.valueToTree(resolution.arguments()));
+            }
+            answer = decision.toString();
+            message.put("content", answer);
+        }
+
+        ObjectNode completion = JSON.createObjectNode()
+                .put("id", "chatcmpl-stub-" + id)
+                .put("object", "chat.completion")
+                .put("created", System.currentTimeMillis() / 1000)
+                .put("model", request.path("model").asText("stub"));
+        ObjectNode choice = completion.putArray("choices").addObject().put("index", 0);
+        choice.set("message", message);
+        choice.put("finish_reason", finishReason);
+        int promptTokens = tokens(request.path("messages").toString());
+        int completionTokens = Math.max(tokens(answer), simulation.completionTokens());
+        completion.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+        return completion;
+    }
+
+    private static String lastUserMessage(JsonNode request) {
+        JsonNode messages = request.path("messages");
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).path("role").asText().equals("user")) {
+                return messages.get(i).path("content").asText("");
+            }
+        }
+        return "";
+    }
+
+    private static boolean offersTool(JsonNode request, String action) {
+        for (JsonNode tool : request.path("tools")) {
+            if (tool.path("function").path("name").asText().equals(action)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Waits for {@code delay}, returning {@code false} if the server is shutting down meanwhile. */
+    private static boolean pause(Duration delay) {
+        if (delay.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(delay.toMillis(), delay.toNanosPart() % 1_000_000);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** The usual rule of thumb of four characters per token. */
+    private static int tokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.insuranceclient;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How the mesh client reaches an agent's actions once it knows which one to call: over JSON-RPC
+ * ({@link MeshToolClient}) or by calling the service in the same JVM ({@link InProcessToolTransport}).
+ * Agents are named by their URL in the four-server layout in both cases, so routes carry over.
+ */
+public interface ToolTransport {
+
+    List<MeshTool> listTools(String agentUrl);
+
+    /** Invokes one action and returns the text of its reply; failures surface as runtime exceptions. */
+    String callTool(String agentUrl, String action, Map<String, Object> arguments);
+}
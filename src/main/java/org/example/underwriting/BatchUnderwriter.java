@@ -0,0 +1,338 @@
+package org.example.underwriting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.common.PolicyType;
+import org.example.common.PremiumRatingEngine;
+import org.example.common.RiskCategory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Scores a stream of applicants with the same logic as {@code assessRisk} and
+ * {@code calculatePremiumRate} ({@link RiskScoringEngine} and {@link PremiumRatingEngine}), in
+ * parallel and in constant memory.
+ * <p>
+ * Input lines are cut into chunks that are scored as fork-join tasks. At most {@code maxInFlight}
+ * chunks exist at any time; finished chunks are written (and flushed) in input order as soon as the
+ * chunk before them has been written, so results stream back while the rest of the batch is still
+ * being read.
+ * <p>
+ * CSV input starts with a header naming the columns ({@code applicantName, age, healthStatus,
+ * occupation, smoker} and optionally {@code policyType, coverageAmount}); NDJSON input carries the
+ * same names as fields of one object per line. Output uses the input format, one result per
+ * applicant numbered by its data row ({@code line}), with an {@code error} instead of a score for
+ * rows that cannot be read.
+ */
+public final class BatchUnderwriter {
+
+    public enum Format { CSV, NDJSON }
+
+    static final String[] COLUMNS = {"applicantName", "age", "healthStatus", "occupation", "smoker",
+            "policyType", "coverageAmount"};
+    private static final int NAME = 0, AGE = 1, HEALTH = 2, OCCUPATION = 3, SMOKER = 4, POLICY_TYPE = 5, COVERAGE = 6;
+    private static final String CSV_RESULT_HEADER = "line,applicantName,riskScore,riskCategory,recommendation," +
+            "annualPremium,monthlyPremium,quarterlyPremium,error\n";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static volatile BatchUnderwriter shared;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    public BatchUnderwriter(ForkJoinPool pool, int chunkSize, int maxInFlight) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** Uses every core, 1024 applicants per chunk and two chunks in flight per core. */
+    public static BatchUnderwriter shared() {
+        BatchUnderwriter underwriter = shared;
+        if (underwriter == null) {
+            synchronized (BatchUnderwriter.class) {
+                if (shared == null) {
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    shared = new BatchUnderwriter(new ForkJoinPool(cores), 1024, cores * 2);
+                }
+                underwriter = shared;
+            }
+        }
+        return underwriter;
+    }
+
+    /** Scores every applicant read from {@code in} and writes the results to {@code out}; returns the row count. */
+    public long process(BufferedReader in, Writer out, Format format) throws IOException {
+        RiskScoringEngine engine = RiskScoringEngine.shared();
+        int[] columns = null;
+        if (format == Format.CSV) {
+            String header = nextLine(in);
+            if (header == null) {
+                return 0;
+            }
+            columns = columnIndexes(header);
+            out.write(CSV_RESULT_HEADER);
+        }
+
+        ArrayDeque<ForkJoinTask<String>> inFlight = new ArrayDeque<>(maxInFlight);
+        long rows = 0;
+        List<String> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = nextLine(in)) != null) {
+            chunk.add(line);
+            rows++;
+            if (chunk.size() == chunkSize) {
+                inFlight.add(submit(engine, chunk, rows - chunkSize + 1, columns, format));
+                chunk = new ArrayList<>(chunkSize);
+                drain(inFlight, out, maxInFlight);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            inFlight.add(submit(engine, chunk, rows - chunk.size() + 1, columns, format));
+        }
+        drain(inFlight, out, 0);
+        return rows;
+    }
+
+    private ForkJoinTask<String> submit(RiskScoringEngine engine, List<String> lines, long firstLine,
+                                        int[] columns, Format format) {
+        return pool.submit(() -> scoreChunk(engine, lines, firstLine, columns, format));
+    }
+
+    /** Writes finished chunks from the head of the queue, blocking while more than {@code limit} remain. */
+    private static void drain(ArrayDeque<ForkJoinTask<String>> inFlight, Writer out, int limit) throws IOException {
+        boolean wrote = false;
+        while (!inFlight.isEmpty() && (inFlight.size() > limit || inFlight.peek().isDone())) {
+            out.write(inFlight.poll().join());
+            wrote = true;
+        }
+        if (wrote) {
+            out.flush();
+        }
+    }
+
+    static String scoreChunk(RiskScoringEngine engine, List<String> lines, long firstLine, int[] columns, Format format) {
+        PremiumRatingEngine rating = PremiumRatingEngine.shared();
+        StringBuilder result = new StringBuilder(lines.size() * 160);
+        String[] fields = new String[COLUMNS.length];
+        long lineNumber = firstLine;
+        for (String line : lines) {
+            try {
+                if (format == Format.CSV) {
+                    readCsv(line, columns, fields);
+                } else {
+                    readJson(line, fields);
+                }
+                score(engine, rating, fields, lineNumber, format, result);
+            } catch (RuntimeException e) {
+                appendError(lineNumber, String.valueOf(e.getMessage()), format, result);
+            }
+            lineNumber++;
+        }
+        return result.toString();
+    }
+
+    private static void score(RiskScoringEngine engine, PremiumRatingEngine rating, String[] fields, long lineNumber, Format format,
+                              StringBuilder result) {
+        String name = fields[NAME];
+        int age = (int) parseNumber(fields, AGE);
+        boolean smoker = parseBoolean(required(fields, SMOKER));
+        int riskScore = engine.score(age, required(fields, HEALTH), required(fields, OCCUPATION), smoker);
+        RiskCategory category = engine.categorize(riskScore);
+
+        boolean priced = fields[POLICY_TYPE] != null && !fields[POLICY_TYPE].isBlank() && fields[COVERAGE] != null
+                && !fields[COVERAGE].isBlank();
+        double annualPremium = priced ? rating.annualPremium(PolicyType.parse(fields[POLICY_TYPE].trim()), category,
+                PremiumRatingEngine.UNRATED_AGE, parseNumber(fields, COVERAGE)) : 0;
+
+        if (format == Format.CSV) {
+            result.append(lineNumber).append(',');
+            appendCsv(result, name).append(',').append(riskScore).append(',').append(category).append(',');
+            appendCsv(result, category.getRecommendation()).append(',');
+            if (priced) {
+                appendMoney(result, annualPremium).append(',');
+                appendMoney(result, annualPremium / 12).append(',');
+                appendMoney(result, annualPremium / 4);
+            } else {
+                result.append(",,");
+            }
+            result.append(",\n");
+        } else {
+            result.append("{\"line\":").append(lineNumber).append(",\"applicantName\":");
+            appendJson(result, name).append(",\"riskScore\":").append(riskScore)
+                    .append(",\"riskCategory\":\"").append(category).append("\",\"recommendation\":");
+            appendJson(result, category.getRecommendation());
+            if (priced) {
+                appendMoney(result.append(",\"annualPremium\":"), annualPremium);
+                appendMoney(result.append(",\"monthlyPremium\":"), annualPremium / 12);
+                appendMoney(result.append(",\"quarterlyPremium\":"), annualPremium / 4);
+            }
+            result.append("}\n");
+        }
+    }
+
+    private static void appendError(long lineNumber, String message, Format format, StringBuilder result) {
+        if (format == Format.CSV) {
+            result.append(lineNumber).append(",,,,,,,,");
+            appendCsv(result, message).append('\n');
+        } else {
+            result.append("{\"line\":").append(lineNumber).append(",\"error\":");
+            appendJson(result, message).append("}\n");
+        }
+    }
+
+    private static int[] columnIndexes(String header) {
+        List<String> names = splitCsv(header);
+        int[] columns = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columns[i] = -1;
+            for (int j = 0; j < names.size(); j++) {
+                if (names.get(j).trim().equalsIgnoreCase(COLUMNS[i])) {
+                    columns[i] = j;
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static void readCsv(String line, int[] columns, String[] fields) {
+        List<String> values = splitCsv(line);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            fields[i] = columns[i] >= 0 && columns[i] < values.size() ? values.get(columns[i]) : null;
+        }
+    }
+
+    private static void readJson(String line, String[] fields) {
+        JsonNode node;
+        try {
+            node = JSON.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON");
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            JsonNode value = node.get(COLUMNS[i]);
+            fields[i] = value == null || value.isNull() ? null : value.asText();
+        }
+    }
+
+    /** Splits one CSV record; quoted fields may contain commas and doubled quotes. */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>(COLUMNS.length);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String nextLine(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!line.isBlank()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private static String required(String[] fields, int column) {
+        String value = fields[column];
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + COLUMNS[column]);
+        }
+        return value;
+    }
+
+    private static double parseNumber(String[] fields, int column) {
+        String value = required(fields, column).trim();
+        try {
+            return column == AGE ? Integer.parseInt(value) : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + COLUMNS[column] + ": " + value);
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "yes":
+            case "y":
+            case "1":
+                return true;
+            case "false":
+            case "no":
+            case "n":
+            case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid smoker value: " + value);
+        }
+    }
+
+    private static StringBuilder appendMoney(StringBuilder out, double amount) {
+        long cents = Math.round(amount * 100);
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        return out.append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return out.append(value);
+        }
+        return out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static StringBuilder appendJson(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.underwriting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Aho-Corasick automaton over weighted keywords, matched case-insensitively as substrings.
+ * <p>
+ * The automaton is compiled into a dense transition table ({@code states x character classes}) whose
+ * entries are the row offsets of the next state, so a scan is one array lookup per input character
+ * and never allocates. Each state carries the highest
+ * weight of any keyword ending there or on its failure chain, and {@link #maxWeight(CharSequence, int)}
+ * returns the highest weight matched anywhere in the text.
+ */
+public final class KeywordAutomaton {
+
+    private static final int NO_MATCH = Integer.MIN_VALUE;
+
+    /** Character class of each ASCII character (both cases); 0 is the class of characters no keyword contains. */
+    private final int[] asciiClasses = new int[128];
+    /** Non-ASCII keyword characters, sorted, with their classes. */
+    private final char[] otherChars;
+    private final int[] otherClasses;
+    private final int classCount;
+    /** Row offset ({@code state * classCount}) of the next state, per row offset and character class. */
+    private final int[] transitions;
+    /** Match weight of each state, stored at the state's row offset. */
+    private final int[] weights;
+
+    private KeywordAutomaton(Map<String, Integer> keywords) {
+        TreeSet<Character> alphabet = new TreeSet<>();
+        for (String keyword : keywords.keySet()) {
+            for (int i = 0; i < keyword.length(); i++) {
+                alphabet.add(Character.toLowerCase(keyword.charAt(i)));
+            }
+        }
+        List<Character> nonAscii = new ArrayList<>();
+        int nextClass = 1;
+        for (char c : alphabet) {
+            if (c < 128) {
+                asciiClasses[c] = nextClass;
+                asciiClasses[Character.toUpperCase(c)] = nextClass++;
+            } else {
+                nonAscii.add(c);
+            }
+        }
+        otherChars = new char[nonAscii.size()];
+        otherClasses = new int[nonAscii.size()];
+        for (int i = 0; i < otherChars.length; i++) {
+            otherChars[i] = nonAscii.get(i);
+            otherClasses[i] = nextClass++;
+        }
+        classCount = nextClass;
+
+        // trie
+        int maxStates = 1;
+        for (String keyword : keywords.keySet()) {
+            maxStates += keyword.length();
+        }
+        int[] trie = new int[maxStates * classCount];
+        int[] stateWeights = new int[maxStates];
+        Arrays.fill(stateWeights, NO_MATCH);
+        int states = 1;
+        for (Map.Entry<String, Integer> entry : keywords.entrySet()) {
+            String keyword = entry.getKey();
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int index = state * classCount + classOf(keyword.charAt(i));
+                if (trie[index] == 0) {
+                    trie[index] = states++;
+                }
+                state = trie[index];
+            }
+            stateWeights[state] = Math.max(stateWeights[state], entry.getValue());
+        }
+
+        // breadth first: failure links, turning the trie into a complete transition table
+        int[] failure = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classCount; c++) {
+            int next = trie[c];
+            if (next != 0) {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateWeights[state] = Math.max(stateWeights[state], stateWeights[failure[state]]);
+            for (int c = 0; c < classCount; c++) {
+                int index = state * classCount + c;
+                int fallback = trie[failure[state] * classCount + c];
+                if (trie[index] != 0) {
+                    failure[trie[index]] = fallback;
+                    queue.add(trie[index]);
+                } else {
+                    trie[index] = fallback;
+                }
+            }
+        }
+        transitions = new int[states * classCount];
+        weights = new int[states * classCount];
+        for (int state = 0; state < states; state++) {
+            int row = state * classCount;
+            for (int c = 0; c < classCount; c++) {
+                transitions[row + c] = trie[row + c] * classCount;
+            }
+            weights[row] = stateWeights[state];
+        }
+    }
+
+    public static KeywordAutomaton compile(Map<String, Integer> keywords) {
+        return new KeywordAutomaton(keywords);
+    }
+
+    /** Highest weight of any keyword contained in {@code text}, or {@code defaultWeight} if none is. */
+    public int maxWeight(CharSequence text, int defaultWeight) {
+        int row = 0;
+        int best = NO_MATCH;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            row = transitions[row + classOf(text.charAt(i))];
+            if (weights[row] > best) {
+                best = weights[row];
+            }
+        }
+        return best == NO_MATCH ? defaultWeight : best;
+    }
+
+    public int stateCount() {
+        return weights.length / classCount;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        c = Character.toLowerCase(c);
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index >= 0 ? otherClasses[index] : 0;
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.underwriting;
+
+import org.example.common.RiskCategory;
+import org.example.common.RuleFileWatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Data-driven underwriting risk score, compiled from a rule table (see
+ * {@code underwriting-risk-rules.properties}) into flat arrays.
+ * <p>
+ * Age deltas are a direct lookup by age, health statuses sit in a small open-addressing table probed
+ * with a case-insensitive hash, and occupation hazards are found in one pass of a
+ * {@link KeywordAutomaton}. Scoring an applicant performs no allocation.
+ * <p>
+ * The shared engine reloads a rule table given by {@code underwriting.rules.path} whenever the file changes,
+ * through the same {@link RuleFileWatcher} as the premium rating plan.
+ */
+public final class RiskScoringEngine {
+
+    public static final String DEFAULT_RULES = "underwriting-risk-rules.properties";
+    private static final String RULES_PATH_PROPERTY = "underwriting.rules.path";
+    private static final int MAX_AGE = 150;
+
+    private static volatile RiskScoringEngine shared;
+
+    private final int baseScore;
+    private final int smokerDelta;
+    private final int[] ageDeltas = new int[MAX_AGE + 1];
+    private final String[] healthKeys;
+    private final int[] healthDeltas;
+    /** Open-addressing table of {@code index + 1} into {@link #healthKeys}, 0 when empty. */
+    private final int[] healthTable;
+    private final KeywordAutomaton hazards;
+    private final int lowBelow;
+    private final int mediumBelow;
+
+    private RiskScoringEngine(Properties rules) {
+        baseScore = intRule(rules, "base.score", 0);
+        smokerDelta = intRule(rules, "smoker", 0);
+        lowBelow = intRule(rules, "category.LOW", Integer.MIN_VALUE);
+        mediumBelow = intRule(rules, "category.MEDIUM", Integer.MIN_VALUE);
+
+        Map<String, Integer> health = new LinkedHashMap<>();
+        Map<String, Integer> hazardWeights = new LinkedHashMap<>();
+        for (String key : rules.stringPropertyNames()) {
+            if (key.startsWith("age.")) {
+                String[] bounds = key.substring(4).split("-");
+                int from = Math.max(0, Integer.parseInt(bounds[0].trim()));
+                int to = Math.min(MAX_AGE, Integer.parseInt(bounds[1].trim()));
+                int delta = intRule(rules, key, 0);
+                for (int age = from; age <= to; age++) {
+                    ageDeltas[age] += delta;
+                }
+            } else if (key.startsWith("health.")) {
+                health.put(key.substring(7), intRule(rules, key, 0));
+            } else if (key.startsWith("hazard.")) {
+                hazardWeights.put(key.substring(7), intRule(rules, key, 0));
+            }
+        }
+
+        healthKeys = health.keySet().toArray(new String[0]);
+        healthDeltas = new int[healthKeys.length];
+        healthTable = new int[Math.max(8, Integer.highestOneBit(Math.max(1, healthKeys.length * 2)) << 1)];
+        for (int i = 0; i < healthKeys.length; i++) {
+            healthDeltas[i] = health.get(healthKeys[i]);
+            int mask = healthTable.length - 1;
+            int slot = caseInsensitiveHash(healthKeys[i]) & mask;
+            while (healthTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            healthTable[slot] = i + 1;
+        }
+        hazards = KeywordAutomaton.compile(hazardWeights);
+    }
+
+    public static RiskScoringEngine compile(Properties rules) {
+        return new RiskScoringEngine(rules);
+    }
+
+    /** Loads the rule table named by {@code underwriting.rules.path}, or the bundled default. */
+    public static RiskScoringEngine load() {
+        String path = System.getProperty(RULES_PATH_PROPERTY);
+        Properties rules = new Properties();
+        try (InputStream in = path != null ? Files.newInputStream(Path.of(path))
+                : RiskScoringEngine.class.getClassLoader().getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IllegalStateException("Risk rule table not found: " + DEFAULT_RULES);
+            }
+            rules.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read risk rule table", e);
+        }
+        return compile(rules);
+    }
+
+    public static RiskScoringEngine shared() {
+        RiskScoringEngine engine = shared;
+        if (engine == null) {
+            synchronized (RiskScoringEngine.class) {
+                if (shared == null) {
+                    shared = load();
+                    String path = System.getProperty(RULES_PATH_PROPERTY);
+                    if (path != null) {
+                        RuleFileWatcher.shared().watch(Path.of(path), RiskScoringEngine::reload);
+                    }
+                }
+                engine = shared;
+            }
+        }
+        return engine;
+    }
+
+    /** Recompiles the rule table and swaps it in; scoring calls in flight finish on the old table. */
+    public static RiskScoringEngine reload() {
+        RiskScoringEngine engine = load();
+        shared = engine;
+        return engine;
+    }
+
+    public int score(int age, String healthStatus, CharSequence occupation, boolean smoker) {
+        int score = baseScore + ageDeltas[Math.max(0, Math.min(MAX_AGE, age))];
+        score += healthDelta(healthStatus);
+        if (smoker) {
+            score += smokerDelta;
+        }
+        return score + hazards.maxWeight(occupation, 0);
+    }
+
+    public RiskCategory categorize(int score) {
+        if (score < lowBelow) return RiskCategory.LOW;
+        if (score < mediumBelow) return RiskCategory.MEDIUM;
+        return RiskCategory.HIGH;
+    }
+
+    private int healthDelta(String healthStatus) {
+        int mask = healthTable.length - 1;
+        for (int slot = caseInsensitiveHash(healthStatus) & mask; healthTable[slot] != 0; slot = (slot + 1) & mask) {
+            int index = healthTable[slot] - 1;
+            if (healthKeys[index].equalsIgnoreCase(healthStatus)) {
+                return healthDeltas[index];
+            }
+        }
+        return 0;
+    }
+
+    private static int caseInsensitiveHash(String value) {
+        int hash = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128) {
+                hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+            } else {
+                // same folding as equalsIgnoreCase
+                hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(c));
+            }
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int intRule(Properties rules, String key, int defaultValue) {
+        String value = rules.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
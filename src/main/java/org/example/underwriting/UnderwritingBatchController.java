@@ -0,0 +1,35 @@
+package org.example.underwriting;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk underwriting outside the LLM-routed agent path: POST a CSV ({@code text/csv}) or NDJSON
+ * ({@code application/x-ndjson}) body of applicants to {@code /underwriting/batch} and read the scored
+ * results back in the same format while the upload is still in progress.
+ */
+@RestController
+@Log
+public class UnderwritingBatchController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @PostMapping(value = "/underwriting/batch", consumes = {"text/csv", NDJSON})
+    public void scoreBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BatchUnderwriter.Format format = request.getContentType().startsWith(NDJSON)
+                ? BatchUnderwriter.Format.NDJSON : BatchUnderwriter.Format.CSV;
+        response.setContentType(format == BatchUnderwriter.Format.NDJSON ? NDJSON : "text/csv");
+        response.setCharacterEncoding("UTF-8");
+
+        long started = System.nanoTime();
+        long applicants = BatchUnderwriter.shared().process(request.getReader(), response.getWriter(), format);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info(String.format("Scored %d applicants (%s) in %d ms", applicants, format, millis));
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.underwriting;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.common.EventStreamWriter;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Streams a risk report as Server-Sent Events from {@code GET /underwriting/reports/{applicationId}/stream}:
+ * one {@code section} event per report section as soon as it is rendered, then a {@code done} event. The
+ * {@code generateRiskReport} action returns the same text in one piece.
+ */
+@RestController
+public class UnderwritingReportController {
+
+    private final UnderwritingService underwriting;
+
+    public UnderwritingReportController(UnderwritingService underwriting) {
+        this.underwriting = underwriting;
+    }
+
+    @GetMapping("/underwriting/reports/{applicationId}/stream")
+    public void streamRiskReport(@PathVariable String applicationId, HttpServletResponse response) throws IOException {
+        response.setContentType(EventStreamWriter.CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        EventStreamWriter events = new EventStreamWriter(response.getWriter());
+        try {
+            underwriting.writeRiskReport(applicationId, section -> {
+                try {
+                    events.event("section", section.strip());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        events.event("done", applicationId);
+    }
+}
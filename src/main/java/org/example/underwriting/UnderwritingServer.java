@@ -2,16 +2,28 @@ package org.example.underwriting;
 
 import io.github.vishalmysore.tools4ai.EnableAgent;
 import lombok.extern.java.Log;
+import org.example.common.IdGenerator;
+import org.example.common.MeshAdmissionConfiguration;
+import org.example.common.MeshMetricsConfiguration;
+import org.example.common.MeshReplyConfiguration;
+import org.example.common.MeshStartupConfiguration;
+import org.example.common.tracing.MeshTracingConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
 
 @SpringBootApplication
 @EnableAgent
+@Import({MeshAdmissionConfiguration.class, MeshMetricsConfiguration.class, MeshReplyConfiguration.class,
+        MeshStartupConfiguration.class, MeshTracingConfiguration.class})
 @PropertySource("classpath:application-underwriting.properties")
 @Log
 public class UnderwritingServer {
+    static final int DEFAULT_NODE_ID = 3;
+
     public static void main(String[] args) {
+        IdGenerator.configureShared(DEFAULT_NODE_ID);
         SpringApplication.run(UnderwritingServer.class, args);
         log.info("Underwriting Server started successfully on port 7873");
     }